@@ -0,0 +1,124 @@
+package org.journalsystem;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.journalsystem.service.ResourceChangeService;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.Optional;
+
+/**
+ * Receiver for FHIR R4 rest-hook Subscription notifications. HAPI delivers payload
+ * subscriptions as {@code PUT <endpoint>/<type>/<id>} (and deletes as {@code DELETE}),
+ * history/notification Bundles as {@code POST <endpoint>}, and payload-less notifications as
+ * an empty {@code POST}. Callers authenticate with the shared {@code X-Subscription-Token}
+ * configured as a channel header on the Subscription; without
+ * {@code search.subscription.token} every notification is rejected.
+ */
+@Path("/api/fhir-notifications")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.WILDCARD)
+public class FhirNotificationResource {
+
+    private static final Logger LOG = Logger.getLogger(FhirNotificationResource.class);
+
+    @Inject
+    ResourceChangeService changeService;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @ConfigProperty(name = "search.subscription.token")
+    Optional<String> token;
+
+    @POST
+    public Uni<Response> notify(@HeaderParam("X-Subscription-Token") String callerToken, String body) {
+        if (!authorized(callerToken)) {
+            return unauthorized();
+        }
+        if (body == null || body.isBlank()) {
+            return changeService.onUnknownChange().map(this::ok);
+        }
+
+        try {
+            JsonNode json = mapper.readTree(body);
+            if ("Bundle".equals(json.path("resourceType").asText())) {
+                return changeService.onBundle(mapper.treeToValue(json, FhirBundle.class)).map(this::ok);
+            }
+            return changeService.onUpdated(mapper.treeToValue(json, FhirBundle.FhirResource.class)).map(this::ok);
+        } catch (Exception e) {
+            LOG.warnf("Rejecting unreadable FHIR notification: %s", e.getMessage());
+            return badRequest();
+        }
+    }
+
+    @PUT
+    @Path("/{type}/{id}")
+    public Uni<Response> resourceUpdated(
+            @HeaderParam("X-Subscription-Token") String callerToken,
+            @PathParam("type") String type,
+            @PathParam("id") String id,
+            String body) {
+        if (!authorized(callerToken)) {
+            return unauthorized();
+        }
+
+        FhirBundle.FhirResource resource;
+        try {
+            resource = body == null || body.isBlank()
+                    ? new FhirBundle.FhirResource()
+                    : mapper.readValue(body, FhirBundle.FhirResource.class);
+        } catch (Exception e) {
+            LOG.warnf("Rejecting unreadable FHIR notification for %s/%s: %s", type, id, e.getMessage());
+            return badRequest();
+        }
+
+        if (resource.resourceType == null) {
+            // Without a payload we only know which resource changed
+            return changeService.onDeleted(type, id).map(this::ok);
+        }
+        resource.id = id;
+        return changeService.onUpdated(resource).map(this::ok);
+    }
+
+    @DELETE
+    @Path("/{type}/{id}")
+    public Uni<Response> resourceDeleted(
+            @HeaderParam("X-Subscription-Token") String callerToken,
+            @PathParam("type") String type,
+            @PathParam("id") String id) {
+        if (!authorized(callerToken)) {
+            return unauthorized();
+        }
+        return changeService.onDeleted(type, id).map(this::ok);
+    }
+
+    private boolean authorized(String callerToken) {
+        // Notifications write Patients and Practitioners through to the cache, so an
+        // unconfigured token disables the endpoint rather than opening it
+        return token.isPresent() && token.get().equals(callerToken);
+    }
+
+    private Response ok(int invalidated) {
+        return Response.ok("{\"invalidated\": " + invalidated + "}").build();
+    }
+
+    private Uni<Response> unauthorized() {
+        return Uni.createFrom().item(Response.status(Response.Status.UNAUTHORIZED)
+                .entity("{\"error\": \"Invalid subscription token\"}")
+                .build());
+    }
+
+    private Uni<Response> badRequest() {
+        return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                .entity("{\"error\": \"Notification body is not a FHIR resource or Bundle\"}")
+                .build());
+    }
+}
@@ -1,16 +1,42 @@
 package org.journalsystem;
 
+import org.journalsystem.cache.JsonBodyCache;
 import org.journalsystem.dto.*;
+import org.journalsystem.limit.AdmissionController;
+import org.journalsystem.limit.AdmissionRejectedException;
+import org.journalsystem.limit.CallerContext;
+import org.journalsystem.limit.Priority;
+import org.journalsystem.service.BlockingSearchService;
+import org.journalsystem.service.ConditionQuery;
+import org.journalsystem.service.DateRange;
+import org.journalsystem.service.Deadline;
+import org.journalsystem.service.DoctorPanelRefresher;
+import org.journalsystem.service.ExportFormat;
+import org.journalsystem.service.ExportWriter;
+import org.journalsystem.service.FederatedSearchService;
+import org.journalsystem.service.PageRequest;
+import org.journalsystem.service.SearchExecutor;
 import org.journalsystem.service.SearchService;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
+import org.jboss.resteasy.reactive.RestMulti;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Path("/api/search")
 @Produces(MediaType.APPLICATION_JSON)
@@ -19,9 +45,46 @@ public class SearchResource {
 
     private static final Logger LOG = Logger.getLogger(SearchResource.class);
 
+    static final String BUDGET_HEADER = "X-Search-Budget-Ms";
+    static final String PARTIAL_HEADER = "X-Search-Partial";
+    static final String PENDING_HEADER = "X-Search-Pending";
+    static final String SUMMARY_COUNT = "count";
+
     @Inject
     SearchService searchService;
 
+    @Inject
+    BlockingSearchService blockingSearchService;
+
+    @Inject
+    SearchExecutor searchExecutor;
+
+    // reactive: Mutiny chains on the event loop; blocking: BlockingSearchService on (virtual) threads
+    @ConfigProperty(name = "search.execution.mode", defaultValue = "reactive")
+    String executionMode;
+
+    // Default latency budget for fan-out searches; callers may set their own with X-Search-Budget-Ms
+    @ConfigProperty(name = "search.deadline.budget")
+    Optional<Duration> defaultBudget;
+
+    @Inject
+    FederatedSearchService federatedSearchService;
+
+    @Inject
+    AdmissionController admission;
+
+    @Inject
+    JsonBodyCache jsonBodies;
+
+    @Inject
+    DoctorPanelRefresher doctorPanels;
+
+    @Inject
+    ExportWriter exportWriter;
+
+    @Inject
+    SecurityIdentity identity;
+
     @GET
     @Path("/hello")
     @Produces(MediaType.TEXT_PLAIN)
@@ -35,27 +98,44 @@ public class SearchResource {
     public Uni<Response> searchPatients(
             @QueryParam("name") String name,
             @QueryParam("condition") String condition,
-            @QueryParam("practitionerId") String practitionerId
+            @QueryParam("practitionerId") String practitionerId,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("offset") Integer offset,
+            @QueryParam("sort") String sort,
+            @QueryParam("summary") String summary,
+            @HeaderParam(BUDGET_HEADER) String budget
     ) {
         LOG.infof("Search patients - name: %s, condition: %s, practitionerId: %s",
                 name, condition, practitionerId);
 
+        if (summary != null) {
+            return countPatients(name, condition, practitionerId, summary);
+        }
+
+        PageRequest page;
+        Deadline deadline;
+        try {
+            page = PageRequest.of(limit, offset, sort, SearchService.PATIENT_SORT_FIELDS);
+            deadline = deadline(budget);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+
         if (name != null && !name.trim().isEmpty()) {
-            return searchService.searchPatientsByName(name.trim())
-                    .map(results -> Response.ok(results).build());
+            return admitted(true, Deadline.NONE,
+                    () -> searchService.searchPatientsByName(name.trim(), page),
+                    () -> blockingSearchService.searchPatientsByName(name.trim(), page));
         } else if (condition != null && !condition.trim().isEmpty()) {
-            return searchService.searchPatientsByCondition(condition.trim())
-                    .map(results -> Response.ok(results).build());
+            return admitted(true, deadline,
+                    () -> searchService.searchPatientsByCondition(condition.trim(), page, deadline),
+                    () -> blockingSearchService.searchPatientsByCondition(condition.trim(), page, deadline));
         } else if (practitionerId != null && !practitionerId.trim().isEmpty()) {
-            return searchService.searchPatientsByPractitionerId(practitionerId.trim())
-                    .map(results -> Response.ok(results).build());
+            return admitted(false, deadline,
+                    () -> searchService.searchPatientsByPractitionerId(practitionerId.trim(), page, deadline),
+                    () -> blockingSearchService.searchPatientsByPractitionerId(practitionerId.trim(), page, deadline));
         }
 
-        return Uni.createFrom().item(
-                Response.status(Response.Status.BAD_REQUEST)
-                        .entity("{\"error\": \"Please provide 'name', 'condition', or 'practitionerId' query parameter\"}")
-                        .build()
-        );
+        return badRequest("Please provide 'name', 'condition', or 'practitionerId' query parameter");
     }
 
     @GET
@@ -63,19 +143,380 @@ public class SearchResource {
     @RolesAllowed({"doctor"})
     public Uni<Response> searchEncounters(
             @QueryParam("practitionerId") String practitionerId,
-            @QueryParam("date") String date
+            @QueryParam("date") String date,
+            @QueryParam("from") String from,
+            @QueryParam("to") String to,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("offset") Integer offset,
+            @QueryParam("sort") String sort,
+            @QueryParam("summary") String summary,
+            @HeaderParam(BUDGET_HEADER) String budget
     ) {
         LOG.infof("Search encounters - practitionerId: %s, date: %s", practitionerId, date);
 
         if (practitionerId == null || practitionerId.trim().isEmpty()) {
-            return Uni.createFrom().item(
-                    Response.status(Response.Status.BAD_REQUEST)
-                            .entity("{\"error\": \"Please provide 'practitionerId' query parameter\"}")
-                            .build()
-            );
+            return badRequest("Please provide 'practitionerId' query parameter");
+        }
+        if (summary != null) {
+            if (!SUMMARY_COUNT.equals(summary)) {
+                return badRequest("'summary' must be '" + SUMMARY_COUNT + "'");
+            }
+            return counted(
+                    () -> searchService.countEncountersByPractitioner(practitionerId.trim(), date),
+                    () -> blockingSearchService.countEncountersByPractitioner(practitionerId.trim(), date));
+        }
+
+        PageRequest page;
+        Deadline deadline;
+        DateRange range = null;
+        try {
+            page = PageRequest.of(limit, offset, sort, SearchService.ENCOUNTER_SORT_FIELDS);
+            deadline = deadline(budget);
+            if (from != null || to != null) {
+                if (date != null && !date.isBlank()) {
+                    return badRequest("Use either 'date' or 'from'/'to'");
+                }
+                range = DateRange.of(from, to);
+            }
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+
+        if (range != null) {
+            DateRange dates = range;
+            return admitted(dates.days() > 31, deadline,
+                    () -> searchService.searchEncountersByPractitionerInRange(practitionerId.trim(), dates, page, deadline),
+                    () -> blockingSearchService.searchEncountersByPractitionerInRange(practitionerId.trim(), dates, page, deadline));
+        }
+
+        return admitted(false, deadline,
+                () -> searchService.searchEncountersByPractitioner(practitionerId.trim(), date, page, deadline),
+                () -> blockingSearchService.searchEncountersByPractitioner(practitionerId.trim(), date, page, deadline));
+    }
+
+    /**
+     * Encounters in a date range as NDJSON, in start time order, each week of the range sent as
+     * soon as it and all earlier weeks are in. Always runs reactively.
+     */
+    @GET
+    @Path("/encounters/stream")
+    @RolesAllowed({"doctor"})
+    @Produces("application/x-ndjson")
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<EncounterSearchResult> streamEncounters(
+            @QueryParam("practitionerId") String practitionerId,
+            @QueryParam("from") String from,
+            @QueryParam("to") String to
+    ) {
+        LOG.infof("Stream encounters - practitionerId: %s, from: %s, to: %s", practitionerId, from, to);
+
+        if (practitionerId == null || practitionerId.trim().isEmpty()) {
+            throw new BadRequestException("Please provide 'practitionerId' query parameter");
+        }
+        DateRange range;
+        try {
+            range = DateRange.of(from, to);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        CallerContext.bind(principal());
+        return admission.admitStream(Priority.of(identity.hasRole("doctor"), range.days() > 31),
+                () -> searchService.streamEncountersByPractitioner(practitionerId.trim(), range, Deadline.NONE));
+    }
+
+    /**
+     * Conditions by free text, code tokens or patient, each with its patient's name.
+     */
+    @GET
+    @Path("/conditions")
+    @RolesAllowed({"doctor"})
+    public Uni<Response> searchConditions(
+            @QueryParam("text") String text,
+            @QueryParam("code") String code,
+            @QueryParam("patientId") String patientId,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("offset") Integer offset,
+            @QueryParam("sort") String sort
+    ) {
+        LOG.infof("Search conditions - text: %s, code: %s, patientId: %s", text, code, patientId);
+
+        ConditionQuery query;
+        PageRequest page;
+        try {
+            query = ConditionQuery.of(text, code, patientId);
+            page = PageRequest.of(limit, offset, sort, SearchService.CONDITION_SORT_FIELDS);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+
+        return admitted(query.patientId() == null, Deadline.NONE,
+                () -> searchService.searchConditions(query, page),
+                () -> blockingSearchService.searchConditions(query, page));
+    }
+
+    /**
+     * Same as {@code /conditions} as NDJSON, for large results: conditions whose patient came
+     * with the search are sent at once, the rest as their patients are read. Always runs
+     * reactively.
+     */
+    @GET
+    @Path("/conditions/stream")
+    @RolesAllowed({"doctor"})
+    @Produces("application/x-ndjson")
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<ConditionSearchResult> streamConditions(
+            @QueryParam("text") String text,
+            @QueryParam("code") String code,
+            @QueryParam("patientId") String patientId
+    ) {
+        LOG.infof("Stream conditions - text: %s, code: %s, patientId: %s", text, code, patientId);
+
+        ConditionQuery query;
+        try {
+            query = ConditionQuery.of(text, code, patientId);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        CallerContext.bind(principal());
+        return admission.admitStream(Priority.of(identity.hasRole("doctor"), query.patientId() == null),
+                () -> searchService.streamConditions(query, PageRequest.unpaged()));
+    }
+
+    /**
+     * Every condition matching, as NDJSON or CSV ({@code format}), for bulk exports. FHIR is
+     * paged as the response is written, so memory stays bounded however many rows there are.
+     * An interrupted export is resumed by passing the number of rows already received as
+     * {@code cursor}. Always runs reactively.
+     */
+    @GET
+    @Path("/export/conditions")
+    @RolesAllowed({"doctor", "staff"})
+    // Written in chunks as they come; the Content-Type is set from 'format'
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public RestMulti<String> exportConditions(
+            @QueryParam("text") String text,
+            @QueryParam("code") String code,
+            @QueryParam("patientId") String patientId,
+            @QueryParam("format") String format,
+            @QueryParam("cursor") Integer cursor
+    ) {
+        LOG.infof("Export conditions - text: %s, code: %s, patientId: %s, format: %s, cursor: %s",
+                text, code, patientId, format, cursor);
+
+        ConditionQuery query;
+        ExportFormat exportFormat;
+        try {
+            query = ConditionQuery.of(text, code, patientId);
+            exportFormat = ExportFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        int from = exportCursor(cursor);
+        return exported("conditions", exportFormat, ExportWriter.CONDITION_COLUMNS,
+                () -> searchService.exportConditions(query, from));
+    }
+
+    /**
+     * Every patient whose name matches, exported like {@code /export/conditions}.
+     */
+    @GET
+    @Path("/export/patients")
+    @RolesAllowed({"doctor", "staff"})
+    // Written in chunks as they come; the Content-Type is set from 'format'
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public RestMulti<String> exportPatients(
+            @QueryParam("name") String name,
+            @QueryParam("format") String format,
+            @QueryParam("cursor") Integer cursor
+    ) {
+        LOG.infof("Export patients - name: %s, format: %s, cursor: %s", name, format, cursor);
+
+        if (name == null || name.trim().isEmpty()) {
+            throw new BadRequestException("Please provide 'name' query parameter");
+        }
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        int from = exportCursor(cursor);
+        return exported("patients", exportFormat, ExportWriter.PATIENT_COLUMNS,
+                () -> searchService.exportPatientsByName(name.trim(), from));
+    }
+
+    /**
+     * A practitioner's patients, de-duplicated over all their encounters.
+     */
+    @GET
+    @Path("/doctors/{id}/patients")
+    @RolesAllowed({"doctor", "staff"})
+    public Uni<Response> searchDoctorPatients(@PathParam("id") String practitionerId) {
+        LOG.infof("Search doctor patients - practitionerId: %s", practitionerId);
+
+        if (practitionerId == null || practitionerId.trim().isEmpty()) {
+            return badRequest("Please provide a practitioner id");
         }
 
-        return searchService.searchEncountersByPractitioner(practitionerId.trim(), date)
-                .map(results -> Response.ok(results).build());
+        return admitted(false,
+                () -> searchService.searchDoctorPatients(practitionerId.trim()),
+                () -> blockingSearchService.searchDoctorPatients(practitionerId.trim()),
+                panel -> {
+                    if (panel == null) {
+                        return Response.status(Response.Status.NOT_FOUND)
+                                .entity("{\"error\": \"No practitioner " + practitionerId.trim().replace("\"", "'") + "\"}")
+                                .build();
+                    }
+                    doctorPanels.touch(panel.doctorId());
+                    return Response.ok(panel).build();
+                });
+    }
+
+    /**
+     * {@code summary=count}: only the number of patients, without enriching any of them.
+     */
+    private Uni<Response> countPatients(String name, String condition, String practitionerId, String summary) {
+        if (!SUMMARY_COUNT.equals(summary)) {
+            return badRequest("'summary' must be '" + SUMMARY_COUNT + "'");
+        }
+
+        if (name != null && !name.trim().isEmpty()) {
+            return counted(
+                    () -> searchService.countPatientsByName(name.trim()),
+                    () -> blockingSearchService.countPatientsByName(name.trim()));
+        } else if (condition != null && !condition.trim().isEmpty()) {
+            return counted(
+                    () -> searchService.countPatientsByCondition(condition.trim()),
+                    () -> blockingSearchService.countPatientsByCondition(condition.trim()));
+        } else if (practitionerId != null && !practitionerId.trim().isEmpty()) {
+            return counted(
+                    () -> searchService.countPatientsByPractitionerId(practitionerId.trim()),
+                    () -> blockingSearchService.countPatientsByPractitionerId(practitionerId.trim()));
+        }
+
+        return badRequest("Please provide 'name', 'condition', or 'practitionerId' query parameter");
+    }
+
+    /**
+     * Searches every configured FHIR source and streams de-duplicated patients as NDJSON,
+     * one line per patient as soon as its source answers. Always runs reactively.
+     */
+    @GET
+    @Path("/federated/patients")
+    @RolesAllowed({"doctor", "staff"})
+    @Produces("application/x-ndjson")
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<FederatedPatientResult> searchFederatedPatients(@QueryParam("name") String name) {
+        LOG.infof("Federated search patients - name: %s", name);
+
+        if (name == null || name.trim().isEmpty()) {
+            throw new BadRequestException("Please provide 'name' query parameter");
+        }
+
+        CallerContext.bind(principal());
+        return admission.admitStream(Priority.of(identity.hasRole("doctor"), true),
+                () -> federatedSearchService.searchPatientsByName(name.trim()));
+    }
+
+    @ServerExceptionMapper
+    Response mapAdmissionRejected(AdmissionRejectedException e) {
+        return serviceUnavailable(e);
+    }
+
+    private Deadline deadline(String budget) {
+        if (budget == null || budget.isBlank()) {
+            return defaultBudget.map(Deadline::after).orElse(Deadline.NONE);
+        }
+        long millis;
+        try {
+            millis = Long.parseLong(budget.trim());
+        } catch (NumberFormatException e) {
+            millis = -1;
+        }
+        if (millis < 1) {
+            throw new IllegalArgumentException("'" + BUDGET_HEADER + "' must be a positive number of milliseconds");
+        }
+        return Deadline.after(Duration.ofMillis(millis));
+    }
+
+    private int exportCursor(Integer cursor) {
+        if (cursor != null && cursor < 0) {
+            throw new BadRequestException("'cursor' must not be negative");
+        }
+        return cursor != null ? cursor : 0;
+    }
+
+    private <T> RestMulti<String> exported(
+            String name,
+            ExportFormat format,
+            List<ExportWriter.Column<T>> columns,
+            Supplier<Multi<T>> rows) {
+        CallerContext.bind(principal());
+        Multi<String> body = exportWriter.write(format, columns,
+                admission.admitStream(Priority.of(identity.hasRole("doctor"), true), rows));
+        return RestMulti.fromMultiData(body)
+                .header(HttpHeaders.CONTENT_TYPE, format.mediaType())
+                .header("Content-Disposition", "attachment; filename=\"" + name + "." + format.fileExtension() + "\"")
+                .build();
+    }
+
+    private Uni<Response> admitted(
+            boolean expensive,
+            Deadline deadline,
+            Supplier<Uni<? extends List<?>>> reactiveSearch,
+            Supplier<? extends List<?>> blockingSearch) {
+        return admitted(expensive, reactiveSearch, blockingSearch, results -> ok(results, deadline));
+    }
+
+    private Uni<Response> counted(Supplier<Uni<? extends Integer>> reactiveCount, Supplier<Integer> blockingCount) {
+        return admitted(false, reactiveCount, blockingCount, count -> Response.ok(new CountResult(count)).build());
+    }
+
+    private <T> Uni<Response> admitted(
+            boolean expensive,
+            Supplier<Uni<? extends T>> reactiveSearch,
+            Supplier<? extends T> blockingSearch,
+            Function<? super T, Response> respond) {
+        Priority priority = Priority.of(identity.hasRole("doctor"), expensive);
+        String principal = principal();
+        CallerContext.bind(principal);
+
+        Supplier<Uni<? extends T>> search = "blocking".equals(executionMode)
+                ? () -> searchExecutor.submit(principal, blockingSearch)
+                : reactiveSearch;
+        return admission.admit(priority, () -> search.get().map(respond::apply))
+                .onFailure(AdmissionRejectedException.class).recoverWithItem(this::serviceUnavailable);
+    }
+
+    private String principal() {
+        return identity.isAnonymous() ? CallerContext.ANONYMOUS : identity.getPrincipal().getName();
+    }
+
+    private Response ok(List<?> results, Deadline deadline) {
+        Response.ResponseBuilder response = Response.ok(jsonBodies.write(results), MediaType.APPLICATION_JSON_TYPE);
+        if (deadline.isPartial()) {
+            response.header(PARTIAL_HEADER, true).header(PENDING_HEADER, deadline.pending());
+        }
+        return response.build();
+    }
+
+    private Response serviceUnavailable(AdmissionRejectedException e) {
+        LOG.warnf("Rejected search: %s", e.getMessage());
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", e.retryAfterSeconds())
+                .entity("{\"error\": \"" + e.getMessage() + "\"}")
+                .build();
+    }
+
+    private Uni<Response> badRequest(String message) {
+        return Uni.createFrom().item(
+                Response.status(Response.Status.BAD_REQUEST)
+                        .entity("{\"error\": \"" + message.replace("\"", "'") + "\"}")
+                        .build()
+        );
     }
-}
\ No newline at end of file
+}
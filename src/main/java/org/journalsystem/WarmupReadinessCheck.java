@@ -0,0 +1,57 @@
+package org.journalsystem;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+import org.journalsystem.client.FhirRouter;
+import org.journalsystem.limit.UpstreamLimiter;
+import org.journalsystem.service.WarmupConfig;
+import org.journalsystem.service.WarmupService;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Locale;
+
+/**
+ * UP once the warm-up is done. The FHIR round-trip times and replica health are reported
+ * alongside but do not take the instance out of rotation: a slow FHIR server slows every
+ * instance alike, and cached searches keep working meanwhile.
+ */
+@Readiness
+@ApplicationScoped
+public class WarmupReadinessCheck implements HealthCheck {
+
+    @Inject
+    WarmupService warmup;
+
+    @Inject
+    WarmupConfig config;
+
+    @Inject
+    UpstreamLimiter limiter;
+
+    @Inject
+    FhirRouter router;
+
+    @Override
+    public HealthCheckResponse call() {
+        long rttMillis = limiter.longRttNanos() / 1_000_000;
+        String upstream = rttMillis == 0 ? "unknown"
+                : rttMillis > config.slowUpstream().toMillis() ? "slow" : "ok";
+
+        HealthCheckResponseBuilder response = HealthCheckResponse.named("warmup")
+                .status(warmup.isDone())
+                .withData("warmup", warmup.state().name().toLowerCase(Locale.ROOT))
+                .withData("warmupMillis", warmup.warmupMillis())
+                .withData("upstream", upstream)
+                .withData("upstreamRttMillis", rttMillis)
+                .withData("upstreamLastRttMillis", limiter.lastRttNanos() / 1_000_000)
+                .withData("upstreamLimit", limiter.currentLimit());
+        for (String replica : router.replicaNames()) {
+            response.withData("replica " + replica, router.isHealthy(replica) ? "up" : "ejected");
+        }
+        return response.build();
+    }
+}
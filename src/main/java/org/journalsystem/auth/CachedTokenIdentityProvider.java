@@ -0,0 +1,65 @@
+package org.journalsystem.auth;
+
+import io.quarkus.security.identity.AuthenticationRequestContext;
+import io.quarkus.security.identity.IdentityProvider;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.security.identity.request.TokenAuthenticationRequest;
+import io.quarkus.security.runtime.QuarkusSecurityIdentity;
+import io.quarkus.vertx.http.runtime.security.HttpSecurityUtils;
+import io.smallrye.mutiny.Uni;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Answers bearer token authentication from {@link VerifiedTokenCache} before OIDC is asked.
+ * On a miss it returns no identity, so the OIDC provider verifies the token as usual and
+ * {@link VerifiedTokenAugmentor} caches the result.
+ */
+@ApplicationScoped
+public class CachedTokenIdentityProvider implements IdentityProvider<TokenAuthenticationRequest> {
+
+    static final String TOKEN_HASH = "search.auth.token-hash";
+    static final String STARTED = "search.auth.started";
+    static final String CACHED = "search.auth.cached";
+
+    @Inject
+    VerifiedTokenCache cache;
+
+    @Override
+    public Class<TokenAuthenticationRequest> getRequestType() {
+        return TokenAuthenticationRequest.class;
+    }
+
+    @Override
+    public int priority() {
+        // Ahead of the OIDC provider, which keeps the default priority
+        return SYSTEM_FIRST;
+    }
+
+    @Override
+    public Uni<SecurityIdentity> authenticate(TokenAuthenticationRequest request, AuthenticationRequestContext context) {
+        if (!cache.enabled()) {
+            return Uni.createFrom().nullItem();
+        }
+
+        request.setAttribute(STARTED, System.nanoTime());
+        String hash = VerifiedTokenCache.hash(request.getToken().getToken());
+        request.setAttribute(TOKEN_HASH, hash);
+
+        SecurityIdentity cached = cache.get(hash);
+        if (cached == null) {
+            return Uni.createFrom().nullItem();
+        }
+        request.setAttribute(CACHED, Boolean.TRUE);
+
+        // The identity carries the routing context it was verified on; hand it this request's
+        RoutingContext routingContext = HttpSecurityUtils.getRoutingContextAttribute(request);
+        if (routingContext == null) {
+            return Uni.createFrom().item(cached);
+        }
+        return Uni.createFrom().item(QuarkusSecurityIdentity.builder(cached)
+                .addAttribute(RoutingContext.class.getName(), routingContext)
+                .build());
+    }
+}
@@ -0,0 +1,26 @@
+package org.journalsystem.auth;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "search.auth.token-cache")
+public interface TokenCacheConfig {
+
+    /**
+     * When false, every request's bearer token is verified by OIDC.
+     */
+    @WithDefault("true")
+    boolean enabled();
+
+    @WithDefault("10000")
+    long maxSize();
+
+    /**
+     * Longest a verified token is trusted without being verified again, even when its
+     * {@code exp} is later. Bounds how long a token signed by a since-rotated key keeps working.
+     */
+    @WithDefault("5M")
+    Duration maxTtl();
+}
@@ -0,0 +1,49 @@
+package org.journalsystem.auth;
+
+import io.quarkus.security.identity.AuthenticationRequestContext;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.security.identity.SecurityIdentityAugmentor;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Map;
+
+/**
+ * Caches the identity OIDC just verified and records how long authentication took. Runs
+ * before every other augmentor, so the cache holds the identity exactly as OIDC built it and
+ * the other augmentors still run on every request.
+ */
+@ApplicationScoped
+public class VerifiedTokenAugmentor implements SecurityIdentityAugmentor {
+
+    @Inject
+    VerifiedTokenCache cache;
+
+    @Override
+    public int priority() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public Uni<SecurityIdentity> augment(SecurityIdentity identity, AuthenticationRequestContext context) {
+        return Uni.createFrom().item(identity);
+    }
+
+    @Override
+    public Uni<SecurityIdentity> augment(SecurityIdentity identity,
+                                         AuthenticationRequestContext context,
+                                         Map<String, Object> attributes) {
+        Object started = attributes.get(CachedTokenIdentityProvider.STARTED);
+        if (!(started instanceof Long startNanos) || identity.isAnonymous()) {
+            return Uni.createFrom().item(identity);
+        }
+
+        boolean cached = attributes.containsKey(CachedTokenIdentityProvider.CACHED);
+        if (!cached) {
+            cache.put((String) attributes.get(CachedTokenIdentityProvider.TOKEN_HASH), identity);
+        }
+        cache.record(cached, System.nanoTime() - startNanos);
+        return Uni.createFrom().item(identity);
+    }
+}
@@ -0,0 +1,122 @@
+package org.journalsystem.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Security identities of bearer tokens OIDC has already verified, keyed by the SHA-256 of the
+ * token. An entry lives until the token's {@code exp} or {@code max-ttl}, whichever is sooner,
+ * so a cached token is never accepted after OIDC would have rejected it as expired.
+ *
+ * <p>The time spent authenticating each request is recorded as {@code search.auth}, tagged
+ * with whether the cache answered, next to the other request latency meters.
+ */
+@ApplicationScoped
+public class VerifiedTokenCache {
+
+    /**
+     * Identity attribute OIDC sets to the token's {@code exp}, in epoch seconds.
+     */
+    static final String EXPIRE_TIME = "quarkus.identity.expire-time";
+
+    private final boolean enabled;
+    private final Duration maxTtl;
+    private final LongSupplier epochSeconds;
+    private final Cache<String, SecurityIdentity> identities;
+    private final Timer hits;
+    private final Timer misses;
+
+    @Inject
+    public VerifiedTokenCache(TokenCacheConfig config, MeterRegistry registry) {
+        this(config, registry, Ticker.systemTicker(), () -> System.currentTimeMillis() / 1000);
+    }
+
+    VerifiedTokenCache(TokenCacheConfig config, MeterRegistry registry, Ticker ticker, LongSupplier epochSeconds) {
+        this.enabled = config.enabled();
+        this.maxTtl = config.maxTtl();
+        this.epochSeconds = epochSeconds;
+        this.identities = Caffeine.newBuilder()
+                .maximumSize(config.maxSize())
+                .expireAfter(Expiry.writing((String hash, SecurityIdentity identity) -> ttl(identity)))
+                .ticker(ticker)
+                .build();
+
+        Gauge.builder("search.auth.cache.size", identities, Cache::estimatedSize)
+                .description("Verified bearer tokens currently cached")
+                .register(registry);
+        hits = authTimer(registry, "true");
+        misses = authTimer(registry, "false");
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * The identity verified earlier for this token hash, or null.
+     */
+    public SecurityIdentity get(String hash) {
+        return enabled ? identities.getIfPresent(hash) : null;
+    }
+
+    public void put(String hash, SecurityIdentity identity) {
+        if (enabled && !ttl(identity).isZero()) {
+            identities.put(hash, identity);
+        }
+    }
+
+    public void record(boolean cached, long nanos) {
+        (cached ? hits : misses).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long size() {
+        identities.cleanUp();
+        return identities.estimatedSize();
+    }
+
+    private Duration ttl(SecurityIdentity identity) {
+        Object exp = identity.getAttribute(EXPIRE_TIME);
+        if (!(exp instanceof Number expiresAt)) {
+            // Without an exp there is nothing to bound the entry by, so it is not cached
+            return Duration.ZERO;
+        }
+        long remaining = expiresAt.longValue() - epochSeconds.getAsLong();
+        if (remaining <= 0) {
+            return Duration.ZERO;
+        }
+        Duration untilExpiry = Duration.ofSeconds(remaining);
+        return untilExpiry.compareTo(maxTtl) < 0 ? untilExpiry : maxTtl;
+    }
+
+    private static Timer authTimer(MeterRegistry registry, String cached) {
+        return Timer.builder("search.auth")
+                .description("Time spent authenticating the bearer token of a request")
+                .tag("cached", cached)
+                .register(registry);
+    }
+
+    static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.journalsystem.cache;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@ConfigMapping(prefix = "search.cache")
+public interface CacheConfig {
+
+    /**
+     * {@code local} keeps entries in this process only, {@code redis} shares them between
+     * replicas through a Redis-protocol server with a local near cache in front.
+     */
+    @WithDefault("local")
+    String type();
+
+    @WithDefault("10000")
+    long maxEntries();
+
+    @WithDefault("10M")
+    Duration resourceTtl();
+
+    @WithDefault("2M")
+    Duration queryTtl();
+
+    /**
+     * Keep search responses as serialized JSON next to the cached results, see {@link JsonBodyCache}.
+     */
+    @WithDefault("true")
+    boolean preSerialize();
+
+    /**
+     * Upper bound on the bytes of pre-serialized JSON kept in memory.
+     */
+    @WithDefault("67108864")
+    long preSerializeMaxBytes();
+
+    Redis redis();
+
+    Snapshot snapshot();
+
+    default Duration ttl(CacheRegion<?> region) {
+        return region.kind() == CacheRegion.Kind.RESOURCE ? resourceTtl() : queryTtl();
+    }
+
+    interface Redis {
+
+        @WithDefault("localhost")
+        String host();
+
+        @WithDefault("6379")
+        int port();
+
+        Optional<String> password();
+
+        @WithDefault("search-cache")
+        String keyPrefix();
+
+        @WithDefault("search-cache:invalidations")
+        String invalidationChannel();
+
+        @WithDefault("30S")
+        Duration nearCacheTtl();
+
+        @WithDefault("2S")
+        Duration timeout();
+    }
+
+    interface Snapshot {
+
+        @WithDefault("true")
+        boolean enabled();
+
+        @WithDefault("data/search-cache.snapshot")
+        String path();
+
+        @WithDefault("5M")
+        Duration interval();
+    }
+}
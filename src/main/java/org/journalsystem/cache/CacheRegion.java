@@ -0,0 +1,11 @@
+package org.journalsystem.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+public record CacheRegion<V>(String name, Kind kind, TypeReference<V> type) {
+
+    public enum Kind {
+        RESOURCE,
+        QUERY
+    }
+}
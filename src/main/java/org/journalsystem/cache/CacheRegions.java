@@ -0,0 +1,60 @@
+package org.journalsystem.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.journalsystem.dto.DoctorPatientsResult;
+import org.journalsystem.dto.EncounterSearchResult;
+import org.journalsystem.dto.PatientSearchResult;
+import org.journalsystem.dto.fhir.PatientResource;
+import org.journalsystem.dto.fhir.PractitionerResource;
+
+import java.util.List;
+
+public final class CacheRegions {
+
+    public static final CacheRegion<PatientResource> PATIENTS = new CacheRegion<>(
+            "patient", CacheRegion.Kind.RESOURCE, new TypeReference<>() {});
+
+    public static final CacheRegion<PractitionerResource> PRACTITIONERS = new CacheRegion<>(
+            "practitioner", CacheRegion.Kind.RESOURCE, new TypeReference<>() {});
+
+    public static final CacheRegion<List<PatientSearchResult>> PATIENT_QUERIES = new CacheRegion<>(
+            "patient-query", CacheRegion.Kind.QUERY, new TypeReference<>() {});
+
+    public static final CacheRegion<List<EncounterSearchResult>> ENCOUNTER_QUERIES = new CacheRegion<>(
+            "encounter-query", CacheRegion.Kind.QUERY, new TypeReference<>() {});
+
+    /**
+     * Encounter range buckets that lie entirely in the past. They no longer change, so they
+     * are kept as long as resources rather than queries.
+     */
+    public static final CacheRegion<List<EncounterSearchResult>> ENCOUNTER_HISTORY = new CacheRegion<>(
+            "encounter-history", CacheRegion.Kind.RESOURCE, new TypeReference<>() {});
+
+    /**
+     * Condition search text to the coded tokens learned for it, see TerminologyService.
+     */
+    public static final CacheRegion<String> CONDITION_CODES = new CacheRegion<>(
+            "condition-codes", CacheRegion.Kind.QUERY, new TypeReference<>() {});
+
+    /**
+     * A practitioner's patient panel, by practitioner id.
+     */
+    public static final CacheRegion<DoctorPatientsResult> DOCTOR_PANELS = new CacheRegion<>(
+            "doctor-panel", CacheRegion.Kind.QUERY, new TypeReference<>() {});
+
+    public static final List<CacheRegion<?>> ALL = List.of(
+            PATIENTS, PRACTITIONERS, PATIENT_QUERIES, ENCOUNTER_QUERIES, ENCOUNTER_HISTORY, CONDITION_CODES,
+            DOCTOR_PANELS);
+
+    private CacheRegions() {
+    }
+
+    public static CacheRegion<?> byName(String name) {
+        for (CacheRegion<?> region : ALL) {
+            if (region.name().equals(name)) {
+                return region;
+            }
+        }
+        return null;
+    }
+}
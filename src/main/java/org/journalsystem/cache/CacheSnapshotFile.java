@@ -0,0 +1,232 @@
+package org.journalsystem.cache;
+
+import org.jboss.logging.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memory-mapped cache snapshot. Opening only scans the entry headers to build a key index;
+ * payloads are decoded on first lookup, so a large snapshot is usable as soon as it is mapped.
+ *
+ * <pre>
+ * header: int magic, short formatVersion, long createdAtMillis, int entryCount
+ * entry:  byte regionId, byte codecVersion, int keyLength, byte[] key (UTF-8),
+ *         long expiresAtMillis, int payloadLength, byte[] payload
+ * </pre>
+ */
+final class CacheSnapshotFile {
+
+    private static final Logger LOG = Logger.getLogger(CacheSnapshotFile.class);
+
+    static final int MAGIC = 0x4A535343; // "JSSC"
+    static final short FORMAT_VERSION = 1;
+
+    record Hydrated(Object value, long expiresAtMillis) {}
+
+    private record Slot(byte regionId, byte codecVersion, int offset, int length, long expiresAtMillis) {}
+
+    interface EntryVisitor {
+        void visit(byte regionId, String key, long expiresAtMillis, byte[] payload) throws IOException;
+    }
+
+    private final MappedByteBuffer buffer;
+    private final Map<String, Slot> index;
+    private final long sizeBytes;
+    private final int skipped;
+
+    private CacheSnapshotFile(MappedByteBuffer buffer, Map<String, Slot> index, long sizeBytes, int skipped) {
+        this.buffer = buffer;
+        this.index = index;
+        this.sizeBytes = sizeBytes;
+        this.skipped = skipped;
+    }
+
+    static CacheSnapshotFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (size < 18 || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a cache snapshot: " + path);
+            }
+            short format = buffer.getShort(4);
+            if (format != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format " + format + " in " + path);
+            }
+
+            int count = buffer.getInt(14);
+            if (count < 0) {
+                throw new IOException("Corrupt snapshot header in " + path);
+            }
+            long now = System.currentTimeMillis();
+            Map<String, Slot> index = new ConcurrentHashMap<>(Math.max(16, count * 4 / 3));
+            int skipped = 0;
+
+            ByteBuffer cursor = buffer.duplicate();
+            cursor.position(18);
+            for (int i = 0; i < count; i++) {
+                if (cursor.remaining() < 6) {
+                    throw truncated(path, i);
+                }
+                byte regionId = cursor.get();
+                byte codecVersion = cursor.get();
+                int keyLength = cursor.getInt();
+                if (keyLength < 0 || cursor.remaining() < keyLength + 12L) {
+                    throw truncated(path, i);
+                }
+                byte[] key = new byte[keyLength];
+                cursor.get(key);
+                long expiresAt = cursor.getLong();
+                int length = cursor.getInt();
+                if (length < 0 || cursor.remaining() < length) {
+                    throw truncated(path, i);
+                }
+                int offset = cursor.position();
+                cursor.position(offset + length);
+
+                CacheRegion<?> region = SnapshotCodec.region(regionId);
+                if (region == null || codecVersion != SnapshotCodec.version(regionId) || expiresAt <= now) {
+                    skipped++;
+                    continue;
+                }
+                String qualified = region.name() + ":" + new String(key, StandardCharsets.UTF_8);
+                index.put(qualified, new Slot(regionId, codecVersion, offset, length, expiresAt));
+            }
+
+            return new CacheSnapshotFile(buffer, index, size, skipped);
+        }
+    }
+
+    private static IOException truncated(Path path, int entry) {
+        return new IOException("Truncated or corrupt snapshot " + path + " at entry " + entry);
+    }
+
+    Hydrated take(CacheRegion<?> region, String key) {
+        Slot slot = index.remove(region.name() + ":" + key);
+        if (slot == null || slot.expiresAtMillis() <= System.currentTimeMillis()) {
+            return null;
+        }
+
+        try {
+            return new Hydrated(SnapshotCodec.decode(slot.regionId(), payload(slot)), slot.expiresAtMillis());
+        } catch (IOException | RuntimeException e) {
+            LOG.debugf("Dropping unreadable snapshot entry %s/%s: %s", region.name(), key, e.getMessage());
+            return null;
+        }
+    }
+
+    void remove(CacheRegion<?> region, String key) {
+        index.remove(region.name() + ":" + key);
+    }
+
+    void removeRegion(CacheRegion<?> region) {
+        String prefix = region.name() + ":";
+        index.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    int remaining() {
+        return index.size();
+    }
+
+    int skipped() {
+        return skipped;
+    }
+
+    long sizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Copies entries that were never hydrated, so they survive into the next snapshot.
+     */
+    void forEachRemaining(EntryVisitor visitor) throws IOException {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Slot> entry : index.entrySet()) {
+            Slot slot = entry.getValue();
+            if (slot.expiresAtMillis() <= now) {
+                continue;
+            }
+            String key = entry.getKey().substring(entry.getKey().indexOf(':') + 1);
+            visitor.visit(slot.regionId(), key, slot.expiresAtMillis(), payload(slot));
+        }
+    }
+
+    private byte[] payload(Slot slot) {
+        byte[] payload = new byte[slot.length()];
+        buffer.get(slot.offset(), payload);
+        return payload;
+    }
+
+    /**
+     * Streams a snapshot to {@code path} through a temporary file and an atomic rename, so a
+     * crash mid-write never leaves a truncated snapshot behind. Entries are counted while
+     * writing and the count is patched into the header afterwards.
+     */
+    static final class Writer implements AutoCloseable {
+
+        private final Path target;
+        private final Path temp;
+        private final DataOutputStream out;
+        private int count;
+
+        Writer(Path target) throws IOException {
+            this.target = target;
+            Path parent = target.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            OutputStream file = Files.newOutputStream(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(0);
+        }
+
+        void write(byte regionId, String key, long expiresAtMillis, byte[] payload) throws IOException {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(regionId);
+            out.writeByte(SnapshotCodec.version(regionId));
+            out.writeInt(keyBytes.length);
+            out.write(keyBytes);
+            out.writeLong(expiresAtMillis);
+            out.writeInt(payload.length);
+            out.write(payload);
+            count++;
+        }
+
+        int count() {
+            return count;
+        }
+
+        long commit() throws IOException {
+            out.close();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(4).putInt(0, count), 14);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return Files.size(target);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+}
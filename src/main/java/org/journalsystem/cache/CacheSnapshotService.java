@@ -0,0 +1,144 @@
+package org.journalsystem.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.arc.ClientProxy;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Periodically writes the Patient and Practitioner regions of the in-process cache to a
+ * snapshot file and maps it back in on startup, so a restarted instance answers from cache
+ * immediately instead of sending its first minutes of traffic to FHIR.
+ */
+@ApplicationScoped
+public class CacheSnapshotService {
+
+    private static final Logger LOG = Logger.getLogger(CacheSnapshotService.class);
+
+    private static final List<CacheRegion<?>> SNAPSHOT_REGIONS = List.of(
+            CacheRegions.PATIENTS, CacheRegions.PRACTITIONERS);
+
+    @Inject
+    CacheConfig config;
+
+    @Inject
+    CacheStore cacheStore;
+
+    @Inject
+    MeterRegistry registry;
+
+    private volatile long lastSnapshotBytes;
+    private volatile long timeToWarmMillis = -1;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("search.cache.snapshot.bytes", this, CacheSnapshotService::lastSnapshotBytes)
+                .description("Size of the cache snapshot last written or mapped")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("search.cache.snapshot.time-to-warm", this, CacheSnapshotService::timeToWarmMillis)
+                .description("Time to map the cache snapshot on startup, -1 when starting cold")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        LocalCacheStore store = localStore();
+        if (store == null) {
+            return;
+        }
+
+        Path path = Path.of(config.snapshot().path());
+        if (!Files.exists(path)) {
+            LOG.infof("No cache snapshot at %s, starting cold", path);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            CacheSnapshotFile snapshot = CacheSnapshotFile.open(path);
+            store.attachSnapshot(snapshot);
+            timeToWarmMillis = (System.nanoTime() - start) / 1_000_000;
+            lastSnapshotBytes = snapshot.sizeBytes();
+            LOG.infof("Mapped cache snapshot %s: %d entries usable, %d expired or outdated, %d bytes, warm in %d ms",
+                    path, snapshot.remaining(), snapshot.skipped(), snapshot.sizeBytes(), timeToWarmMillis);
+        } catch (IOException | RuntimeException e) {
+            LOG.warnf("Deleting unreadable cache snapshot %s: %s", path, e.getMessage());
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException deleteFailure) {
+                LOG.warnf("Could not delete cache snapshot %s: %s", path, deleteFailure.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(every = "{search.cache.snapshot.interval}",
+            delayed = "{search.cache.snapshot.interval}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void snapshotPeriodically() {
+        writeSnapshot();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        writeSnapshot();
+    }
+
+    public long lastSnapshotBytes() {
+        return lastSnapshotBytes;
+    }
+
+    public long timeToWarmMillis() {
+        return timeToWarmMillis;
+    }
+
+    void writeSnapshot() {
+        LocalCacheStore store = localStore();
+        if (store == null) {
+            return;
+        }
+
+        Path path = Path.of(config.snapshot().path());
+        long start = System.nanoTime();
+        try (CacheSnapshotFile.Writer writer = new CacheSnapshotFile.Writer(path)) {
+            for (CacheRegion<?> region : SNAPSHOT_REGIONS) {
+                byte regionId = SnapshotCodec.regionId(region);
+                store.forEach(region, (key, value, expiresAt) ->
+                        writer.write(regionId, key, expiresAt, SnapshotCodec.encode(regionId, value)));
+            }
+
+            CacheSnapshotFile previous = store.snapshot();
+            if (previous != null) {
+                previous.forEachRemaining(writer::write);
+            }
+
+            int entries = writer.count();
+            lastSnapshotBytes = writer.commit();
+            LOG.debugf("Wrote cache snapshot %s: %d entries, %d bytes in %d ms",
+                    path, entries, lastSnapshotBytes, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            LOG.warnf("Could not write cache snapshot %s: %s", path, e.getMessage());
+        }
+    }
+
+    private LocalCacheStore localStore() {
+        if (!config.snapshot().enabled()) {
+            return null;
+        }
+        if (ClientProxy.unwrap(cacheStore) instanceof LocalCacheStore local) {
+            return local;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,48 @@
+package org.journalsystem.cache;
+
+import io.smallrye.mutiny.Uni;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Second-level cache SPI used for Patient, Practitioner and query-result lookups.
+ * Implementations must treat their own failures as misses: a broken cache may slow the
+ * service down but never fail a search.
+ */
+public interface CacheStore {
+
+    <V> Uni<V> get(CacheRegion<V> region, String key);
+
+    <V> Uni<Void> put(CacheRegion<V> region, String key, V value);
+
+    Uni<Void> invalidate(CacheRegion<?> region, String key);
+
+    Uni<Void> invalidateAll(CacheRegion<?> region);
+
+    Uni<Void> clear();
+
+    /**
+     * Records that the cached {@code key} in {@code region} depends on {@code bucket}, a FHIR
+     * resource such as {@code Patient/123} or a query family. The postings of a bucket are
+     * kept for the region's TTL from the last one added, so they outlive the results they
+     * point to. Shared stores keep them where every replica can take them.
+     */
+    Uni<Void> addPosting(String bucket, CacheRegion<?> region, String key);
+
+    /**
+     * Removes and returns the keys posted under {@code bucket} in {@code region}.
+     */
+    Uni<List<String>> takePostings(String bucket, CacheRegion<?> region);
+
+    default void close() {
+    }
+
+    default <V> Uni<V> getOrLoad(CacheRegion<V> region, String key, Supplier<Uni<V>> loader) {
+        return get(region, key)
+                .onItem().ifNull().switchTo(() -> loader.get()
+                        .call(value -> value != null
+                                ? put(region, key, value)
+                                : Uni.createFrom().voidItem()));
+    }
+}
@@ -0,0 +1,30 @@
+package org.journalsystem.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import org.jboss.logging.Logger;
+
+@ApplicationScoped
+public class CacheStoreProducer {
+
+    private static final Logger LOG = Logger.getLogger(CacheStoreProducer.class);
+
+    @Produces
+    @ApplicationScoped
+    CacheStore cacheStore(CacheConfig config, Vertx vertx, ObjectMapper mapper) {
+        if ("redis".equalsIgnoreCase(config.type())) {
+            LOG.infof("Using shared Redis cache at %s:%d", config.redis().host(), config.redis().port());
+            return new RedisCacheStore(config, vertx, mapper);
+        }
+
+        LOG.info("Using in-process cache");
+        return new LocalCacheStore(config.maxEntries(), config::ttl);
+    }
+
+    void close(@Disposes CacheStore cacheStore) {
+        cacheStore.close();
+    }
+}
@@ -0,0 +1,91 @@
+package org.journalsystem.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Search results as ready-to-write UTF-8 JSON. Each result record is serialized once into a
+ * fragment, and a list body is its records' fragments joined into a JSON array, kept for as
+ * long as the list itself is reachable.
+ *
+ * <p>Both are keyed by object identity (weak keys). Cached query results come back from the
+ * in-process cache as the same immutable list and record instances, so a cache hit is answered
+ * with the stored bytes without going through Jackson, and once an entry is evicted or
+ * invalidated its bytes can never be served again.
+ */
+@ApplicationScoped
+public class JsonBodyCache {
+
+    private final ObjectMapper mapper;
+    private final boolean enabled;
+    private final Cache<Object, byte[]> fragments;
+    private final Cache<List<?>, byte[]> bodies;
+
+    @Inject
+    public JsonBodyCache(ObjectMapper mapper, CacheConfig config) {
+        this(mapper, config.preSerialize(), config.preSerializeMaxBytes());
+    }
+
+    JsonBodyCache(ObjectMapper mapper, boolean enabled, long maxBytes) {
+        this.mapper = mapper;
+        this.enabled = enabled;
+        // Record fragments are usually also part of a body, so each cache gets half the budget
+        this.fragments = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumWeight(maxBytes / 2)
+                .<Object, byte[]>weigher((result, json) -> json.length)
+                .build();
+        this.bodies = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumWeight(maxBytes / 2)
+                .<List<?>, byte[]>weigher((results, json) -> json.length)
+                .build();
+    }
+
+    /**
+     * The JSON array of the results. Lists must not be modified once written.
+     */
+    public byte[] write(List<?> results) {
+        if (!enabled) {
+            return serialize(results);
+        }
+        return bodies.get(results, this::join);
+    }
+
+    private byte[] join(List<?> results) {
+        byte[][] parts = new byte[results.size()][];
+        int size = 2 + Math.max(0, parts.length - 1);
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = fragments.get(results.get(i), this::serialize);
+            size += parts[i].length;
+        }
+
+        byte[] body = new byte[size];
+        int position = 0;
+        body[position++] = '[';
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                body[position++] = ',';
+            }
+            System.arraycopy(parts[i], 0, body, position, parts[i].length);
+            position += parts[i].length;
+        }
+        body[position] = ']';
+        return body;
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
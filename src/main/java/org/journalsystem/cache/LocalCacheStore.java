@@ -0,0 +1,209 @@
+package org.journalsystem.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.smallrye.mutiny.Uni;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * In-process cache store. Also used as the near cache in front of {@link RedisCacheStore}.
+ */
+public class LocalCacheStore implements CacheStore {
+
+    private record Entry(Object value, long ttlNanos, long expiresAtMillis) {}
+
+    // The keys posted under a bucket, and the TTL of the region they were posted in
+    private record Postings(Set<String> keys, long ttlNanos) {}
+
+    interface EntryVisitor {
+        void visit(String key, Object value, long expiresAtMillis) throws IOException;
+    }
+
+    private final Cache<String, Entry> entries;
+    private final Cache<String, Postings> postings;
+    private final Function<CacheRegion<?>, Duration> ttl;
+    private volatile CacheSnapshotFile snapshot;
+
+    public LocalCacheStore(long maxEntries, Function<CacheRegion<?>, Duration> ttl) {
+        this(maxEntries, ttl, Ticker.systemTicker());
+    }
+
+    LocalCacheStore(long maxEntries, Function<CacheRegion<?>, Duration> ttl, Ticker ticker) {
+        this.ttl = ttl;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .ticker(ticker)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.postings = Caffeine.newBuilder()
+                .maximumSize(maxEntries * 4)
+                .ticker(ticker)
+                .expireAfter(new Expiry<String, Postings>() {
+                    @Override
+                    public long expireAfterCreate(String bucket, Postings value, long currentTime) {
+                        return value.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String bucket, Postings value, long currentTime, long currentDuration) {
+                        return value.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String bucket, Postings value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public <V> Uni<V> get(CacheRegion<V> region, String key) {
+        return Uni.createFrom().item(getNow(region, key));
+    }
+
+    @Override
+    public <V> Uni<Void> put(CacheRegion<V> region, String key, V value) {
+        putNow(region, key, value);
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> invalidate(CacheRegion<?> region, String key) {
+        invalidateNow(region, key);
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> invalidateAll(CacheRegion<?> region) {
+        invalidateAllNow(region);
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> addPosting(String bucket, CacheRegion<?> region, String key) {
+        // Written back on every posting, so the bucket's expiry follows its newest result
+        postings.asMap().compute(qualify(region, bucket), (ignored, existing) -> {
+            Set<String> keys = existing != null ? existing.keys() : ConcurrentHashMap.newKeySet();
+            keys.add(key);
+            return new Postings(keys, ttl.apply(region).toNanos());
+        });
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<List<String>> takePostings(String bucket, CacheRegion<?> region) {
+        Postings taken = postings.asMap().remove(qualify(region, bucket));
+        return Uni.createFrom().item(taken != null ? List.copyOf(taken.keys()) : List.of());
+    }
+
+    @Override
+    public Uni<Void> clear() {
+        entries.invalidateAll();
+        postings.invalidateAll();
+        snapshot = null;
+        return Uni.createFrom().voidItem();
+    }
+
+    /**
+     * Serves misses from {@code snapshot} until its entries are hydrated or expire.
+     */
+    void attachSnapshot(CacheSnapshotFile snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    CacheSnapshotFile snapshot() {
+        return snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    <V> V getNow(CacheRegion<V> region, String key) {
+        Entry entry = entries.getIfPresent(qualify(region, key));
+        if (entry != null) {
+            return (V) entry.value();
+        }
+
+        CacheSnapshotFile warm = snapshot;
+        if (warm == null) {
+            return null;
+        }
+        CacheSnapshotFile.Hydrated hydrated = warm.take(region, key);
+        if (hydrated == null) {
+            return null;
+        }
+
+        long remainingMillis = hydrated.expiresAtMillis() - System.currentTimeMillis();
+        if (remainingMillis <= 0) {
+            return null;
+        }
+        entries.put(qualify(region, key), new Entry(
+                hydrated.value(), Duration.ofMillis(remainingMillis).toNanos(), hydrated.expiresAtMillis()));
+        return (V) hydrated.value();
+    }
+
+    <V> void putNow(CacheRegion<V> region, String key, V value) {
+        Duration regionTtl = ttl.apply(region);
+        entries.put(qualify(region, key), new Entry(
+                value, regionTtl.toNanos(), System.currentTimeMillis() + regionTtl.toMillis()));
+        CacheSnapshotFile warm = snapshot;
+        if (warm != null) {
+            warm.remove(region, key);
+        }
+    }
+
+    void invalidateNow(CacheRegion<?> region, String key) {
+        entries.invalidate(qualify(region, key));
+        CacheSnapshotFile warm = snapshot;
+        if (warm != null) {
+            warm.remove(region, key);
+        }
+    }
+
+    void invalidateAllNow(CacheRegion<?> region) {
+        String prefix = region.name() + ":";
+        entries.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        CacheSnapshotFile warm = snapshot;
+        if (warm != null) {
+            warm.removeRegion(region);
+        }
+    }
+
+    void forEach(CacheRegion<?> region, EntryVisitor visitor) throws IOException {
+        String prefix = region.name() + ":";
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Entry> entry : entries.asMap().entrySet()) {
+            if (entry.getKey().startsWith(prefix) && entry.getValue().expiresAtMillis() > now) {
+                visitor.visit(entry.getKey().substring(prefix.length()),
+                        entry.getValue().value(), entry.getValue().expiresAtMillis());
+            }
+        }
+    }
+
+    private static String qualify(CacheRegion<?> region, String key) {
+        return region.name() + ":" + key;
+    }
+}
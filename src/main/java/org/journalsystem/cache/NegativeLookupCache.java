@@ -0,0 +1,162 @@
+package org.journalsystem.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Lookups FHIR recently answered with nothing: patient ids that were 404 or missing from a
+ * batch read, and practitioner identifiers whose search came back empty. A repeated lookup
+ * is answered locally until the entry expires or a change notification for the resource
+ * removes it.
+ *
+ * <p>A small share of known misses is still looked up ({@code verify-ratio}); the ones FHIR
+ * then finds are counted as {@code search.negative.false-positives}, so the rate at which
+ * entries go stale can be read next to {@code search.negative.saved}, the FHIR calls skipped.
+ * Exact entries are used instead of a Bloom filter so that a notification can remove one
+ * key without clearing the rest.
+ */
+@ApplicationScoped
+public class NegativeLookupCache {
+
+    private final boolean enabled;
+    private final double verifyRatio;
+    private final DoubleSupplier random;
+    private final Cache<String, Boolean> misses;
+    private final Counter saved;
+    private final Counter verified;
+    private final Counter falsePositives;
+
+    @Inject
+    public NegativeLookupCache(NegativeLookupConfig config, MeterRegistry registry) {
+        this(config, registry, Ticker.systemTicker(), () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    NegativeLookupCache(NegativeLookupConfig config, MeterRegistry registry, Ticker ticker, DoubleSupplier random) {
+        this.enabled = config.enabled();
+        this.verifyRatio = config.verifyRatio();
+        this.random = random;
+        this.misses = Caffeine.newBuilder()
+                .maximumSize(config.maxEntries())
+                .expireAfterWrite(config.ttl())
+                .ticker(ticker)
+                .build();
+
+        Gauge.builder("search.negative.size", misses, Cache::estimatedSize)
+                .description("Lookups currently remembered as missing in FHIR")
+                .register(registry);
+        saved = Counter.builder("search.negative.saved")
+                .description("FHIR lookups answered as missing without calling FHIR")
+                .register(registry);
+        verified = Counter.builder("search.negative.verified")
+                .description("Known misses looked up in FHIR anyway to measure the false-positive rate")
+                .register(registry);
+        falsePositives = Counter.builder("search.negative.false-positives")
+                .description("Known misses FHIR found when looked up again")
+                .register(registry);
+        Gauge.builder("search.negative.false-positive-rate", this, NegativeLookupCache::falsePositiveRate)
+                .description("Share of verified known misses FHIR found")
+                .register(registry);
+    }
+
+    public static String patient(String id) {
+        return "Patient/" + id;
+    }
+
+    public static String practitionerIdentifier(String identifier) {
+        return "Practitioner?identifier=" + identifier;
+    }
+
+    /**
+     * True when FHIR recently had nothing for the key and the lookup can be skipped. A sampled
+     * share of known misses returns false so they are verified.
+     */
+    public boolean isMissing(String key) {
+        if (!enabled || misses.getIfPresent(key) == null) {
+            return false;
+        }
+        if (random.getAsDouble() < verifyRatio) {
+            verified.increment();
+            return false;
+        }
+        saved.increment();
+        return true;
+    }
+
+    public void missing(String key) {
+        if (enabled) {
+            misses.put(key, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * FHIR found the key. If it was remembered as missing, the lookup was a verification (or
+     * raced one) and the entry was wrong.
+     */
+    public void found(String key) {
+        if (enabled && misses.asMap().remove(key) != null) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * The patient ids of a batch read that are not known to be missing.
+     */
+    public List<String> unknownPatients(List<String> patientIds) {
+        if (!enabled || misses.estimatedSize() == 0) {
+            return patientIds;
+        }
+        List<String> unknown = new ArrayList<>(patientIds.size());
+        for (String id : patientIds) {
+            if (!isMissing(patient(id))) {
+                unknown.add(id);
+            }
+        }
+        return unknown;
+    }
+
+    /**
+     * Remembers the patients a batch read asked for but did not get back.
+     */
+    public void patientsRead(List<String> requested, Map<String, ?> found) {
+        for (String id : requested) {
+            if (found.containsKey(id)) {
+                found(patient(id));
+            } else {
+                missing(patient(id));
+            }
+        }
+    }
+
+    /**
+     * The resource behind the key changed, so a remembered miss no longer holds.
+     */
+    public void invalidate(String key) {
+        misses.invalidate(key);
+    }
+
+    public void clear() {
+        misses.invalidateAll();
+    }
+
+    public long size() {
+        misses.cleanUp();
+        return misses.estimatedSize();
+    }
+
+    public double falsePositiveRate() {
+        double checks = verified.count();
+        return checks > 0 ? falsePositives.count() / checks : 0;
+    }
+}
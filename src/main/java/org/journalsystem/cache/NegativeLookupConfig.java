@@ -0,0 +1,33 @@
+package org.journalsystem.cache;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "search.negative")
+public interface NegativeLookupConfig {
+
+    /**
+     * When false, every lookup goes to FHIR, including ones that just came back empty.
+     */
+    @WithDefault("true")
+    boolean enabled();
+
+    @WithDefault("50000")
+    long maxEntries();
+
+    /**
+     * How long a miss is trusted. Bounds how long a resource created without a change
+     * notification reaching this replica stays invisible.
+     */
+    @WithDefault("10M")
+    Duration ttl();
+
+    /**
+     * Share of known misses still looked up in FHIR, to measure how often a remembered miss
+     * has since started to exist.
+     */
+    @WithDefault("0.01")
+    double verifyRatio();
+}
@@ -0,0 +1,92 @@
+package org.journalsystem.cache;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.journalsystem.dto.DoctorPatientsResult;
+import org.journalsystem.dto.EncounterSearchResult;
+import org.journalsystem.dto.PatientSearchResult;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index from a FHIR resource (or a query family such as {@code query:name}) to the
+ * cached query results that depend on it, so a change notification can invalidate exactly
+ * those results. The postings live in the {@link CacheStore} next to the results, so with a
+ * shared store the replica that handles a notification also reaches results cached by the
+ * others. A bucket lives for the TTL of its region from the last query registered in it, so
+ * it does not expire before a result it points to; results that expired on their own leave
+ * harmless stale postings until then.
+ */
+@ApplicationScoped
+public class QueryPostings {
+
+    private static final Logger LOG = Logger.getLogger(QueryPostings.class);
+
+    public static final String NAME_QUERIES = "query:name";
+    public static final String CONDITION_QUERIES = "query:condition";
+
+    @Inject
+    CacheStore cacheStore;
+
+    public void register(String bucket, CacheRegion<?> region, String key) {
+        cacheStore.addPosting(bucket, region, key).subscribe().with(
+                ignored -> {},
+                e -> LOG.debugf("Could not post %s/%s under %s: %s", region.name(), key, bucket, e.getMessage()));
+    }
+
+    /**
+     * Registers a cached patient query under its query family (if any) and every patient in it.
+     */
+    public void registerPatientQuery(String key, String bucket, List<PatientSearchResult> results) {
+        if (bucket != null) {
+            register(bucket, CacheRegions.PATIENT_QUERIES, key);
+        }
+        for (PatientSearchResult patient : results) {
+            register("Patient/" + patient.id(), CacheRegions.PATIENT_QUERIES, key);
+        }
+    }
+
+    public void registerEncounterQuery(String key, List<EncounterSearchResult> results) {
+        registerEncounterQuery(CacheRegions.ENCOUNTER_QUERIES, key, results);
+    }
+
+    public void registerEncounterQuery(CacheRegion<?> region, String key, List<EncounterSearchResult> results) {
+        for (EncounterSearchResult encounter : results) {
+            register("Encounter/" + encounter.id(), region, key);
+            register("Patient/" + encounter.patientId(), region, key);
+            register("Practitioner/" + encounter.practitionerId(), region, key);
+        }
+    }
+
+    /**
+     * Registers a cached doctor panel under its practitioner, whose new encounters change it,
+     * and every patient in it.
+     */
+    public void registerDoctorPatients(String key, DoctorPatientsResult panel) {
+        register("Practitioner/" + panel.doctorId(), CacheRegions.DOCTOR_PANELS, key);
+        for (PatientSearchResult patient : panel.patients()) {
+            register("Patient/" + patient.id(), CacheRegions.DOCTOR_PANELS, key);
+        }
+    }
+
+    public Uni<Integer> invalidate(String bucket) {
+        return Multi.createFrom().iterable(CacheRegions.ALL)
+                .onItem().transformToUniAndMerge(region -> cacheStore.takePostings(bucket, region)
+                        .onItem().transformToUni(keys -> invalidate(region, keys)))
+                .collect().with(Collectors.summingInt(Integer::intValue));
+    }
+
+    private Uni<Integer> invalidate(CacheRegion<?> region, List<String> keys) {
+        if (keys.isEmpty()) {
+            return Uni.createFrom().item(0);
+        }
+        return Multi.createFrom().iterable(keys)
+                .onItem().transformToUniAndMerge(key -> cacheStore.invalidate(region, key))
+                .collect().last()
+                .replaceWith(keys.size());
+    }
+}
@@ -0,0 +1,248 @@
+package org.journalsystem.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cache store shared between replicas through a Redis-protocol server. Values are stored as
+ * JSON under {@code <keyPrefix>:<region>:<key>}. Every replica keeps a short-lived near cache
+ * in front of the server; writes and invalidations are broadcast on a pub/sub channel so other
+ * replicas drop their near copies instead of serving them until they expire. Query postings
+ * are sets under {@code <keyPrefix>:postings:<region>:<bucket>}, so a change notification
+ * handled by any replica reaches the results every replica cached.
+ */
+public class RedisCacheStore implements CacheStore {
+
+    private static final Logger LOG = Logger.getLogger(RedisCacheStore.class);
+
+    private static final String ALL_KEYS = "*";
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final CacheConfig config;
+    private final ObjectMapper mapper;
+    private final LocalCacheStore nearCache;
+    private final RespConnection commands;
+    private final RespConnection subscriber;
+    private final long keepAliveTimer;
+    private final Vertx vertx;
+
+    public RedisCacheStore(CacheConfig config, Vertx vertx, ObjectMapper mapper) {
+        this.config = config;
+        this.mapper = mapper;
+        this.vertx = vertx;
+
+        CacheConfig.Redis redis = config.redis();
+        this.nearCache = new LocalCacheStore(config.maxEntries(), region -> {
+            Duration regionTtl = config.ttl(region);
+            return regionTtl.compareTo(redis.nearCacheTtl()) < 0 ? regionTtl : redis.nearCacheTtl();
+        });
+
+        String password = redis.password().orElse(null);
+        this.commands = new RespConnection(vertx, redis.host(), redis.port(), password, redis.timeout());
+        this.subscriber = new RespConnection(vertx, redis.host(), redis.port(), password, redis.timeout());
+        this.subscriber.onPush(this::onInvalidation);
+        this.subscriber.onReconnect(() -> {
+            LOG.info("Redis invalidation subscriber reconnected, dropping near cache");
+            nearCache.clear();
+            subscribe();
+        });
+
+        subscribe();
+        // Keeps the subscriber connection alive and re-opens it after the server restarts
+        this.keepAliveTimer = vertx.setPeriodic(redis.timeout().toMillis() * 5,
+                ignored -> subscriber.send("PING").subscribe().with(r -> {}, e -> {}));
+    }
+
+    @Override
+    public <V> Uni<V> get(CacheRegion<V> region, String key) {
+        V near = nearCache.getNow(region, key);
+        if (near != null) {
+            return Uni.createFrom().item(near);
+        }
+
+        return commands.send("GET", remoteKey(region, key))
+                .onItem().transform(reply -> {
+                    if (!(reply instanceof byte[] json)) {
+                        return null;
+                    }
+                    V value = decode(region, json);
+                    if (value != null) {
+                        nearCache.putNow(region, key, value);
+                    }
+                    return value;
+                })
+                .onFailure().recoverWithItem(e -> {
+                    LOG.debugf("Redis GET failed for %s/%s: %s", region.name(), key, e.getMessage());
+                    return null;
+                });
+    }
+
+    @Override
+    public <V> Uni<Void> put(CacheRegion<V> region, String key, V value) {
+        nearCache.putNow(region, key, value);
+
+        byte[] json;
+        try {
+            json = mapper.writeValueAsBytes(value);
+        } catch (Exception e) {
+            LOG.warnf("Could not serialize %s/%s for Redis: %s", region.name(), key, e.getMessage());
+            return Uni.createFrom().voidItem();
+        }
+
+        return commands.send("SET", remoteKey(region, key), json, "PX", config.ttl(region).toMillis())
+                .call(() -> publish(region, key))
+                .replaceWithVoid()
+                .onFailure().recoverWithItem(e -> {
+                    LOG.debugf("Redis SET failed for %s/%s: %s", region.name(), key, e.getMessage());
+                    return null;
+                });
+    }
+
+    @Override
+    public Uni<Void> invalidate(CacheRegion<?> region, String key) {
+        nearCache.invalidateNow(region, key);
+
+        return commands.send("DEL", remoteKey(region, key))
+                .call(() -> publish(region, key))
+                .replaceWithVoid()
+                .onFailure().recoverWithItem(e -> {
+                    LOG.debugf("Redis DEL failed for %s/%s: %s", region.name(), key, e.getMessage());
+                    return null;
+                });
+    }
+
+    @Override
+    public Uni<Void> invalidateAll(CacheRegion<?> region) {
+        nearCache.invalidateAllNow(region);
+
+        return deleteMatching(config.redis().keyPrefix() + ":" + region.name() + ":*", "0")
+                .call(() -> publish(region, ALL_KEYS))
+                .onFailure().recoverWithItem(e -> {
+                    LOG.debugf("Redis invalidation of %s failed: %s", region.name(), e.getMessage());
+                    return null;
+                });
+    }
+
+    @Override
+    public Uni<Void> addPosting(String bucket, CacheRegion<?> region, String key) {
+        String postings = postingsKey(bucket, region);
+        return commands.send("SADD", postings, key)
+                .chain(() -> commands.send("PEXPIRE", postings, config.ttl(region).toMillis()))
+                .replaceWithVoid()
+                .onFailure().recoverWithItem(e -> {
+                    LOG.debugf("Redis SADD failed for %s/%s: %s", region.name(), bucket, e.getMessage());
+                    return null;
+                });
+    }
+
+    @Override
+    public Uni<List<String>> takePostings(String bucket, CacheRegion<?> region) {
+        // SPOP with a count removes and returns the members in one step, so concurrent takers
+        // never both invalidate, or both miss, a posting added in between
+        return commands.send("SPOP", postingsKey(bucket, region), Integer.MAX_VALUE)
+                .onItem().transform(reply -> reply instanceof List<?> members
+                        ? members.stream().map(Resp::asString).toList()
+                        : List.<String>of())
+                .onFailure().recoverWithItem(e -> {
+                    LOG.debugf("Redis SPOP failed for %s/%s: %s", region.name(), bucket, e.getMessage());
+                    return List.of();
+                });
+    }
+
+    @Override
+    public Uni<Void> clear() {
+        Uni<Void> chain = nearCache.clear();
+        for (CacheRegion<?> region : CacheRegions.ALL) {
+            chain = chain.chain(() -> invalidateAll(region));
+        }
+        return chain;
+    }
+
+    @Override
+    public void close() {
+        vertx.cancelTimer(keepAliveTimer);
+        commands.close();
+        subscriber.close();
+    }
+
+    private void subscribe() {
+        subscriber.send("SUBSCRIBE", config.redis().invalidationChannel())
+                .subscribe().with(
+                        reply -> LOG.debugf("Subscribed to %s", config.redis().invalidationChannel()),
+                        e -> LOG.warnf("Could not subscribe to cache invalidations: %s", e.getMessage()));
+    }
+
+    private Uni<Object> publish(CacheRegion<?> region, String key) {
+        String message = instanceId + " " + region.name() + " " + key;
+        return commands.send("PUBLISH", config.redis().invalidationChannel(), message);
+    }
+
+    private void onInvalidation(List<Object> push) {
+        if (push.size() < 3) {
+            return;
+        }
+
+        String[] parts = Resp.asString(push.get(2)).split(" ", 3);
+        if (parts.length < 3 || instanceId.equals(parts[0])) {
+            return;
+        }
+
+        CacheRegion<?> region = CacheRegions.byName(parts[1]);
+        if (region == null) {
+            return;
+        }
+
+        if (ALL_KEYS.equals(parts[2])) {
+            nearCache.invalidateAllNow(region);
+        } else {
+            nearCache.invalidateNow(region, parts[2]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Uni<Void> deleteMatching(String pattern, String cursor) {
+        return commands.send("SCAN", cursor, "MATCH", pattern, "COUNT", 500)
+                .onItem().transformToUni(reply -> {
+                    List<Object> page = (List<Object>) reply;
+                    String next = Resp.asString(page.get(0));
+                    List<Object> keys = (List<Object>) page.get(1);
+
+                    Uni<Void> deleted = Uni.createFrom().voidItem();
+                    if (!keys.isEmpty()) {
+                        Object[] args = new Object[keys.size() + 1];
+                        args[0] = "DEL";
+                        for (int i = 0; i < keys.size(); i++) {
+                            args[i + 1] = keys.get(i);
+                        }
+                        deleted = commands.send(args).replaceWithVoid();
+                    }
+
+                    return "0".equals(next)
+                            ? deleted
+                            : deleted.chain(() -> deleteMatching(pattern, next));
+                });
+    }
+
+    private <V> V decode(CacheRegion<V> region, byte[] json) {
+        try {
+            return mapper.readValue(json, region.type());
+        } catch (Exception e) {
+            LOG.warnf("Dropping undecodable %s entry: %s", region.name(), e.getMessage());
+            return null;
+        }
+    }
+
+    private String remoteKey(CacheRegion<?> region, String key) {
+        return config.redis().keyPrefix() + ":" + region.name() + ":" + key;
+    }
+
+    private String postingsKey(String bucket, CacheRegion<?> region) {
+        return config.redis().keyPrefix() + ":postings:" + region.name() + ":" + bucket;
+    }
+}
@@ -0,0 +1,134 @@
+package org.journalsystem.cache;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RESP2 codec: enough of the Redis wire protocol for GET/SET/DEL/SCAN and pub/sub.
+ * Bulk strings decode to {@code byte[]}, simple strings to {@code String}, integers to
+ * {@code Long}, arrays to {@code List<Object>} and errors to {@link Error}.
+ */
+final class Resp {
+
+    record Error(String message) {}
+
+    private Resp() {
+    }
+
+    static Buffer encodeCommand(Object... args) {
+        Buffer buffer = Buffer.buffer();
+        buffer.appendString("*" + args.length + "\r\n");
+        for (Object arg : args) {
+            byte[] bytes = arg instanceof byte[] raw
+                    ? raw
+                    : String.valueOf(arg).getBytes(StandardCharsets.UTF_8);
+            buffer.appendString("$" + bytes.length + "\r\n");
+            buffer.appendBytes(bytes);
+            buffer.appendString("\r\n");
+        }
+        return buffer;
+    }
+
+    static String asString(Object value) {
+        if (value instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Incremental decoder. Feed it socket chunks; it calls back once per complete reply.
+     */
+    static final class Decoder {
+
+        interface Handler {
+            void onReply(Object reply);
+        }
+
+        private static final Object INCOMPLETE = new Object();
+
+        private final Handler handler;
+        private Buffer pending = Buffer.buffer();
+        private int position;
+
+        Decoder(Handler handler) {
+            this.handler = handler;
+        }
+
+        void feed(Buffer chunk) {
+            pending.appendBuffer(chunk);
+            while (true) {
+                position = 0;
+                Object reply = read();
+                if (reply == INCOMPLETE) {
+                    return;
+                }
+                pending = pending.getBuffer(position, pending.length());
+                handler.onReply(reply);
+            }
+        }
+
+        private Object read() {
+            if (position >= pending.length()) {
+                return INCOMPLETE;
+            }
+            byte type = pending.getByte(position);
+            String line = readLine(position + 1);
+            if (line == null) {
+                return INCOMPLETE;
+            }
+
+            switch (type) {
+                case '+':
+                    return line;
+                case '-':
+                    return new Error(line);
+                case ':':
+                    return Long.parseLong(line);
+                case '$': {
+                    int length = Integer.parseInt(line);
+                    if (length < 0) {
+                        return null;
+                    }
+                    if (pending.length() < position + length + 2) {
+                        return INCOMPLETE;
+                    }
+                    byte[] bytes = pending.getBytes(position, position + length);
+                    position += length + 2;
+                    return bytes;
+                }
+                case '*': {
+                    int count = Integer.parseInt(line);
+                    if (count < 0) {
+                        return null;
+                    }
+                    List<Object> items = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        Object item = read();
+                        if (item == INCOMPLETE) {
+                            return INCOMPLETE;
+                        }
+                        items.add(item);
+                    }
+                    return items;
+                }
+                default:
+                    throw new IllegalStateException("Unexpected RESP type byte: " + (char) type);
+            }
+        }
+
+        private String readLine(int start) {
+            for (int i = start; i < pending.length() - 1; i++) {
+                if (pending.getByte(i) == '\r' && pending.getByte(i + 1) == '\n') {
+                    String line = pending.getString(start, i, StandardCharsets.UTF_8.name());
+                    position = i + 2;
+                    return line;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.journalsystem.cache;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.net.NetClient;
+import io.vertx.core.net.NetClientOptions;
+import io.vertx.core.net.NetSocket;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * One pipelined connection to a Redis-protocol server. Replies are matched to commands in
+ * FIFO order; pub/sub {@code message} pushes are handed to the push handler instead.
+ * The connection is opened lazily and re-opened on the next command after it drops.
+ */
+final class RespConnection {
+
+    private static final Logger LOG = Logger.getLogger(RespConnection.class);
+
+    private final Vertx vertx;
+    private final NetClient netClient;
+    private final String host;
+    private final int port;
+    private final String password;
+    private final Duration timeout;
+    private final Deque<Promise<Object>> inFlight = new ArrayDeque<>();
+
+    private Consumer<List<Object>> pushHandler;
+    private Runnable reconnectHandler;
+    private Future<NetSocket> socket;
+    private boolean closed;
+
+    RespConnection(Vertx vertx, String host, int port, String password, Duration timeout) {
+        this.vertx = vertx;
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.timeout = timeout;
+        this.netClient = vertx.createNetClient(new NetClientOptions()
+                .setConnectTimeout((int) timeout.toMillis())
+                .setTcpNoDelay(true));
+    }
+
+    void onPush(Consumer<List<Object>> pushHandler) {
+        this.pushHandler = pushHandler;
+    }
+
+    void onReconnect(Runnable reconnectHandler) {
+        this.reconnectHandler = reconnectHandler;
+    }
+
+    Uni<Object> send(Object... args) {
+        return Uni.createFrom().completionStage(() -> connection()
+                        .compose(s -> write(s, args))
+                        .toCompletionStage())
+                .ifNoItem().after(timeout).fail()
+                .onItem().transform(reply -> {
+                    if (reply instanceof Resp.Error error) {
+                        throw new IllegalStateException("Redis error: " + error.message());
+                    }
+                    return reply;
+                });
+    }
+
+    synchronized void close() {
+        closed = true;
+        if (socket != null && socket.succeeded()) {
+            socket.result().close();
+        }
+        netClient.close();
+    }
+
+    private synchronized Future<Object> write(NetSocket s, Object... args) {
+        Promise<Object> reply = Promise.promise();
+        inFlight.add(reply);
+        s.write(Resp.encodeCommand(args));
+        return reply.future();
+    }
+
+    private synchronized Future<NetSocket> connection() {
+        if (closed) {
+            return Future.failedFuture("connection closed");
+        }
+        if (socket != null && !socket.failed()) {
+            return socket;
+        }
+
+        boolean reconnect = socket != null;
+        socket = netClient.connect(port, host).compose(s -> {
+            Resp.Decoder decoder = new Resp.Decoder(this::onReply);
+            s.handler(decoder::feed);
+            s.closeHandler(ignored -> onClosed(s));
+            s.exceptionHandler(e -> LOG.debugf("Redis connection error: %s", e.getMessage()));
+            if (password == null) {
+                return Future.succeededFuture(s);
+            }
+            return write(s, "AUTH", password).map(ignored -> s);
+        });
+        if (reconnect && reconnectHandler != null) {
+            socket.onSuccess(s -> vertx.runOnContext(ignored -> reconnectHandler.run()));
+        }
+        return socket;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onReply(Object reply) {
+        if (reply instanceof List<?> items && !items.isEmpty()
+                && "message".equals(Resp.asString(items.get(0)))) {
+            if (pushHandler != null) {
+                pushHandler.accept((List<Object>) items);
+            }
+            return;
+        }
+
+        Promise<Object> promise;
+        synchronized (this) {
+            promise = inFlight.poll();
+        }
+        if (promise != null) {
+            promise.tryComplete(reply);
+        }
+    }
+
+    private void onClosed(NetSocket closedSocket) {
+        Deque<Promise<Object>> failed;
+        synchronized (this) {
+            failed = new ArrayDeque<>(inFlight);
+            inFlight.clear();
+            if (socket != null && socket.succeeded() && socket.result() == closedSocket) {
+                socket = Future.failedFuture("connection closed");
+            }
+        }
+        failed.forEach(promise -> promise.tryFail("connection closed"));
+    }
+}
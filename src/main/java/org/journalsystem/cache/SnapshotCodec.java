@@ -0,0 +1,129 @@
+package org.journalsystem.cache;
+
+import org.journalsystem.dto.fhir.PatientResource;
+import org.journalsystem.dto.fhir.PractitionerResource;
+import org.journalsystem.dto.fhir.ResourceRef;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary payloads for the resource regions kept in cache snapshots. Each region has
+ * its own codec version so a changed record layout only invalidates that region's entries.
+ */
+final class SnapshotCodec {
+
+    static final byte PATIENT_REGION = 1;
+    static final byte PRACTITIONER_REGION = 2;
+
+    static final byte PATIENT_VERSION = 1;
+    static final byte PRACTITIONER_VERSION = 1;
+
+    private SnapshotCodec() {
+    }
+
+    static byte regionId(CacheRegion<?> region) {
+        if (region == CacheRegions.PATIENTS) {
+            return PATIENT_REGION;
+        }
+        if (region == CacheRegions.PRACTITIONERS) {
+            return PRACTITIONER_REGION;
+        }
+        return 0;
+    }
+
+    static CacheRegion<?> region(byte regionId) {
+        return switch (regionId) {
+            case PATIENT_REGION -> CacheRegions.PATIENTS;
+            case PRACTITIONER_REGION -> CacheRegions.PRACTITIONERS;
+            default -> null;
+        };
+    }
+
+    static byte version(byte regionId) {
+        return switch (regionId) {
+            case PATIENT_REGION -> PATIENT_VERSION;
+            case PRACTITIONER_REGION -> PRACTITIONER_VERSION;
+            default -> -1;
+        };
+    }
+
+    static byte[] encode(byte regionId, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        if (regionId == PATIENT_REGION) {
+            PatientResource patient = (PatientResource) value;
+            writeString(out, patient.id());
+            writeStrings(out, patient.given());
+            writeString(out, patient.family());
+            writeString(out, patient.identifier());
+            writeString(out, patient.birthDate());
+        } else if (regionId == PRACTITIONER_REGION) {
+            PractitionerResource practitioner = (PractitionerResource) value;
+            writeString(out, practitioner.id());
+            writeStrings(out, practitioner.given());
+            writeString(out, practitioner.family());
+            writeString(out, practitioner.identifier());
+        } else {
+            throw new IllegalArgumentException("Region " + regionId + " is not snapshotted");
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static Object decode(byte regionId, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+
+        if (regionId == PATIENT_REGION) {
+            return new PatientResource(
+                    ResourceRef.of("Patient", readString(in)),
+                    readStrings(in),
+                    readString(in),
+                    readString(in),
+                    readString(in));
+        }
+        if (regionId == PRACTITIONER_REGION) {
+            return new PractitionerResource(
+                    ResourceRef.of("Practitioner", readString(in)),
+                    readStrings(in),
+                    readString(in),
+                    readString(in));
+        }
+        throw new IllegalArgumentException("Region " + regionId + " is not snapshotted");
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        int count = Math.min(values.size(), 255);
+        out.writeByte(count);
+        for (int i = 0; i < count; i++) {
+            out.writeUTF(values.get(i));
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readUnsignedByte();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readUTF());
+        }
+        return List.copyOf(values);
+    }
+}
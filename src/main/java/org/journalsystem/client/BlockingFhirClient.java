@@ -0,0 +1,182 @@
+package org.journalsystem.client;
+
+import io.quarkus.rest.client.reactive.ClientQueryParam;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import org.journalsystem.dto.fhir.FhirBundle;
+
+import java.util.List;
+
+/**
+ * Blocking variant of {@link FhirClient} for the blocking execution mode. Shares the
+ * {@code fhir-api} configuration; must not be called from an event-loop thread.
+ */
+@RegisterRestClient(configKey = "fhir-api")
+@ApplicationScoped
+@Produces(MediaType.APPLICATION_JSON)
+public interface BlockingFhirClient {
+
+    @GET
+    @Path("/Patient")
+    FhirBundle searchPatients(@QueryParam("name") String name);
+
+    @GET
+    @Path("/Patient")
+    FhirBundle searchPatients(
+            @QueryParam("name") String name,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset,
+            @QueryParam("_sort") String sort
+    );
+
+    @GET
+    @Path("/Patient/{id}")
+    FhirBundle.FhirResource getPatient(@PathParam("id") String id);
+
+    @GET
+    @Path("/Condition")
+    FhirBundle searchConditions(@QueryParam("code:text") String conditionText);
+
+    /**
+     * Token search; {@code codes} is one or more comma-separated {@code system|code} tokens,
+     * matched exactly, and {@code codesBelow} the same matched with their descendants. Null
+     * criteria are left out of the query.
+     */
+    @GET
+    @Path("/Condition")
+    FhirBundle searchConditionsByCode(
+            @QueryParam("code") String codes,
+            @QueryParam("code:below") String codesBelow
+    );
+
+    /**
+     * Conditions together with their patients, which come back as extra {@code Patient}
+     * entries in the same bundle. Null criteria are left out of the query.
+     */
+    @GET
+    @Path("/Condition")
+    @ClientQueryParam(name = "_include", value = "Condition:subject")
+    FhirBundle searchConditionsWithSubjects(
+            @QueryParam("code:text") String conditionText,
+            @QueryParam("code") String codes,
+            @QueryParam("code:below") String codesBelow,
+            @QueryParam("subject") String subject,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset,
+            @QueryParam("_sort") String sort
+    );
+
+    /**
+     * Several patients in one call; {@code ids} is a comma-separated list.
+     */
+    @GET
+    @Path("/Patient")
+    FhirBundle getPatients(@QueryParam("_id") String ids, @QueryParam("_count") Integer count);
+
+    @GET
+    @Path("/Practitioner")
+    FhirBundle searchPractitionerByIdentifier(@QueryParam("identifier") String identifier);
+
+    @GET
+    @Path("/Practitioner/{id}")
+    FhirBundle.FhirResource getPractitioner(@PathParam("id") String id);
+
+    @GET
+    @Path("/Encounter")
+    FhirBundle searchEncountersByPractitioner(@QueryParam("participant") String practitionerId);
+
+    @GET
+    @Path("/Encounter")
+    FhirBundle searchEncountersByPractitionerAndDate(
+            @QueryParam("practitioner") String practitionerId,
+            @QueryParam("date") String date
+    );
+
+    @GET
+    @Path("/Encounter")
+    FhirBundle searchEncountersByPractitionerOnly(@QueryParam("practitioner") String practitionerId);
+
+    @GET
+    @Path("/Encounter")
+    FhirBundle searchEncountersByPractitioner(
+            @QueryParam("practitioner") String practitionerId,
+            @QueryParam("date") String date,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset,
+            @QueryParam("_sort") String sort
+    );
+
+    /**
+     * {@code dates} are FHIR date parameters such as {@code ge2024-01-01} and {@code lt2024-01-08},
+     * sent as repeated {@code date} parameters that must all hold.
+     */
+    @GET
+    @Path("/Encounter")
+    FhirBundle searchEncountersByPractitionerInRange(
+            @QueryParam("practitioner") String practitionerId,
+            @QueryParam("date") List<String> dates,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_sort") String sort
+    );
+
+    /**
+     * A practitioner's encounters together with their patients and the practitioner, which
+     * come back as extra entries in the same bundle.
+     */
+    @GET
+    @Path("/Encounter")
+    @ClientQueryParam(name = "_include", value = {"Encounter:subject", "Encounter:participant"})
+    FhirBundle searchEncountersWithParticipants(
+            @QueryParam("participant") String practitionerReference,
+            @QueryParam("_count") Integer count
+    );
+
+    // Count and projection queries: Bundle.total only, or entries reduced to their subject and
+    // read in pages ordered by id
+
+    @GET
+    @Path("/Patient")
+    @ClientQueryParam(name = "_summary", value = "count")
+    FhirBundle countPatients(@QueryParam("name") String name);
+
+    @GET
+    @Path("/Encounter")
+    @ClientQueryParam(name = "_summary", value = "count")
+    FhirBundle countEncountersByPractitioner(
+            @QueryParam("practitioner") String practitionerId,
+            @QueryParam("date") String date
+    );
+
+    @GET
+    @Path("/Condition")
+    @ClientQueryParam(name = "_elements", value = "subject")
+    @ClientQueryParam(name = "_sort", value = "_id")
+    FhirBundle searchConditionSubjects(
+            @QueryParam("code:text") String conditionText,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset
+    );
+
+    @GET
+    @Path("/Condition")
+    @ClientQueryParam(name = "_elements", value = "subject")
+    @ClientQueryParam(name = "_sort", value = "_id")
+    FhirBundle searchConditionSubjectsByCode(
+            @QueryParam("code") String codes,
+            @QueryParam("code:below") String codesBelow,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset
+    );
+
+    @GET
+    @Path("/Encounter")
+    @ClientQueryParam(name = "_elements", value = "subject")
+    @ClientQueryParam(name = "_sort", value = "_id")
+    FhirBundle searchEncounterSubjectsByPractitioner(
+            @QueryParam("participant") String practitionerId,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset
+    );
+}
@@ -1,21 +1,38 @@
 package org.journalsystem.client;
 
+import io.quarkus.rest.client.reactive.ClientQueryParam;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import org.journalsystem.dto.fhir.FhirBundle;
 
+import java.util.List;
+
 @RegisterRestClient(configKey = "fhir-api")
 @ApplicationScoped
 @Produces(MediaType.APPLICATION_JSON)
 public interface FhirClient {
 
+    @GET
+    @Path("/metadata")
+    Uni<Response> capabilities(@QueryParam("_summary") String summary);
+
     @GET
     @Path("/Patient")
     Uni<FhirBundle> searchPatients(@QueryParam("name") String name);
 
+    @GET
+    @Path("/Patient")
+    Uni<FhirBundle> searchPatients(
+            @QueryParam("name") String name,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset,
+            @QueryParam("_sort") String sort
+    );
+
     @GET
     @Path("/Patient/{id}")
     Uni<FhirBundle.FhirResource> getPatient(@PathParam("id") String id);
@@ -24,6 +41,71 @@ public interface FhirClient {
     @Path("/Condition")
     Uni<FhirBundle> searchConditions(@QueryParam("code:text") String conditionText);
 
+    /**
+     * Token search; {@code codes} is one or more comma-separated {@code system|code} tokens,
+     * matched exactly, and {@code codesBelow} the same matched with their descendants. Null
+     * criteria are left out of the query.
+     */
+    @GET
+    @Path("/Condition")
+    Uni<FhirBundle> searchConditionsByCode(
+            @QueryParam("code") String codes,
+            @QueryParam("code:below") String codesBelow
+    );
+
+    /**
+     * Conditions together with their patients, which come back as extra {@code Patient}
+     * entries in the same bundle. Null criteria are left out of the query.
+     */
+    @GET
+    @Path("/Condition")
+    @ClientQueryParam(name = "_include", value = "Condition:subject")
+    Uni<FhirBundle> searchConditionsWithSubjects(
+            @QueryParam("code:text") String conditionText,
+            @QueryParam("code") String codes,
+            @QueryParam("code:below") String codesBelow,
+            @QueryParam("subject") String subject,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset,
+            @QueryParam("_sort") String sort
+    );
+
+    /**
+     * One page of {@link #searchConditionsWithSubjects}: {@code count} matches from
+     * {@code offset}, in {@code _id} order so consecutive pages neither skip nor repeat one.
+     */
+    @GET
+    @Path("/Condition")
+    @ClientQueryParam(name = "_include", value = "Condition:subject")
+    @ClientQueryParam(name = "_sort", value = "_id")
+    Uni<FhirBundle> searchConditionsPage(
+            @QueryParam("code:text") String conditionText,
+            @QueryParam("code") String codes,
+            @QueryParam("code:below") String codesBelow,
+            @QueryParam("subject") String subject,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset
+    );
+
+    /**
+     * One page of a patient name search, in {@code _id} order.
+     */
+    @GET
+    @Path("/Patient")
+    @ClientQueryParam(name = "_sort", value = "_id")
+    Uni<FhirBundle> searchPatientsPage(
+            @QueryParam("name") String name,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset
+    );
+
+    /**
+     * Several patients in one call; {@code ids} is a comma-separated list.
+     */
+    @GET
+    @Path("/Patient")
+    Uni<FhirBundle> getPatients(@QueryParam("_id") String ids, @QueryParam("_count") Integer count);
+
     @GET
     @Path("/Practitioner")
     Uni<FhirBundle> searchPractitioners(@QueryParam("name") String name);
@@ -50,4 +132,86 @@ public interface FhirClient {
     @GET
     @Path("/Encounter")
     Uni<FhirBundle> searchEncountersByPractitionerOnly(@QueryParam("practitioner") String practitionerId);
-}
\ No newline at end of file
+
+    @GET
+    @Path("/Encounter")
+    Uni<FhirBundle> searchEncountersByPractitioner(
+            @QueryParam("practitioner") String practitionerId,
+            @QueryParam("date") String date,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset,
+            @QueryParam("_sort") String sort
+    );
+
+    /**
+     * {@code dates} are FHIR date parameters such as {@code ge2024-01-01} and {@code lt2024-01-08},
+     * sent as repeated {@code date} parameters that must all hold.
+     */
+    @GET
+    @Path("/Encounter")
+    Uni<FhirBundle> searchEncountersByPractitionerInRange(
+            @QueryParam("practitioner") String practitionerId,
+            @QueryParam("date") List<String> dates,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_sort") String sort
+    );
+
+    /**
+     * A practitioner's encounters together with their patients and the practitioner, which
+     * come back as extra entries in the same bundle.
+     */
+    @GET
+    @Path("/Encounter")
+    @ClientQueryParam(name = "_include", value = {"Encounter:subject", "Encounter:participant"})
+    Uni<FhirBundle> searchEncountersWithParticipants(
+            @QueryParam("participant") String practitionerReference,
+            @QueryParam("_count") Integer count
+    );
+
+    // Count and projection queries: Bundle.total only, or entries reduced to their subject and
+    // read in pages ordered by id
+
+    @GET
+    @Path("/Patient")
+    @ClientQueryParam(name = "_summary", value = "count")
+    Uni<FhirBundle> countPatients(@QueryParam("name") String name);
+
+    @GET
+    @Path("/Encounter")
+    @ClientQueryParam(name = "_summary", value = "count")
+    Uni<FhirBundle> countEncountersByPractitioner(
+            @QueryParam("practitioner") String practitionerId,
+            @QueryParam("date") String date
+    );
+
+    @GET
+    @Path("/Condition")
+    @ClientQueryParam(name = "_elements", value = "subject")
+    @ClientQueryParam(name = "_sort", value = "_id")
+    Uni<FhirBundle> searchConditionSubjects(
+            @QueryParam("code:text") String conditionText,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset
+    );
+
+    @GET
+    @Path("/Condition")
+    @ClientQueryParam(name = "_elements", value = "subject")
+    @ClientQueryParam(name = "_sort", value = "_id")
+    Uni<FhirBundle> searchConditionSubjectsByCode(
+            @QueryParam("code") String codes,
+            @QueryParam("code:below") String codesBelow,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset
+    );
+
+    @GET
+    @Path("/Encounter")
+    @ClientQueryParam(name = "_elements", value = "subject")
+    @ClientQueryParam(name = "_sort", value = "_id")
+    Uni<FhirBundle> searchEncounterSubjectsByPractitioner(
+            @QueryParam("participant") String practitionerId,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset
+    );
+}
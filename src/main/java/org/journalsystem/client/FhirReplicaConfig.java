@@ -0,0 +1,37 @@
+package org.journalsystem.client;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+@ConfigMapping(prefix = "search.fhir")
+public interface FhirReplicaConfig {
+
+    /**
+     * Base URLs of equivalent FHIR read endpoints. When unset, every call goes to
+     * {@code quarkus.rest-client.fhir-api.url}.
+     */
+    Optional<List<String>> replicas();
+
+    /**
+     * Consecutive timeouts, connection errors or 5xx answers after which a replica stops
+     * receiving traffic until a probe succeeds.
+     */
+    @WithDefault("3")
+    int ejectAfter();
+
+    /**
+     * How often ejected replicas are probed with {@code GET /metadata}; also the probe timeout.
+     */
+    @WithDefault("10S")
+    Duration probeInterval();
+
+    /**
+     * Largest {@code _count} the FHIR server honours; larger pages are read in several requests.
+     */
+    @WithDefault("200")
+    int maxPageSize();
+}
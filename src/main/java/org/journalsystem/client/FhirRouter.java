@@ -0,0 +1,300 @@
+package org.journalsystem.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.rest.client.reactive.QuarkusRestClientBuilder;
+import io.quarkus.restclient.config.RestClientsConfig;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.tls.TlsConfigurationRegistry;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+import org.journalsystem.limit.UpstreamLimiter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Spreads FHIR reads over the equivalent endpoints in {@code search.fhir.replicas}. Each call
+ * goes to the better of two randomly picked healthy replicas, scored by average latency times
+ * outstanding calls, so a slow or busy replica gets less traffic without one fast replica
+ * taking all of it. A replica that fails {@code eject-after} times in a row is ejected and
+ * only re-admitted once a {@code GET /metadata} probe succeeds.
+ *
+ * <p>Without configured replicas all calls go to the {@code fhir-api} REST client and nothing
+ * is ever ejected.
+ */
+@ApplicationScoped
+public class FhirRouter {
+
+    private static final Logger LOG = Logger.getLogger(FhirRouter.class);
+
+    static final String DEFAULT_REPLICA = "fhir-api";
+
+    private final FhirReplicaConfig config;
+    private final LongSupplier nanoClock;
+    private final List<Replica> replicas;
+
+    @Inject
+    public FhirRouter(FhirReplicaConfig config,
+                      @RestClient FhirClient client,
+                      @RestClient BlockingFhirClient blockingClient,
+                      RestClientsConfig restClients,
+                      TlsConfigurationRegistry tls,
+                      MeterRegistry registry) {
+        this(config, replicas(config, client, blockingClient, new ReplicaClientSettings(restClients, tls)),
+                registry, System::nanoTime);
+    }
+
+    FhirRouter(FhirReplicaConfig config, List<Replica> replicas, MeterRegistry registry, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.replicas = List.copyOf(replicas);
+
+        for (Replica replica : this.replicas) {
+            Gauge.builder("search.fhir.replica.outstanding", replica, r -> outstanding(r.name))
+                    .description("FHIR calls in flight on this replica")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            Gauge.builder("search.fhir.replica.latency", replica, r -> latencyNanos(r.name) / 1_000_000.0)
+                    .description("Average FHIR call time on this replica")
+                    .tag("replica", replica.name)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("search.fhir.replica.healthy", replica, r -> isHealthy(r.name) ? 1 : 0)
+                    .description("1 while the replica receives traffic, 0 while it is ejected")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            replica.requests = Counter.builder("search.fhir.replica.requests")
+                    .description("FHIR calls sent to this replica")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            replica.failures = Counter.builder("search.fhir.replica.failures")
+                    .description("FHIR calls on this replica that timed out or failed with a server error")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            replica.ejections = Counter.builder("search.fhir.replica.ejections")
+                    .description("Times this replica was taken out of rotation")
+                    .tag("replica", replica.name)
+                    .register(registry);
+        }
+    }
+
+    private static List<Replica> replicas(FhirReplicaConfig config,
+                                          FhirClient client,
+                                          BlockingFhirClient blockingClient,
+                                          ReplicaClientSettings settings) {
+        List<String> urls = config.replicas().orElse(List.of());
+        if (urls.isEmpty()) {
+            return List.of(new Replica(DEFAULT_REPLICA, client, blockingClient));
+        }
+
+        List<Replica> replicas = new ArrayList<>();
+        for (String url : urls) {
+            URI baseUri = URI.create(url);
+            replicas.add(new Replica(url,
+                    settings.apply(QuarkusRestClientBuilder.newBuilder().baseUri(baseUri)).build(FhirClient.class),
+                    settings.apply(QuarkusRestClientBuilder.newBuilder().baseUri(baseUri)).build(BlockingFhirClient.class)));
+        }
+        LOG.infof("Routing FHIR reads over %d replicas: %s", replicas.size(), urls);
+        return replicas;
+    }
+
+    /**
+     * Sends the request to the replica chosen when the returned Uni is subscribed.
+     */
+    public <T> Uni<T> call(Function<FhirClient, Uni<T>> request) {
+        return Uni.createFrom().deferred(() -> {
+            Replica replica = start();
+            long startNanos = nanoClock.getAsLong();
+            return Uni.createFrom().deferred(() -> request.apply(replica.client))
+                    .onTermination().invoke((item, failure, cancelled) ->
+                            finish(replica, startNanos, failure, cancelled));
+        });
+    }
+
+    /**
+     * Blocking counterpart of {@link #call(Function)}; runs the request on the calling thread.
+     */
+    public <T> T callBlocking(Function<BlockingFhirClient, T> request) {
+        Replica replica = start();
+        long startNanos = nanoClock.getAsLong();
+        try {
+            T result = request.apply(replica.blockingClient);
+            finish(replica, startNanos, null, false);
+            return result;
+        } catch (RuntimeException e) {
+            finish(replica, startNanos, e, false);
+            throw e;
+        }
+    }
+
+    @Scheduled(every = "{search.fhir.probe-interval}",
+            delayed = "{search.fhir.probe-interval}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void probeEjected() {
+        for (Replica replica : ejected()) {
+            replica.client.capabilities("true")
+                    .ifNoItem().after(config.probeInterval()).fail()
+                    .subscribe().with(
+                            response -> readmit(replica),
+                            failure -> LOG.debugf("FHIR replica %s still unhealthy: %s", replica.name, failure.toString()));
+        }
+    }
+
+    /**
+     * Sends {@code perReplica} concurrent {@code GET /metadata} requests to every replica, so
+     * each REST client has that many connections open before the first search needs them.
+     * Returns how many requests succeeded.
+     */
+    public Uni<Integer> openConnections(int perReplica) {
+        List<Uni<Boolean>> probes = new ArrayList<>();
+        for (Replica replica : replicas) {
+            for (int i = 0; i < perReplica; i++) {
+                probes.add(Uni.createFrom().deferred(() -> replica.client.capabilities("true"))
+                        .onItem().transform(response -> true)
+                        .onFailure().recoverWithItem(e -> {
+                            LOG.debugf("Could not open connection to FHIR replica %s: %s", replica.name, e.toString());
+                            return false;
+                        }));
+            }
+        }
+        if (probes.isEmpty()) {
+            return Uni.createFrom().item(0);
+        }
+        return Uni.join().all(probes).andCollectFailures()
+                .onItem().transform(opened -> (int) opened.stream().filter(Boolean::booleanValue).count());
+    }
+
+    public List<String> replicaNames() {
+        return replicas.stream().map(replica -> replica.name).toList();
+    }
+
+    public synchronized boolean isHealthy(String name) {
+        return !replica(name).ejected;
+    }
+
+    public synchronized int outstanding(String name) {
+        return replica(name).outstanding;
+    }
+
+    public synchronized long latencyNanos(String name) {
+        return (long) replica(name).latencyNanos;
+    }
+
+    private synchronized Replica start() {
+        Replica chosen = choose();
+        chosen.outstanding++;
+        chosen.requests.increment();
+        return chosen;
+    }
+
+    /**
+     * Power of two choices over the healthy replicas. When every replica is ejected they are
+     * all candidates again: a possibly failing call beats failing every search outright.
+     */
+    private Replica choose() {
+        if (replicas.size() == 1) {
+            return replicas.get(0);
+        }
+
+        List<Replica> candidates = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (!replica.ejected) {
+                candidates.add(replica);
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = replicas;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Replica a = candidates.get(first);
+        Replica b = candidates.get(second);
+        return score(a) <= score(b) ? a : b;
+    }
+
+    private static double score(Replica replica) {
+        return Math.max(replica.latencyNanos, 1) * (replica.outstanding + 1);
+    }
+
+    private synchronized void finish(Replica replica, long startNanos, Throwable failure, boolean cancelled) {
+        replica.outstanding--;
+        if (cancelled) {
+            return;
+        }
+
+        if (UpstreamLimiter.isDrop(failure)) {
+            replica.failures.increment();
+            replica.consecutiveFailures++;
+            if (!replica.ejected && replicas.size() > 1 && replica.consecutiveFailures >= config.ejectAfter()) {
+                replica.ejected = true;
+                replica.ejections.increment();
+                LOG.warnf("Ejecting FHIR replica %s after %d consecutive failures (last: %s)",
+                        replica.name, replica.consecutiveFailures, failure.toString());
+            }
+            return;
+        }
+
+        replica.consecutiveFailures = 0;
+        long elapsed = nanoClock.getAsLong() - startNanos;
+        replica.latencyNanos = replica.latencyNanos == 0
+                ? elapsed
+                : replica.latencyNanos * 0.8 + elapsed * 0.2;
+    }
+
+    private synchronized List<Replica> ejected() {
+        return replicas.stream().filter(replica -> replica.ejected).toList();
+    }
+
+    private synchronized void readmit(Replica replica) {
+        if (replica.ejected) {
+            replica.ejected = false;
+            replica.consecutiveFailures = 0;
+            LOG.infof("FHIR replica %s answered its probe, back in rotation", replica.name);
+        }
+    }
+
+    private Replica replica(String name) {
+        for (Replica replica : replicas) {
+            if (replica.name.equals(name)) {
+                return replica;
+            }
+        }
+        throw new IllegalArgumentException("Unknown FHIR replica " + name);
+    }
+
+    static final class Replica {
+        final String name;
+        final FhirClient client;
+        final BlockingFhirClient blockingClient;
+        Counter requests;
+        Counter failures;
+        Counter ejections;
+        int outstanding;
+        int consecutiveFailures;
+        double latencyNanos;
+        boolean ejected;
+
+        Replica(String name, FhirClient client, BlockingFhirClient blockingClient) {
+            this.name = name;
+            this.client = client;
+            this.blockingClient = blockingClient;
+        }
+    }
+}
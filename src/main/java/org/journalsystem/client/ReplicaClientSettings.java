@@ -0,0 +1,76 @@
+package org.journalsystem.client;
+
+import io.quarkus.rest.client.reactive.QuarkusRestClientBuilder;
+import io.quarkus.restclient.config.RestClientsConfig;
+import io.quarkus.tls.TlsConfiguration;
+import io.quarkus.tls.TlsConfigurationRegistry;
+import jakarta.ws.rs.client.ClientRequestFilter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the {@code quarkus.rest-client.fhir-api.*} settings, falling back to the ones under
+ * {@code quarkus.rest-client.*}, to clients built for a replica or federation source URL.
+ * Quarkus only applies them to the injected {@code fhir-api} clients; a bare builder would run
+ * with default timeouts, no TLS configuration, no configured headers and no configured providers.
+ */
+public final class ReplicaClientSettings {
+
+    private final RestClientsConfig clients;
+    private final RestClientsConfig.RestClientConfig client;
+    private final TlsConfigurationRegistry tls;
+
+    public ReplicaClientSettings(RestClientsConfig clients, TlsConfigurationRegistry tls) {
+        this.clients = clients;
+        this.client = clients.getClient(FhirClient.class);
+        this.tls = tls;
+    }
+
+    public QuarkusRestClientBuilder apply(QuarkusRestClientBuilder builder) {
+        builder.connectTimeout(client.connectTimeout().orElse(clients.connectTimeout()), TimeUnit.MILLISECONDS);
+        builder.readTimeout(client.readTimeout().orElse(clients.readTimeout()), TimeUnit.MILLISECONDS);
+        client.followRedirects().or(clients::followRedirects).ifPresent(builder::followRedirects);
+        client.verifyHost().or(clients::verifyHost).ifPresent(builder::verifyHost);
+        client.userAgent().or(clients::userAgent).ifPresent(builder::userAgent);
+        tlsConfiguration().ifPresent(builder::tlsConfiguration);
+
+        Map<String, String> headers = new LinkedHashMap<>(clients.headers());
+        headers.putAll(client.headers());
+        if (!headers.isEmpty()) {
+            builder.register((ClientRequestFilter) request -> headers.forEach((name, value) -> {
+                if (!request.getHeaders().containsKey(name)) {
+                    request.getHeaders().putSingle(name, value);
+                }
+            }));
+        }
+
+        client.providers().or(clients::providers).ifPresent(providers -> {
+            for (String provider : providers.split(",")) {
+                if (!provider.isBlank()) {
+                    builder.register(providerClass(provider.trim()));
+                }
+            }
+        });
+        return builder;
+    }
+
+    private Optional<TlsConfiguration> tlsConfiguration() {
+        Optional<String> name = client.tlsConfigurationName().or(clients::tlsConfigurationName);
+        if (name.isPresent()) {
+            return Optional.of(tls.get(name.get()).orElseThrow(() ->
+                    new IllegalStateException("Unknown TLS configuration '" + name.get() + "' for the FHIR replicas")));
+        }
+        return tls.getDefault();
+    }
+
+    private static Class<?> providerClass(String name) {
+        try {
+            return Class.forName(name, true, Thread.currentThread().getContextClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Unknown REST client provider " + name + " for the FHIR replicas", e);
+        }
+    }
+}
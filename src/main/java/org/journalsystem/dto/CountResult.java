@@ -0,0 +1,6 @@
+package org.journalsystem.dto;
+
+/**
+ * Answer to a {@code summary=count} search: how many results the full search would return.
+ */
+public record CountResult(int count) {}
@@ -0,0 +1,13 @@
+package org.journalsystem.dto;
+
+/**
+ * Patient found by a federated search, tagged with the FHIR source it came from.
+ */
+public record FederatedPatientResult(
+        String source,
+        String id,
+        String firstName,
+        String lastName,
+        String socialSecurityNumber,
+        String dateOfBirth
+) {}
@@ -0,0 +1,8 @@
+package org.journalsystem.dto.fhir;
+
+public record ConditionResource(
+        String id,
+        ResourceRef subject,
+        String description,
+        String recordedDate
+) {}
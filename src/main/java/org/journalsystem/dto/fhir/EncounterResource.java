@@ -0,0 +1,9 @@
+package org.journalsystem.dto.fhir;
+
+public record EncounterResource(
+        String id,
+        ResourceRef subject,
+        ResourceRef practitioner,
+        String start,
+        String end
+) {}
@@ -12,7 +12,15 @@ public class FhirBundle {
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class BundleEntry {
+        public String fullUrl;
         public FhirResource resource;
+        public Request request;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Request {
+        public String method;
+        public String url;
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -0,0 +1,26 @@
+package org.journalsystem.dto.fhir;
+
+import java.util.List;
+
+final class HumanNames {
+
+    private HumanNames() {
+    }
+
+    static String fullName(List<String> given, String family) {
+        StringBuilder fullName = new StringBuilder();
+
+        if (given != null && !given.isEmpty()) {
+            fullName.append(String.join(" ", given));
+        }
+
+        if (family != null && !family.isEmpty()) {
+            if (fullName.length() > 0) {
+                fullName.append(" ");
+            }
+            fullName.append(family);
+        }
+
+        return fullName.toString();
+    }
+}
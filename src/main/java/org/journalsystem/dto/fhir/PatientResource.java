@@ -0,0 +1,23 @@
+package org.journalsystem.dto.fhir;
+
+import java.util.List;
+
+public record PatientResource(
+        ResourceRef ref,
+        List<String> given,
+        String family,
+        String identifier,
+        String birthDate
+) {
+    public String id() {
+        return ref.id();
+    }
+
+    public String firstName() {
+        return given.isEmpty() ? "" : given.get(0);
+    }
+
+    public String fullName() {
+        return HumanNames.fullName(given, family);
+    }
+}
@@ -0,0 +1,18 @@
+package org.journalsystem.dto.fhir;
+
+import java.util.List;
+
+public record PractitionerResource(
+        ResourceRef ref,
+        List<String> given,
+        String family,
+        String identifier
+) {
+    public String id() {
+        return ref.id();
+    }
+
+    public String fullName() {
+        return HumanNames.fullName(given, family);
+    }
+}
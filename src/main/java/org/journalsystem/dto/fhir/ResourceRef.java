@@ -0,0 +1,74 @@
+package org.journalsystem.dto.fhir;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Parsed FHIR reference such as {@code Patient/123}. Instances are interned so that the
+ * same subject referenced from many entries (and from the cache) shares one object. The
+ * interner is bounded and evicts the least used references one at a time, so a full interner
+ * never drops every canonical instance at once.
+ */
+public record ResourceRef(String type, String id) {
+
+    private static final int MAX_INTERNED = 50_000;
+    private static final Cache<String, ResourceRef> INTERNED = Caffeine.newBuilder()
+            .maximumSize(MAX_INTERNED)
+            .build();
+
+    @JsonCreator
+    public static ResourceRef parse(String reference) {
+        if (reference == null || reference.isEmpty()) {
+            return null;
+        }
+
+        ResourceRef existing = INTERNED.getIfPresent(reference);
+        if (existing != null) {
+            return existing;
+        }
+
+        String path = reference;
+        int historyIndex = path.indexOf("/_history/");
+        if (historyIndex > 0) {
+            path = path.substring(0, historyIndex);
+        }
+
+        String type = null;
+        String id = path;
+        int slash = path.lastIndexOf('/');
+        if (slash >= 0) {
+            id = path.substring(slash + 1);
+            int typeStart = path.lastIndexOf('/', slash - 1) + 1;
+            type = path.substring(typeStart, slash);
+        }
+
+        return intern(reference, new ResourceRef(type, id));
+    }
+
+    public static ResourceRef of(String type, String id) {
+        if (id == null) {
+            return null;
+        }
+        return parse(type + "/" + id);
+    }
+
+    public boolean isType(String resourceType) {
+        return resourceType.equals(type);
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        return type != null ? type + "/" + id : id;
+    }
+
+    private static ResourceRef intern(String reference, ResourceRef ref) {
+        ResourceRef canonical = INTERNED.get(ref.toString(), key -> ref);
+        if (!reference.equals(ref.toString())) {
+            INTERNED.asMap().putIfAbsent(reference, canonical);
+        }
+        return canonical;
+    }
+}
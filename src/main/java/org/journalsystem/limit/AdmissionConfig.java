@@ -0,0 +1,32 @@
+package org.journalsystem.limit;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "search.admission")
+public interface AdmissionConfig {
+
+    @WithDefault("true")
+    boolean enabled();
+
+    /**
+     * Searches executing at the same time.
+     */
+    @WithDefault("64")
+    int maxConcurrent();
+
+    /**
+     * Searches waiting to start. Together with {@link #maxConcurrent()} this is the capacity
+     * each {@link Priority} gets its share of.
+     */
+    @WithDefault("128")
+    int maxQueue();
+
+    /**
+     * A queued search that has not started by then is rejected.
+     */
+    @WithDefault("2S")
+    Duration maxQueueWait();
+}
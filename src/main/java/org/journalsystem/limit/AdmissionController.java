@@ -0,0 +1,196 @@
+package org.journalsystem.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the searches SearchResource runs at once. Up to {@code max-concurrent} searches
+ * execute, further ones queue by {@link Priority} and then arrival order. A search is
+ * rejected up front with {@link AdmissionRejectedException} when running plus queued
+ * searches already fill its priority's share of the capacity, and later when it has
+ * waited longer than {@code max-queue-wait}; overload therefore costs the caller one fast
+ * 503 instead of a slow timeout.
+ */
+@ApplicationScoped
+public class AdmissionController {
+
+    private final AdmissionConfig config;
+    private final LongSupplier nanoClock;
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>(
+            Comparator.comparing((Ticket ticket) -> ticket.priority).thenComparingLong(ticket -> ticket.sequence));
+    private final Map<Priority, Counter> rejections = new EnumMap<>(Priority.class);
+
+    private int inFlight;
+    private long sequence;
+    private double averageServiceNanos;
+
+    @Inject
+    public AdmissionController(AdmissionConfig config, MeterRegistry registry) {
+        this(config, registry, System::nanoTime);
+    }
+
+    AdmissionController(AdmissionConfig config, MeterRegistry registry, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+
+        Gauge.builder("search.admission.inflight", this, AdmissionController::inFlight)
+                .description("Searches currently executing")
+                .register(registry);
+        Gauge.builder("search.admission.queued", this, AdmissionController::queued)
+                .description("Searches waiting to be admitted")
+                .register(registry);
+        for (Priority priority : Priority.values()) {
+            rejections.put(priority, Counter.builder("search.admission.rejections")
+                    .description("Searches rejected with 503")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(registry));
+        }
+    }
+
+    public <T> Uni<T> admit(Priority priority, Supplier<Uni<T>> search) {
+        if (!config.enabled()) {
+            return Uni.createFrom().deferred(search::get);
+        }
+
+        return Uni.createFrom().deferred(() -> {
+            Ticket ticket = new Ticket(priority);
+            return Uni.createFrom().<Void>emitter(emitter -> enter(ticket, emitter))
+                    .ifNoItem().after(config.maxQueueWait())
+                    .failWith(() -> rejected(priority, "Search waited too long to be admitted"))
+                    .chain(ignored -> search.get())
+                    .onTermination().invoke((item, failure, cancelled) -> leave(ticket));
+        });
+    }
+
+    /**
+     * Like {@link #admit(Priority, Supplier)} for streamed results: the search holds its slot
+     * until the stream completes, fails or is cancelled.
+     */
+    public <T> Multi<T> admitStream(Priority priority, Supplier<Multi<T>> search) {
+        if (!config.enabled()) {
+            return Multi.createFrom().deferred(search::get);
+        }
+
+        return Multi.createFrom().deferred(() -> {
+            Ticket ticket = new Ticket(priority);
+            return Uni.createFrom().<Void>emitter(emitter -> enter(ticket, emitter))
+                    .ifNoItem().after(config.maxQueueWait())
+                    .failWith(() -> rejected(priority, "Search waited too long to be admitted"))
+                    .onItem().transformToMulti(ignored -> search.get())
+                    .onTermination().invoke((failure, cancelled) -> leave(ticket));
+        });
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return waiting.size();
+    }
+
+    public double rejections(Priority priority) {
+        return rejections.get(priority).count();
+    }
+
+    private void enter(Ticket ticket, UniEmitter<? super Void> emitter) {
+        boolean granted = false;
+        boolean shed = false;
+
+        synchronized (this) {
+            ticket.emitter = emitter;
+            ticket.sequence = sequence++;
+            int capacity = config.maxConcurrent() + config.maxQueue();
+            if (inFlight + waiting.size() >= capacity * ticket.priority.share()) {
+                ticket.state = State.DONE;
+                shed = true;
+            } else if (inFlight < config.maxConcurrent() && waiting.isEmpty()) {
+                start(ticket);
+                granted = true;
+            } else {
+                waiting.add(ticket);
+            }
+        }
+
+        if (granted) {
+            emitter.complete(null);
+        } else if (shed) {
+            emitter.fail(rejected(ticket.priority, "Search service is overloaded"));
+        }
+    }
+
+    private void leave(Ticket ticket) {
+        List<Ticket> started = new ArrayList<>();
+
+        synchronized (this) {
+            if (ticket.state == State.WAITING) {
+                waiting.remove(ticket);
+            } else if (ticket.state == State.RUNNING) {
+                inFlight--;
+                long serviceNanos = nanoClock.getAsLong() - ticket.startNanos;
+                averageServiceNanos = averageServiceNanos == 0
+                        ? serviceNanos
+                        : averageServiceNanos * 0.9 + serviceNanos * 0.1;
+            }
+            ticket.state = State.DONE;
+
+            while (inFlight < config.maxConcurrent() && !waiting.isEmpty()) {
+                Ticket next = waiting.poll();
+                start(next);
+                started.add(next);
+            }
+        }
+
+        for (Ticket next : started) {
+            next.emitter.complete(null);
+        }
+    }
+
+    private void start(Ticket ticket) {
+        ticket.state = State.RUNNING;
+        ticket.startNanos = nanoClock.getAsLong();
+        inFlight++;
+    }
+
+    private AdmissionRejectedException rejected(Priority priority, String message) {
+        rejections.get(priority).increment();
+        return new AdmissionRejectedException(message, retryAfterSeconds());
+    }
+
+    /**
+     * Roughly how long the current queue takes to drain at the observed service time.
+     */
+    synchronized long retryAfterSeconds() {
+        double drainNanos = averageServiceNanos * (waiting.size() + 1) / config.maxConcurrent();
+        return Math.max(1, (long) Math.ceil(drainNanos / 1_000_000_000.0));
+    }
+
+    private enum State { WAITING, RUNNING, DONE }
+
+    private static final class Ticket {
+        final Priority priority;
+        UniEmitter<? super Void> emitter;
+        State state = State.WAITING;
+        long sequence;
+        long startNanos;
+
+        Ticket(Priority priority) {
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.journalsystem.limit;
+
+import io.smallrye.common.vertx.ContextLocals;
+import io.smallrye.common.vertx.VertxContext;
+
+import java.util.function.Supplier;
+
+/**
+ * Carries the authenticated principal of a search to the upstream calls it makes, through
+ * the request's duplicated Vert.x context, or a thread local for blocking searches that run
+ * off the event loop (see {@link #runAs}). Work without one (startup, scheduled jobs, tests
+ * calling SearchService directly) is attributed to {@link #ANONYMOUS}.
+ */
+public final class CallerContext {
+
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final String PRINCIPAL_KEY = "search.principal";
+
+    private static final ThreadLocal<String> BLOCKING_PRINCIPAL = new ThreadLocal<>();
+
+    private CallerContext() {
+    }
+
+    public static void bind(String principal) {
+        if (principal != null && VertxContext.isOnDuplicatedContext()) {
+            ContextLocals.put(PRINCIPAL_KEY, principal);
+        }
+    }
+
+    public static <T> T runAs(String principal, Supplier<T> work) {
+        String previous = BLOCKING_PRINCIPAL.get();
+        BLOCKING_PRINCIPAL.set(principal);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                BLOCKING_PRINCIPAL.set(previous);
+            } else {
+                BLOCKING_PRINCIPAL.remove();
+            }
+        }
+    }
+
+    public static String principal() {
+        String blocking = BLOCKING_PRINCIPAL.get();
+        if (blocking != null) {
+            return blocking;
+        }
+        if (!VertxContext.isOnDuplicatedContext()) {
+            return ANONYMOUS;
+        }
+        return ContextLocals.get(PRINCIPAL_KEY, ANONYMOUS);
+    }
+}
@@ -0,0 +1,56 @@
+package org.journalsystem.limit;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "search.limiter")
+public interface LimiterConfig {
+
+    @WithDefault("true")
+    boolean enabled();
+
+    @WithDefault("20")
+    int initialLimit();
+
+    @WithDefault("4")
+    int minLimit();
+
+    @WithDefault("256")
+    int maxLimit();
+
+    /**
+     * Calls waiting for a permit beyond this are rejected instead of queued.
+     */
+    @WithDefault("2000")
+    int maxQueue();
+
+    /**
+     * Share of the limit one principal may hold while other principals have calls waiting.
+     */
+    @WithDefault("0.5")
+    double principalShare();
+
+    /**
+     * How much slower than the long-term average a call may be before the limit shrinks.
+     */
+    @WithDefault("1.5")
+    double rttTolerance();
+
+    /**
+     * Weight of each new limit estimate, between 0 (never move) and 1 (jump straight to it).
+     */
+    @WithDefault("0.2")
+    double smoothing();
+
+    /**
+     * Factor the limit is multiplied by after a timeout, connection error or 5xx answer.
+     */
+    @WithDefault("0.9")
+    double backoffRatio();
+
+    /**
+     * Number of samples the long-term RTT average is taken over.
+     */
+    @WithDefault("600")
+    int longWindow();
+}
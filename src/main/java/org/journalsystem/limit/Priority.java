@@ -0,0 +1,33 @@
+package org.journalsystem.limit;
+
+/**
+ * Admission priority of a search. Each level may only fill its share of the admission
+ * capacity, so under overload the lowest levels are shed first.
+ */
+public enum Priority {
+    CRITICAL(1.0),
+    HIGH(0.9),
+    NORMAL(0.7),
+    LOW(0.5);
+
+    private final double share;
+
+    Priority(double share) {
+        this.share = share;
+    }
+
+    public double share() {
+        return share;
+    }
+
+    /**
+     * Doctors outrank staff, and cheap lookups (a practitioner's encounters or patients)
+     * outrank broad name and condition searches that fan out over many FHIR resources.
+     */
+    public static Priority of(boolean doctor, boolean expensive) {
+        if (doctor) {
+            return expensive ? HIGH : CRITICAL;
+        }
+        return expensive ? LOW : NORMAL;
+    }
+}
@@ -0,0 +1,370 @@
+package org.journalsystem.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive cap on concurrent FHIR calls. The limit follows the gradient between the
+ * long-term and the latest round-trip time: while HAPI answers as fast as usual the limit
+ * grows by about its square root per sample, once calls slow down it shrinks in proportion,
+ * and timeouts, connection errors or 5xx answers cut it multiplicatively. Calls over the
+ * limit wait and are rejected with {@link LimitExceededException} once
+ * {@code search.limiter.max-queue} calls are already waiting.
+ *
+ * <p>Waiting calls are queued per principal (see {@link CallerContext}) and a freed permit
+ * goes round-robin to the next principal with queued work, preferring principals below
+ * {@code principal-share} of the limit. One clinician running broad searches therefore
+ * queues behind their own calls instead of in front of everyone else's.
+ */
+@ApplicationScoped
+public class UpstreamLimiter {
+
+    private static final Logger LOG = Logger.getLogger(UpstreamLimiter.class);
+
+    private final LimiterConfig config;
+    private final LongSupplier nanoClock;
+    private final Map<String, Principal> principals = new HashMap<>();
+    private final ArrayDeque<Principal> rotation = new ArrayDeque<>();
+    private final Counter rejections;
+    private final Counter drops;
+    private final Timer wait;
+    private final Timer latency;
+
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private long lastRttNanos;
+    private double longRttNanos;
+
+    @Inject
+    public UpstreamLimiter(LimiterConfig config, MeterRegistry registry) {
+        this(config, registry, System::nanoTime);
+    }
+
+    UpstreamLimiter(LimiterConfig config, MeterRegistry registry, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.limit = config.initialLimit();
+
+        Gauge.builder("search.upstream.limit", this, UpstreamLimiter::currentLimit)
+                .description("Current adaptive limit on concurrent FHIR calls")
+                .register(registry);
+        Gauge.builder("search.upstream.inflight", this, UpstreamLimiter::inFlight)
+                .description("FHIR calls currently in flight")
+                .register(registry);
+        Gauge.builder("search.upstream.queued", this, UpstreamLimiter::queued)
+                .description("FHIR calls waiting for a permit")
+                .register(registry);
+        Gauge.builder("search.upstream.principals", this, UpstreamLimiter::principals)
+                .description("Principals with FHIR calls in flight or waiting")
+                .register(registry);
+        Gauge.builder("search.upstream.rtt.last", this, limiter -> limiter.lastRttNanos() / 1_000_000.0)
+                .description("Latest FHIR round-trip time")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("search.upstream.rtt.long", this, limiter -> limiter.longRttNanos() / 1_000_000.0)
+                .description("Long-term average FHIR round-trip time")
+                .baseUnit("milliseconds")
+                .register(registry);
+        rejections = Counter.builder("search.upstream.rejections")
+                .description("FHIR calls rejected because the wait queue was full")
+                .register(registry);
+        drops = Counter.builder("search.upstream.drops")
+                .description("FHIR calls that timed out or failed with a server error")
+                .register(registry);
+        // Not tagged by principal: that would put user names on /q/metrics and grow without bound
+        wait = Timer.builder("search.upstream.wait")
+                .description("Time FHIR calls waited for a permit")
+                .register(registry);
+        latency = Timer.builder("search.upstream.latency")
+                .description("FHIR call time from permit to answer")
+                .register(registry);
+    }
+
+    /**
+     * Runs the call once a permit is free, on behalf of the principal bound to the current
+     * request. The supplier is only invoked after the permit is granted, so the request is
+     * not sent to FHIR before then.
+     */
+    public <T> Uni<T> call(Supplier<Uni<T>> upstream) {
+        return call(CallerContext.principal(), upstream);
+    }
+
+    public <T> Uni<T> call(String principal, Supplier<Uni<T>> upstream) {
+        if (!config.enabled()) {
+            return Uni.createFrom().deferred(upstream::get);
+        }
+
+        return Uni.createFrom().deferred(() -> {
+            Permit permit = new Permit(principal);
+            return Uni.createFrom().<Void>emitter(emitter -> acquire(permit, emitter))
+                    .chain(ignored -> upstream.get())
+                    .onTermination().invoke((item, failure, cancelled) -> release(permit, failure, cancelled));
+        });
+    }
+
+    /**
+     * Blocking counterpart of {@link #call(Supplier)} for searches running on worker or
+     * virtual threads: waits for a permit, then runs the call on the calling thread.
+     */
+    public <T> T callBlocking(Supplier<T> upstream) {
+        if (!config.enabled()) {
+            return upstream.get();
+        }
+
+        Permit permit = new Permit(CallerContext.principal());
+        try {
+            Uni.createFrom().<Void>emitter(emitter -> acquire(permit, emitter)).await().indefinitely();
+            T result = upstream.get();
+            release(permit, null, false);
+            return result;
+        } catch (RuntimeException e) {
+            release(permit, e, false);
+            throw e;
+        }
+    }
+
+    /**
+     * Bounds a merge fan-out by the current limit, so one request does not queue far more
+     * upstream calls than FHIR is being allowed to serve.
+     */
+    public int fanOut(int requested) {
+        return config.enabled() ? Math.max(1, Math.min(requested, currentLimit())) : requested;
+    }
+
+    public synchronized int currentLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return queued;
+    }
+
+    public synchronized int queued(String principal) {
+        Principal state = principals.get(principal);
+        return state != null ? state.queue.size() : 0;
+    }
+
+    public synchronized int principals() {
+        return principals.size();
+    }
+
+    public synchronized long lastRttNanos() {
+        return lastRttNanos;
+    }
+
+    public synchronized long longRttNanos() {
+        return (long) longRttNanos;
+    }
+
+    public double rejections() {
+        return rejections.count();
+    }
+
+    private void acquire(Permit permit, UniEmitter<? super Void> emitter) {
+        boolean granted = false;
+        boolean rejected = false;
+
+        synchronized (this) {
+            permit.emitter = emitter;
+            if (queued == 0 && inFlight < (int) limit) {
+                grant(permit, principal(permit.principal));
+                granted = true;
+            } else if (queued >= config.maxQueue()) {
+                permit.state = State.REJECTED;
+                rejected = true;
+            } else {
+                Principal principal = principal(permit.principal);
+                permit.enqueuedNanos = nanoClock.getAsLong();
+                principal.queue.add(permit);
+                if (principal.queue.size() == 1) {
+                    rotation.add(principal);
+                }
+                queued++;
+            }
+        }
+
+        if (granted) {
+            emitter.complete(null);
+        } else if (rejected) {
+            rejections.increment();
+            emitter.fail(new LimitExceededException("Too many FHIR calls waiting for a permit"));
+        }
+    }
+
+    private void release(Permit permit, Throwable failure, boolean cancelled) {
+        List<Permit> granted;
+
+        synchronized (this) {
+            Principal principal = principals.get(permit.principal);
+            if (permit.state == State.WAITING) {
+                if (principal != null && principal.queue.remove(permit)) {
+                    queued--;
+                    if (principal.queue.isEmpty()) {
+                        rotation.remove(principal);
+                    }
+                    forgetIfIdle(principal);
+                }
+                permit.state = State.DONE;
+                return;
+            }
+            if (permit.state != State.RUNNING) {
+                return;
+            }
+
+            permit.state = State.DONE;
+            inFlight--;
+            principal.inFlight--;
+            latency.record(nanoClock.getAsLong() - permit.startNanos, TimeUnit.NANOSECONDS);
+            forgetIfIdle(principal);
+            if (!cancelled) {
+                if (isDrop(failure)) {
+                    drops.increment();
+                    limit = Math.max(config.minLimit(), limit * config.backoffRatio());
+                } else {
+                    sample(nanoClock.getAsLong() - permit.startNanos, permit.inFlightAtStart);
+                }
+            }
+            granted = drain();
+        }
+
+        for (Permit next : granted) {
+            next.emitter.complete(null);
+        }
+    }
+
+    private void sample(long rttNanos, int inFlightAtStart) {
+        lastRttNanos = rttNanos;
+        longRttNanos = longRttNanos == 0
+                ? rttNanos
+                : longRttNanos + (rttNanos - longRttNanos) / config.longWindow();
+
+        double gradient = Math.max(0.5, Math.min(1.0,
+                config.rttTolerance() * longRttNanos / Math.max(rttNanos, 1)));
+        double estimate = limit * gradient + Math.sqrt(limit);
+
+        // An application that never fills its limit learns nothing about HAPI's capacity
+        if (estimate > limit && inFlightAtStart * 2 < limit) {
+            return;
+        }
+
+        double previous = limit;
+        limit = limit * (1 - config.smoothing()) + estimate * config.smoothing();
+        limit = Math.max(config.minLimit(), Math.min(config.maxLimit(), limit));
+        if ((int) previous != (int) limit) {
+            LOG.debugf("Upstream limit %d -> %d (rtt %d ms, long rtt %d ms)",
+                    (int) previous, (int) limit, rttNanos / 1_000_000, (long) longRttNanos / 1_000_000);
+        }
+    }
+
+    private List<Permit> drain() {
+        List<Permit> granted = new ArrayList<>();
+        while (queued > 0 && inFlight < (int) limit) {
+            Principal next = nextPrincipal();
+            Permit permit = next.queue.poll();
+            queued--;
+            rotation.remove(next);
+            if (!next.queue.isEmpty()) {
+                rotation.add(next);
+            }
+            wait.record(nanoClock.getAsLong() - permit.enqueuedNanos, TimeUnit.NANOSECONDS);
+            grant(permit, next);
+            granted.add(permit);
+        }
+        return granted;
+    }
+
+    /**
+     * First principal in round-robin order that is below its share of the limit, or simply
+     * the next one when every waiting principal is over it.
+     */
+    private Principal nextPrincipal() {
+        int quota = Math.max(1, (int) Math.ceil(limit * config.principalShare()));
+        for (Principal principal : rotation) {
+            if (principal.inFlight < quota) {
+                return principal;
+            }
+        }
+        return rotation.peek();
+    }
+
+    private void grant(Permit permit, Principal principal) {
+        permit.state = State.RUNNING;
+        permit.startNanos = nanoClock.getAsLong();
+        permit.inFlightAtStart = ++inFlight;
+        principal.inFlight++;
+    }
+
+    private Principal principal(String name) {
+        return principals.computeIfAbsent(name, Principal::new);
+    }
+
+    private void forgetIfIdle(Principal principal) {
+        if (principal.inFlight == 0 && principal.queue.isEmpty()) {
+            principals.remove(principal.name);
+        }
+    }
+
+    public static boolean isDrop(Throwable failure) {
+        if (failure == null) {
+            return false;
+        }
+        if (failure instanceof WebApplicationException wae) {
+            int status = wae.getResponse() != null ? wae.getResponse().getStatus() : 500;
+            return status >= 500 || status == 429;
+        }
+        return failure instanceof TimeoutException
+                || failure instanceof io.smallrye.mutiny.TimeoutException
+                || failure instanceof ProcessingException
+                || failure instanceof IOException;
+    }
+
+    private enum State { WAITING, RUNNING, REJECTED, DONE }
+
+    private static final class Permit {
+        final String principal;
+        UniEmitter<? super Void> emitter;
+        State state = State.WAITING;
+        long enqueuedNanos;
+        long startNanos;
+        int inFlightAtStart;
+
+        Permit(String principal) {
+            this.principal = principal;
+        }
+    }
+
+    private static final class Principal {
+        final String name;
+        final ArrayDeque<Permit> queue = new ArrayDeque<>();
+        int inFlight;
+
+        Principal(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -1,47 +1,47 @@
 package org.journalsystem.mapper;
 
 import org.journalsystem.dto.*;
-import org.journalsystem.dto.fhir.FhirBundle;
+import org.journalsystem.dto.fhir.*;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FhirMapper {
 
-    public static PatientSearchResult toPatientSearchResult(FhirBundle.FhirResource resource) {
+    public static PatientResource toPatientResource(FhirBundle.FhirResource resource) {
         if (resource == null || !"Patient".equals(resource.resourceType)) {
             return null;
         }
 
-        String firstName = "";
-        String lastName = "";
-        if (resource.name != null && !resource.name.isEmpty()) {
-            FhirBundle.HumanName name = resource.name.get(0);
-            if (name.given != null && !name.given.isEmpty()) {
-                firstName = name.given.get(0);
-            }
-            lastName = name.family != null ? name.family : "";
-        }
+        FhirBundle.HumanName name = firstName(resource);
+
+        return new PatientResource(
+                ResourceRef.of("Patient", resource.id),
+                givenNames(name),
+                name != null ? name.family : null,
+                firstIdentifier(resource),
+                resource.birthDate
+        );
+    }
 
-        String ssn = "";
-        if (resource.identifier != null && !resource.identifier.isEmpty()) {
-            ssn = resource.identifier.get(0).value;
+    public static PractitionerResource toPractitionerResource(FhirBundle.FhirResource resource) {
+        if (resource == null || !"Practitioner".equals(resource.resourceType)) {
+            return null;
         }
 
-        return new PatientSearchResult(
-                resource.id,
-                firstName,
-                lastName,
-                ssn,
-                resource.birthDate
+        FhirBundle.HumanName name = firstName(resource);
+
+        return new PractitionerResource(
+                ResourceRef.of("Practitioner", resource.id),
+                givenNames(name),
+                name != null ? name.family : null,
+                firstIdentifier(resource)
         );
     }
 
-    public static ConditionSearchResult toConditionSearchResult(
-            FhirBundle.FhirResource resource,
-            String patientName) {
+    public static ConditionResource toConditionResource(FhirBundle.FhirResource resource) {
         if (resource == null || !"Condition".equals(resource.resourceType)) {
             return null;
         }
@@ -55,40 +55,26 @@ public class FhirMapper {
             }
         }
 
-        String patientId = "";
-        if (resource.subject != null && resource.subject.reference != null) {
-            patientId = resource.subject.reference.replace("Patient/", "");
-        }
-
-        return new ConditionSearchResult(
+        return new ConditionResource(
                 resource.id,
-                patientId,
-                patientName,
+                subjectRef(resource),
                 description,
                 resource.recordedDate
         );
     }
 
-    public static EncounterSearchResult toEncounterSearchResult(
-            FhirBundle.FhirResource resource,
-            String patientName,
-            String practitionerName) {
+    public static EncounterResource toEncounterResource(FhirBundle.FhirResource resource) {
         if (resource == null || !"Encounter".equals(resource.resourceType)) {
             return null;
         }
 
-        String patientId = "";
-        String practitionerId = "";
-
-        if (resource.subject != null && resource.subject.reference != null) {
-            patientId = resource.subject.reference.replace("Patient/", "");
-        }
-
+        ResourceRef practitioner = null;
         if (resource.participant != null && !resource.participant.isEmpty()) {
             for (FhirBundle.Participant p : resource.participant) {
                 if (p.individual != null && p.individual.reference != null) {
-                    if (p.individual.reference.startsWith("Practitioner/")) {
-                        practitionerId = p.individual.reference.replace("Practitioner/", "");
+                    ResourceRef ref = ResourceRef.parse(p.individual.reference);
+                    if (ref != null && ref.isType("Practitioner")) {
+                        practitioner = ref;
                         break;
                     }
                 }
@@ -102,17 +88,118 @@ public class FhirMapper {
             endTime = resource.period.end;
         }
 
-        return new EncounterSearchResult(
+        return new EncounterResource(
                 resource.id,
-                patientId,
-                patientName,
-                practitionerId,
-                practitionerName,
+                subjectRef(resource),
+                practitioner,
                 startTime,
                 endTime
         );
     }
 
+    public static PatientSearchResult toPatientSearchResult(FhirBundle.FhirResource resource) {
+        return toPatientSearchResult(toPatientResource(resource));
+    }
+
+    public static PatientSearchResult toPatientSearchResult(PatientResource patient) {
+        if (patient == null) {
+            return null;
+        }
+
+        return new PatientSearchResult(
+                patient.id(),
+                patient.firstName(),
+                patient.family() != null ? patient.family() : "",
+                patient.identifier() != null ? patient.identifier() : "",
+                patient.birthDate()
+        );
+    }
+
+    /**
+     * Patient that could not be read in time: only the id is known, the rest is left empty.
+     */
+    public static PatientSearchResult toUnenrichedPatientSearchResult(String patientId) {
+        return new PatientSearchResult(patientId, "", "", "", "");
+    }
+
+    public static ConditionSearchResult toConditionSearchResult(
+            FhirBundle.FhirResource resource,
+            String patientName) {
+        return toConditionSearchResult(toConditionResource(resource), patientName);
+    }
+
+    public static ConditionSearchResult toConditionSearchResult(
+            ConditionResource condition,
+            String patientName) {
+        if (condition == null) {
+            return null;
+        }
+
+        return new ConditionSearchResult(
+                condition.id(),
+                condition.subject() != null ? condition.subject().id() : "",
+                patientName,
+                condition.description(),
+                condition.recordedDate()
+        );
+    }
+
+    public static EncounterSearchResult toEncounterSearchResult(
+            FhirBundle.FhirResource resource,
+            String patientName,
+            String practitionerName) {
+        return toEncounterSearchResult(toEncounterResource(resource), patientName, practitionerName);
+    }
+
+    public static EncounterSearchResult toEncounterSearchResult(
+            EncounterResource encounter,
+            String patientName,
+            String practitionerName) {
+        if (encounter == null) {
+            return null;
+        }
+
+        return new EncounterSearchResult(
+                encounter.id(),
+                encounter.subject() != null ? encounter.subject().id() : "",
+                patientName,
+                encounter.practitioner() != null ? encounter.practitioner().id() : "",
+                practitionerName,
+                encounter.start(),
+                encounter.end()
+        );
+    }
+
+    public static ResourceRef subjectRef(FhirBundle.FhirResource resource) {
+        if (resource == null || resource.subject == null) {
+            return null;
+        }
+        return ResourceRef.parse(resource.subject.reference);
+    }
+
+    /**
+     * Consecutive pages of one search as a single bundle; the total is the search's.
+     */
+    public static FhirBundle concat(List<FhirBundle> pages) {
+        if (pages.size() == 1) {
+            return pages.get(0);
+        }
+        FhirBundle joined = new FhirBundle();
+        joined.entry = new ArrayList<>();
+        for (FhirBundle page : pages) {
+            if (page == null) {
+                continue;
+            }
+            joined.resourceType = page.resourceType;
+            joined.type = page.type;
+            joined.total = Math.max(joined.total, page.total);
+            if (page.entry != null) {
+                joined.entry.addAll(page.entry);
+            }
+        }
+        return joined;
+    }
+
     public static List<PatientSearchResult> bundleToPatientList(FhirBundle bundle) {
         List<PatientSearchResult> results = new ArrayList<>();
 
@@ -163,4 +250,65 @@ public class FhirMapper {
 
         return results;
     }
-}
\ No newline at end of file
+
+    /**
+     * Entries of one resource type, e.g. the matches of a search without the resources
+     * {@code _include} added.
+     */
+    public static List<FhirBundle.FhirResource> resourcesOfType(FhirBundle bundle, String resourceType) {
+        List<FhirBundle.FhirResource> resources = new ArrayList<>();
+
+        if (bundle == null || bundle.entry == null) {
+            return resources;
+        }
+
+        for (FhirBundle.BundleEntry entry : bundle.entry) {
+            if (entry.resource != null && resourceType.equals(entry.resource.resourceType)) {
+                resources.add(entry.resource);
+            }
+        }
+
+        return resources;
+    }
+
+    /**
+     * The Patient entries of a bundle, by id.
+     */
+    public static Map<String, PatientResource> patientsById(FhirBundle bundle) {
+        Map<String, PatientResource> patients = new HashMap<>();
+        for (FhirBundle.FhirResource resource : resourcesOfType(bundle, "Patient")) {
+            PatientResource patient = toPatientResource(resource);
+            if (patient != null) {
+                patients.put(patient.id(), patient);
+            }
+        }
+        return patients;
+    }
+
+    private static FhirBundle.HumanName firstName(FhirBundle.FhirResource resource) {
+        if (resource.name == null || resource.name.isEmpty()) {
+            return null;
+        }
+        return resource.name.get(0);
+    }
+
+    private static List<String> givenNames(FhirBundle.HumanName name) {
+        if (name == null || name.given == null || name.given.isEmpty()) {
+            return List.of();
+        }
+        List<String> given = new ArrayList<>(name.given.size());
+        for (String part : name.given) {
+            if (part != null) {
+                given.add(part);
+            }
+        }
+        return List.copyOf(given);
+    }
+
+    private static String firstIdentifier(FhirBundle.FhirResource resource) {
+        if (resource.identifier == null || resource.identifier.isEmpty()) {
+            return null;
+        }
+        return resource.identifier.get(0).value;
+    }
+}
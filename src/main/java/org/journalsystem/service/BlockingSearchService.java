@@ -0,0 +1,622 @@
+package org.journalsystem.service;
+
+import org.journalsystem.cache.CacheRegion;
+import org.journalsystem.cache.CacheRegions;
+import org.journalsystem.cache.CacheStore;
+import org.journalsystem.cache.NegativeLookupCache;
+import org.journalsystem.cache.QueryPostings;
+import org.journalsystem.client.BlockingFhirClient;
+import org.journalsystem.client.FhirReplicaConfig;
+import org.journalsystem.client.FhirRouter;
+import org.journalsystem.dto.*;
+import org.journalsystem.dto.fhir.*;
+import org.journalsystem.limit.UpstreamLimiter;
+import org.journalsystem.mapper.FhirMapper;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * The searches of {@link SearchService} written as plain blocking code, for
+ * {@code search.execution.mode=blocking}. Runs on {@link SearchExecutor} threads, shares the
+ * cache, query postings and upstream limiter with the reactive path, and returns the same
+ * results for the same FHIR data.
+ */
+@ApplicationScoped
+public class BlockingSearchService {
+
+    private static final Logger LOG = Logger.getLogger(BlockingSearchService.class);
+
+    @Inject
+    FhirRouter router;
+
+    @Inject
+    CacheStore cache;
+
+    @Inject
+    QueryPostings postings;
+
+    @Inject
+    UpstreamLimiter limiter;
+
+    @Inject
+    TerminologyService terminology;
+
+    @Inject
+    EncounterRangeConfig rangeConfig;
+
+    @Inject
+    DoctorPanelConfig panelConfig;
+
+    @Inject
+    SearchExecutor executor;
+
+    @Inject
+    NegativeLookupCache negative;
+
+    @Inject
+    FhirReplicaConfig fhirConfig;
+
+    public List<PatientSearchResult> searchPatientsByName(String name, PageRequest page) {
+        LOG.infof("Searching patients by name: %s", name);
+
+        String key = SearchService.queryKey("name", name, page);
+        try {
+            return cachedPatientQuery(key, QueryPostings.NAME_QUERIES, Deadline.NONE, () -> loadPatientsByName(name, page));
+        } catch (RuntimeException e) {
+            LOG.error("Error searching patients", e);
+            return new ArrayList<>();
+        }
+    }
+
+    public List<PatientSearchResult> searchPatientsByCondition(String condition, PageRequest page) {
+        return searchPatientsByCondition(condition, page, Deadline.NONE);
+    }
+
+    public List<PatientSearchResult> searchPatientsByCondition(String condition, PageRequest page, Deadline deadline) {
+        LOG.infof("Searching patients by condition: %s", condition);
+
+        String key = SearchService.queryKey("condition", condition, page);
+        try {
+            return cachedPatientQuery(key, QueryPostings.CONDITION_QUERIES, deadline, () ->
+                    loadPatientsByCondition(condition, page, deadline));
+        } catch (RuntimeException e) {
+            LOG.errorf("Error searching patients by condition: %s", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    public List<PatientSearchResult> searchPatientsByPractitionerId(String practitionerIdOrIdentifier, PageRequest page) {
+        return searchPatientsByPractitionerId(practitionerIdOrIdentifier, page, Deadline.NONE);
+    }
+
+    public List<PatientSearchResult> searchPatientsByPractitionerId(
+            String practitionerIdOrIdentifier,
+            PageRequest page,
+            Deadline deadline) {
+        LOG.infof("Searching patients by practitioner ID/identifier: %s", practitionerIdOrIdentifier);
+
+        String key = SearchService.queryKey("practitioner", practitionerIdOrIdentifier, page);
+        try {
+            return cachedPatientQuery(key, null, deadline, () ->
+                    loadPatientsByPractitioner(practitionerIdOrIdentifier, page, deadline, key));
+        } catch (RuntimeException e) {
+            LOG.errorf("Error searching patients by practitioner: %s", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    public List<EncounterSearchResult> searchEncountersByPractitioner(
+            String practitionerIdOrIdentifier,
+            String date,
+            PageRequest page) {
+        return searchEncountersByPractitioner(practitionerIdOrIdentifier, date, page, Deadline.NONE);
+    }
+
+    public List<EncounterSearchResult> searchEncountersByPractitioner(
+            String practitionerIdOrIdentifier,
+            String date,
+            PageRequest page,
+            Deadline deadline) {
+        LOG.infof("Searching encounters by practitioner: %s, date: %s", practitionerIdOrIdentifier, date);
+
+        String key = SearchService.queryKey("encounters", practitionerIdOrIdentifier + "|" + date, page);
+        try {
+            return cached(CacheRegions.ENCOUNTER_QUERIES, key, deadline, () -> {
+                List<EncounterSearchResult> results =
+                        loadEncountersByPractitioner(practitionerIdOrIdentifier, date, page, deadline, key);
+                postings.registerEncounterQuery(key, results);
+                return results;
+            });
+        } catch (RuntimeException e) {
+            LOG.errorf("Error searching encounters by practitioner: %s", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    public List<EncounterSearchResult> searchEncountersByPractitionerInRange(
+            String practitionerIdOrIdentifier,
+            DateRange range,
+            PageRequest page,
+            Deadline deadline) {
+        LOG.infof("Searching encounters by practitioner: %s, range: %s", practitionerIdOrIdentifier, range);
+
+        try {
+            String actualPractitionerId = resolvePractitionerId(practitionerIdOrIdentifier);
+            if (actualPractitionerId == null) {
+                LOG.warnf("Could not resolve practitioner ID for: %s", practitionerIdOrIdentifier);
+                return new ArrayList<>();
+            }
+
+            List<DateRange> buckets = range.buckets(rangeConfig.bucketDays());
+            List<Map.Entry<Integer, List<EncounterSearchResult>>> loaded = FanOut.map(
+                    executor.executor(),
+                    IntStream.range(0, buckets.size()).boxed().toList(),
+                    limiter.fanOut(buckets.size()),
+                    Integer.MAX_VALUE,
+                    index -> Map.entry(index, loadEncounterBucket(actualPractitionerId, buckets.get(index), deadline)));
+
+            EncounterBucket.Merge merge = new EncounterBucket.Merge();
+            List<EncounterSearchResult> encounters = new ArrayList<>();
+            for (Map.Entry<Integer, List<EncounterSearchResult>> bucket : loaded) {
+                encounters.addAll(merge.arrive(bucket.getKey(), bucket.getValue()));
+            }
+            return page.collect(encounters, page.order(SearchService.ENCOUNTER_ORDER));
+        } catch (RuntimeException e) {
+            LOG.errorf("Error searching encounters by practitioner in %s: %s", range, e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    public List<ConditionSearchResult> searchConditions(ConditionQuery query, PageRequest page) {
+        try {
+            ConditionEnrichment enrichment = ConditionEnrichment.of(searchConditionsWithSubjects(query, page));
+            cachePatients(enrichment.included());
+
+            List<List<String>> batches = enrichment.missingPatientBatches();
+            List<ConditionSearchResult> results = new ArrayList<>(enrichment.named());
+            FanOut.map(
+                    executor.executor(),
+                    batches,
+                    limiter.fanOut(Math.max(1, batches.size())),
+                    Integer.MAX_VALUE,
+                    batch -> enrichment.name(batch, fetchPatients(batch)))
+                    .forEach(results::addAll);
+
+            return page.afterFhirOffset().collect(results, page.order(SearchService.CONDITION_ORDER));
+        } catch (RuntimeException e) {
+            LOG.errorf("Error searching conditions (%s): %s", query, e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    public DoctorPatientsResult searchDoctorPatients(String practitionerIdOrIdentifier) {
+        String practitionerId = resolvePractitionerId(practitionerIdOrIdentifier);
+        if (practitionerId == null) {
+            return null;
+        }
+        try {
+            return cached(CacheRegions.DOCTOR_PANELS, practitionerId, () -> loadDoctorPatients(practitionerId));
+        } catch (RuntimeException e) {
+            if (SearchService.isNotFound(e)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    public int countPatientsByName(String name) {
+        LOG.infof("Counting patients by name: %s", name);
+        FhirBundle bundle = upstream(client -> client.countPatients(name));
+        return bundle != null ? bundle.total : 0;
+    }
+
+    public int countPatientsByCondition(String condition) {
+        LOG.infof("Counting patients by condition: %s", condition);
+        ConditionCodes codes = terminology.codesFor(condition).await().indefinitely();
+        return countSubjects("Condition", codes != null
+                ? (offset, count) -> upstream(client -> terminology.timedBlocking(true,
+                        () -> client.searchConditionSubjectsByCode(codes.code(), codes.codeBelow(), count, offset)))
+                : (offset, count) -> upstream(client -> terminology.timedBlocking(false,
+                        () -> client.searchConditionSubjects(condition, count, offset))));
+    }
+
+    public int countPatientsByPractitionerId(String practitionerIdOrIdentifier) {
+        LOG.infof("Counting patients by practitioner: %s", practitionerIdOrIdentifier);
+        String actualPractitionerId = resolvePractitionerId(practitionerIdOrIdentifier);
+        if (actualPractitionerId == null) {
+            return 0;
+        }
+
+        String practitionerReference = PractitionerLookup.reference(actualPractitionerId);
+        return countSubjects("Encounter", (offset, count) -> upstream(client ->
+                client.searchEncounterSubjectsByPractitioner(practitionerReference, count, offset)));
+    }
+
+    public int countEncountersByPractitioner(String practitionerIdOrIdentifier, String date) {
+        LOG.infof("Counting encounters by practitioner: %s, date: %s", practitionerIdOrIdentifier, date);
+        String actualPractitionerId = resolvePractitionerId(practitionerIdOrIdentifier);
+        if (actualPractitionerId == null) {
+            return 0;
+        }
+
+        boolean hasDate = date != null && !date.trim().isEmpty();
+        FhirBundle bundle = upstream(client -> client.countEncountersByPractitioner(actualPractitionerId, hasDate ? date : null));
+        return bundle != null ? bundle.total : 0;
+    }
+
+    private List<PatientSearchResult> loadPatientsByName(String name, PageRequest page) {
+        FhirBundle bundle = page.isPaged()
+                ? searchWindow(page, (count, offset) -> upstream(client ->
+                        client.searchPatients(name, count, offset, page.fhirSort(SearchService.PATIENT_SORT_FIELDS))))
+                : upstream(client -> client.searchPatients(name));
+
+        return page.afterFhirOffset().collect(FhirMapper.bundleToPatientList(bundle), page.order(SearchService.PATIENT_ORDER));
+    }
+
+    private List<PatientSearchResult> loadPatientsByCondition(String condition, PageRequest page, Deadline deadline) {
+        FhirBundle conditionBundle = searchConditions(condition);
+        if (conditionBundle == null || conditionBundle.entry == null) {
+            return new ArrayList<>();
+        }
+
+        return page.collect(
+                enrichPatients(SearchService.subjectIds(conditionBundle), page, deadline),
+                page.order(SearchService.PATIENT_ORDER));
+    }
+
+    private List<PatientSearchResult> loadPatientsByPractitioner(
+            String practitionerIdOrIdentifier,
+            PageRequest page,
+            Deadline deadline,
+            String cacheKey) {
+        String actualPractitionerId = resolvePractitionerId(practitionerIdOrIdentifier);
+        if (actualPractitionerId == null) {
+            LOG.warnf("Could not resolve practitioner ID for: %s", practitionerIdOrIdentifier);
+            return new ArrayList<>();
+        }
+
+        String practitionerReference = PractitionerLookup.reference(actualPractitionerId);
+        postings.register(practitionerReference, CacheRegions.PATIENT_QUERIES, cacheKey);
+
+        FhirBundle encounterBundle;
+        try {
+            encounterBundle = upstream(client -> client.searchEncountersByPractitioner(practitionerReference));
+        } catch (RuntimeException e) {
+            encounterBundle = new FhirBundle();
+        }
+
+        Set<String> uniquePatientIds = SearchService.subjectIds(encounterBundle);
+        LOG.infof("Found %d unique patient IDs", uniquePatientIds.size());
+
+        return page.collect(enrichPatients(uniquePatientIds, page, deadline), page.order(SearchService.PATIENT_ORDER));
+    }
+
+    private List<EncounterSearchResult> loadEncountersByPractitioner(
+            String practitionerIdOrIdentifier,
+            String date,
+            PageRequest page,
+            Deadline deadline,
+            String cacheKey) {
+        String actualPractitionerId = resolvePractitionerId(practitionerIdOrIdentifier);
+        if (actualPractitionerId == null) {
+            LOG.warnf("Could not resolve practitioner ID for: %s", practitionerIdOrIdentifier);
+            return new ArrayList<>();
+        }
+
+        postings.register("Practitioner/" + actualPractitionerId, CacheRegions.ENCOUNTER_QUERIES, cacheKey);
+
+        boolean hasDate = date != null && !date.trim().isEmpty();
+        FhirBundle encounterBundle;
+        if (page.isPaged()) {
+            encounterBundle = searchWindow(page, (count, offset) -> upstream(client ->
+                    client.searchEncountersByPractitioner(
+                            actualPractitionerId,
+                            hasDate ? date : null,
+                            count,
+                            offset,
+                            page.fhirSort(SearchService.ENCOUNTER_SORT_FIELDS))));
+        } else if (hasDate) {
+            encounterBundle = upstream(client ->
+                    client.searchEncountersByPractitionerAndDate(actualPractitionerId, date));
+        } else {
+            encounterBundle = upstream(client ->
+                    client.searchEncountersByPractitionerOnly(actualPractitionerId));
+        }
+
+        if (encounterBundle == null || encounterBundle.entry == null) {
+            LOG.infof("No encounters found");
+            return new ArrayList<>();
+        }
+
+        List<EncounterSearchResult> encounters = FanOut.map(
+                executor.executor(),
+                encounterBundle.entry,
+                limiter.fanOut(page.enrichmentConcurrency()),
+                maxResults(page),
+                deadline,
+                entry -> toEncounterSearchResult(FhirMapper.toEncounterResource(entry.resource), actualPractitionerId),
+                entry -> FhirMapper.toEncounterSearchResult(FhirMapper.toEncounterResource(entry.resource), "", ""));
+
+        return page.afterFhirOffset().collect(encounters, page.order(SearchService.ENCOUNTER_ORDER));
+    }
+
+    private List<EncounterSearchResult> loadEncounterBucket(String practitionerId, DateRange range, Deadline deadline) {
+        EncounterBucket bucket = new EncounterBucket(practitionerId, range);
+        return cached(bucket.region(), bucket.key(), deadline, () -> {
+            FhirBundle bundle = upstream(client -> client.searchEncountersByPractitionerInRange(
+                    practitionerId, range.fhirDates(), rangeConfig.bucketCount(), "date"));
+            return bucket.complete(FanOut.map(
+                    executor.executor(),
+                    bucket.entries(bundle),
+                    limiter.fanOut(PageRequest.DEFAULT_CONCURRENCY),
+                    Integer.MAX_VALUE,
+                    deadline,
+                    entry -> toEncounterSearchResult(FhirMapper.toEncounterResource(entry.resource), practitionerId),
+                    entry -> FhirMapper.toEncounterSearchResult(FhirMapper.toEncounterResource(entry.resource), "", "")),
+                    postings);
+        });
+    }
+
+    private EncounterSearchResult toEncounterSearchResult(EncounterResource encounter, String practitionerId) {
+        if (encounter == null || encounter.subject() == null) {
+            return null;
+        }
+
+        String patientName;
+        try {
+            PatientResource patient = fetchPatient(encounter.subject().id());
+            patientName = patient != null ? patient.fullName() : "";
+        } catch (RuntimeException e) {
+            patientName = "";
+        }
+
+        String practitionerName;
+        try {
+            PractitionerResource practitioner = fetchPractitioner(practitionerId);
+            practitionerName = practitioner != null ? practitioner.fullName() : "";
+        } catch (RuntimeException e) {
+            practitionerName = "";
+        }
+
+        return FhirMapper.toEncounterSearchResult(encounter, patientName, practitionerName);
+    }
+
+    private List<PatientSearchResult> enrichPatients(Set<String> patientIds, PageRequest page, Deadline deadline) {
+        return FanOut.map(
+                executor.executor(),
+                patientIds,
+                limiter.fanOut(page.enrichmentConcurrency()),
+                maxResults(page),
+                deadline,
+                patientId -> {
+                    try {
+                        return FhirMapper.toPatientSearchResult(fetchPatient(patientId));
+                    } catch (RuntimeException e) {
+                        return null;
+                    }
+                },
+                FhirMapper::toUnenrichedPatientSearchResult);
+    }
+
+    // Without a sort the first window() results make the page, as in PageRequest.collect
+    private static int maxResults(PageRequest page) {
+        return page.limit() != null && page.sortField() == null ? page.window() : Integer.MAX_VALUE;
+    }
+
+    private String resolvePractitionerId(String idOrIdentifier) {
+        String direct = PractitionerLookup.directId(idOrIdentifier);
+        if (direct != null) {
+            return direct;
+        }
+        if (negative.isMissing(NegativeLookupCache.practitionerIdentifier(idOrIdentifier))) {
+            LOG.debugf("No practitioner with identifier %s (known miss)", idOrIdentifier);
+            return null;
+        }
+
+        LOG.infof("Searching practitioner by identifier: %s", idOrIdentifier);
+        try {
+            return PractitionerLookup.resolved(idOrIdentifier,
+                    upstream(client -> client.searchPractitionerByIdentifier(idOrIdentifier)), negative);
+        } catch (RuntimeException e) {
+            LOG.errorf("Error resolving practitioner identifier %s: %s", idOrIdentifier, e.getMessage());
+            return null;
+        }
+    }
+
+    private FhirBundle searchConditions(String condition) {
+        ConditionCodes codes = terminology.codesFor(condition).await().indefinitely();
+        if (codes != null) {
+            return upstream(client -> terminology.timedBlocking(true,
+                    () -> client.searchConditionsByCode(codes.code(), codes.codeBelow())));
+        }
+        FhirBundle bundle = upstream(client -> terminology.timedBlocking(false, () -> client.searchConditions(condition)));
+        terminology.learn(condition, bundle).await().indefinitely();
+        return bundle;
+    }
+
+    private DoctorPatientsResult loadDoctorPatients(String practitionerId) {
+        DoctorPanel panel = DoctorPanel.of(practitionerId, upstream(client -> client.searchEncountersWithParticipants(
+                "Practitioner/" + practitionerId, panelConfig.maxEncounters())));
+        if (panel.truncated()) {
+            LOG.warnf("Practitioner %s has more than %d encounters, panel built from the first ones",
+                    practitionerId, panelConfig.maxEncounters());
+        }
+        cachePatients(panel.included());
+
+        PractitionerResource practitioner = panel.practitioner();
+        if (practitioner != null) {
+            cache.put(CacheRegions.PRACTITIONERS, practitionerId, practitioner).await().indefinitely();
+        } else {
+            practitioner = fetchPractitioner(practitionerId);
+        }
+
+        List<List<String>> batches = panel.missingPatientBatches();
+        Map<String, PatientResource> read = new HashMap<>();
+        FanOut.map(
+                executor.executor(),
+                batches,
+                limiter.fanOut(Math.max(1, batches.size())),
+                Integer.MAX_VALUE,
+                this::fetchPatients)
+                .forEach(read::putAll);
+
+        DoctorPatientsResult result = panel.result(practitioner, read);
+        postings.registerDoctorPatients(practitionerId, result);
+        return result;
+    }
+
+    private FhirBundle searchConditionsWithSubjects(ConditionQuery query, PageRequest page) {
+        String sort = page.fhirSort(SearchService.CONDITION_SORT_FIELDS);
+        if (query.text() == null) {
+            return searchWindow(page, (count, offset) -> upstream(client -> client.searchConditionsWithSubjects(
+                    null, query.code(), null, query.subject(), count, offset, sort)));
+        }
+
+        ConditionCodes codes = terminology.codesFor(query.text()).await().indefinitely();
+        if (codes != null) {
+            return searchWindow(page, (count, offset) -> upstream(client -> terminology.timedBlocking(true,
+                    () -> client.searchConditionsWithSubjects(
+                            null, codes.code(), codes.codeBelow(), query.subject(), count, offset, sort))));
+        }
+        FhirBundle bundle = searchWindow(page, (count, offset) -> upstream(client -> terminology.timedBlocking(false,
+                () -> client.searchConditionsWithSubjects(
+                        query.text(), null, null, query.subject(), count, offset, sort))));
+        if (query.patientId() == null) {
+            terminology.learn(query.text(), bundle).await().indefinitely();
+        }
+        return bundle;
+    }
+
+    private Map<String, PatientResource> fetchPatients(List<String> patientIds) {
+        List<String> unknown = negative.unknownPatients(patientIds);
+        if (unknown.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            Map<String, PatientResource> patients = FhirMapper.patientsById(
+                    upstream(client -> client.getPatients(String.join(",", unknown), unknown.size())));
+            negative.patientsRead(unknown, patients);
+            cachePatients(patients);
+            return patients;
+        } catch (RuntimeException e) {
+            LOG.warnf("Could not read %d patients: %s", patientIds.size(), e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private void cachePatients(Map<String, PatientResource> patients) {
+        patients.forEach((id, patient) -> {
+            try {
+                cache.put(CacheRegions.PATIENTS, id, patient).await().indefinitely();
+            } catch (RuntimeException e) {
+                LOG.debugf("Could not cache patient %s: %s", id, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * A page's FHIR rows, read in the requests {@link PageRequest#fhirPage} asks for one after
+     * another and joined in search order. A short answer means the search has no more rows.
+     */
+    private FhirBundle searchWindow(PageRequest page, BiFunction<Integer, Integer, FhirBundle> search) {
+        List<FhirBundle> pages = new ArrayList<>();
+        int requested = 0;
+        PageRequest.FhirPage request;
+        while ((request = page.fhirPage(requested, fhirConfig.maxPageSize())) != null) {
+            FhirBundle bundle = search.apply(request.count(), request.offset());
+            pages.add(bundle);
+            if (bundle == null || bundle.entry == null || bundle.entry.size() < request.count()) {
+                break;
+            }
+            requested += request.count();
+        }
+        return FhirMapper.concat(pages);
+    }
+
+    /**
+     * Distinct subjects over all pages of a subject projection, read at the FHIR maximum
+     * page size until a page comes back short.
+     */
+    private int countSubjects(String matchType, BiFunction<Integer, Integer, FhirBundle> page) {
+        int size = fhirConfig.maxPageSize();
+        Set<String> ids = new HashSet<>();
+        for (int offset = 0; ; offset += size) {
+            FhirBundle bundle = page.apply(offset, size);
+            ids.addAll(SearchService.subjectIds(bundle));
+            if (FhirMapper.resourcesOfType(bundle, matchType).size() < size) {
+                return ids.size();
+            }
+        }
+    }
+
+    private <T> T upstream(Function<BlockingFhirClient, T> request) {
+        return limiter.callBlocking(() -> router.callBlocking(request));
+    }
+
+    private PatientResource fetchPatient(String patientId) {
+        String missKey = NegativeLookupCache.patient(patientId);
+        return cached(CacheRegions.PATIENTS, patientId, () -> {
+            if (negative.isMissing(missKey)) {
+                return null;
+            }
+            try {
+                PatientResource patient = FhirMapper.toPatientResource(upstream(client -> client.getPatient(patientId)));
+                negative.found(missKey);
+                return patient;
+            } catch (RuntimeException e) {
+                if (SearchService.isNotFound(e)) {
+                    negative.missing(missKey);
+                }
+                throw e;
+            }
+        });
+    }
+
+    private PractitionerResource fetchPractitioner(String practitionerId) {
+        return cached(CacheRegions.PRACTITIONERS, practitionerId, () ->
+                FhirMapper.toPractitionerResource(upstream(client -> client.getPractitioner(practitionerId))));
+    }
+
+    private List<PatientSearchResult> cachedPatientQuery(
+            String key,
+            String bucket,
+            Deadline deadline,
+            Supplier<List<PatientSearchResult>> loader) {
+        return cached(CacheRegions.PATIENT_QUERIES, key, deadline, () -> {
+            List<PatientSearchResult> results = loader.get();
+            postings.registerPatientQuery(key, bucket, results);
+            return results;
+        });
+    }
+
+    private <V> V cached(CacheRegion<V> region, String key, Supplier<V> loader) {
+        return cached(region, key, Deadline.NONE, loader);
+    }
+
+    // A result cut short by its deadline is returned but never cached
+    private <V> V cached(CacheRegion<V> region, String key, Deadline deadline, Supplier<V> loader) {
+        V value = cache.get(region, key).await().indefinitely();
+        if (value != null) {
+            return value;
+        }
+
+        value = loader.get();
+        if (value != null && !deadline.isPartial()) {
+            cache.put(region, key, value).await().indefinitely();
+        }
+        return value;
+    }
+}
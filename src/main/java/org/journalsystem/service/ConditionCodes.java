@@ -0,0 +1,31 @@
+package org.journalsystem.service;
+
+/**
+ * Tokens a condition search runs as. Bundled terms name a concept together with everything
+ * below it in its code system, so they are sent as {@code code:below}; codes typed by the
+ * user or learned from a search result are matched exactly with {@code code}.
+ */
+public record ConditionCodes(String tokens, boolean below) {
+
+    public static ConditionCodes exact(String tokens) {
+        return tokens != null ? new ConditionCodes(tokens, false) : null;
+    }
+
+    public static ConditionCodes withDescendants(String tokens) {
+        return tokens != null ? new ConditionCodes(tokens, true) : null;
+    }
+
+    /**
+     * The FHIR {@code code} parameter, or null.
+     */
+    public String code() {
+        return below ? null : tokens;
+    }
+
+    /**
+     * The FHIR {@code code:below} parameter, or null.
+     */
+    public String codeBelow() {
+        return below ? tokens : null;
+    }
+}
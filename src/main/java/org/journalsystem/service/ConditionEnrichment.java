@@ -0,0 +1,101 @@
+package org.journalsystem.service;
+
+import org.journalsystem.dto.ConditionSearchResult;
+import org.journalsystem.dto.fhir.ConditionResource;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.journalsystem.dto.fhir.PatientResource;
+import org.journalsystem.mapper.FhirMapper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The conditions of one {@code _include=Condition:subject} search, split into those whose
+ * patient came with the search and those whose patient still has to be read. The missing
+ * patients are read in {@link PatientBatches}, so naming every condition takes a number of
+ * FHIR calls independent of the number of conditions.
+ */
+final class ConditionEnrichment {
+
+    private final List<ConditionResource> conditions = new ArrayList<>();
+    private final List<ConditionSearchResult> named = new ArrayList<>();
+    private final Map<String, List<ConditionResource>> waiting = new LinkedHashMap<>();
+    private final Map<String, PatientResource> included;
+
+    private ConditionEnrichment(Map<String, PatientResource> included) {
+        this.included = included;
+    }
+
+    static ConditionEnrichment of(FhirBundle bundle) {
+        ConditionEnrichment enrichment = new ConditionEnrichment(FhirMapper.patientsById(bundle));
+        for (FhirBundle.FhirResource resource : FhirMapper.resourcesOfType(bundle, "Condition")) {
+            ConditionResource condition = FhirMapper.toConditionResource(resource);
+            enrichment.conditions.add(condition);
+            String patientId = patientId(condition);
+            PatientResource patient = patientId != null ? enrichment.included.get(patientId) : null;
+            if (patientId == null || patient != null) {
+                enrichment.named.add(FhirMapper.toConditionSearchResult(condition, patient != null ? patient.fullName() : ""));
+            } else {
+                enrichment.waiting.computeIfAbsent(patientId, id -> new ArrayList<>()).add(condition);
+            }
+        }
+        return enrichment;
+    }
+
+    /**
+     * Patients that came with the search, to be put in the patient cache.
+     */
+    Map<String, PatientResource> included() {
+        return included;
+    }
+
+    /**
+     * Conditions whose patient name is already known.
+     */
+    List<ConditionSearchResult> named() {
+        return named;
+    }
+
+    List<List<String>> missingPatientBatches() {
+        return PatientBatches.of(new ArrayList<>(waiting.keySet()));
+    }
+
+    /**
+     * Every condition in the order of the search, named from the included patients and what
+     * the batch lookups found.
+     */
+    List<ConditionSearchResult> inOrder(Map<String, PatientResource> found) {
+        List<ConditionSearchResult> results = new ArrayList<>(conditions.size());
+        for (ConditionResource condition : conditions) {
+            String patientId = patientId(condition);
+            PatientResource patient = patientId == null ? null
+                    : included.getOrDefault(patientId, found.get(patientId));
+            results.add(FhirMapper.toConditionSearchResult(condition, patient != null ? patient.fullName() : ""));
+        }
+        return results;
+    }
+
+    /**
+     * The conditions of a batch's patients, named from what the batch lookup found. A patient
+     * FHIR did not return leaves the name empty.
+     */
+    List<ConditionSearchResult> name(List<String> batch, Map<String, PatientResource> found) {
+        List<ConditionSearchResult> results = new ArrayList<>();
+        for (String patientId : batch) {
+            PatientResource patient = found.get(patientId);
+            String patientName = patient != null ? patient.fullName() : "";
+            for (ConditionResource condition : waiting.getOrDefault(patientId, List.of())) {
+                results.add(FhirMapper.toConditionSearchResult(condition, patientName));
+            }
+        }
+        return results;
+    }
+
+    private static String patientId(ConditionResource condition) {
+        return condition.subject() != null && condition.subject().isType("Patient")
+                ? condition.subject().id()
+                : null;
+    }
+}
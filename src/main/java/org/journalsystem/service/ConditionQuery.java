@@ -0,0 +1,41 @@
+package org.journalsystem.service;
+
+/**
+ * Criteria of a condition search: free text or {@code system|code} tokens, optionally limited
+ * to one patient, or all conditions of one patient.
+ */
+public record ConditionQuery(String text, String code, String patientId) {
+
+    public static ConditionQuery of(String text, String code, String patientId) {
+        String trimmedText = blankToNull(text);
+        String trimmedCode = blankToNull(code);
+        String trimmedPatient = blankToNull(patientId);
+
+        if (trimmedText == null && trimmedCode == null && trimmedPatient == null) {
+            throw new IllegalArgumentException("Please provide 'text', 'code', or 'patientId' query parameter");
+        }
+        if (trimmedText != null && trimmedCode != null) {
+            throw new IllegalArgumentException("Use either 'text' or 'code'");
+        }
+        if (trimmedPatient != null && trimmedPatient.startsWith("Patient/")) {
+            trimmedPatient = trimmedPatient.substring("Patient/".length());
+        }
+        return new ConditionQuery(trimmedText, trimmedCode, trimmedPatient);
+    }
+
+    /**
+     * The FHIR {@code subject} parameter, or null for conditions of any patient.
+     */
+    public String subject() {
+        return patientId != null ? "Patient/" + patientId : null;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    @Override
+    public String toString() {
+        return "text=" + text + ", code=" + code + ", patientId=" + patientId;
+    }
+}
@@ -0,0 +1,76 @@
+package org.journalsystem.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inclusive range of calendar days for encounter searches.
+ */
+public record DateRange(LocalDate from, LocalDate to) {
+
+    public static final int MAX_DAYS = 732;
+
+    public static DateRange of(String from, String to) {
+        if (from == null || from.isBlank() || to == null || to.isBlank()) {
+            throw new IllegalArgumentException("'from' and 'to' must be given together");
+        }
+
+        DateRange range = new DateRange(parse("from", from), parse("to", to));
+        if (range.to.isBefore(range.from)) {
+            throw new IllegalArgumentException("'to' must not be before 'from'");
+        }
+        if (range.days() > MAX_DAYS) {
+            throw new IllegalArgumentException("A date range may span at most " + MAX_DAYS + " days");
+        }
+        return range;
+    }
+
+    private static LocalDate parse(String name, String value) {
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("'" + name + "' must be a date such as 2024-01-31");
+        }
+    }
+
+    public long days() {
+        return ChronoUnit.DAYS.between(from, to) + 1;
+    }
+
+    /**
+     * Consecutive sub-ranges of at most {@code days} days covering this range, earliest first.
+     */
+    public List<DateRange> buckets(int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("A bucket must span at least 1 day, not " + days);
+        }
+        List<DateRange> buckets = new ArrayList<>();
+        for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(days)) {
+            LocalDate end = start.plusDays(days - 1);
+            buckets.add(new DateRange(start, end.isAfter(to) ? to : end));
+        }
+        return buckets;
+    }
+
+    /**
+     * FHIR {@code date} parameters matching this range: {@code ge<from>} and {@code lt<to + 1>}.
+     */
+    public List<String> fhirDates() {
+        return List.of("ge" + from, "lt" + to.plusDays(1));
+    }
+
+    /**
+     * Whether the whole range lies before the given day.
+     */
+    public boolean isBefore(LocalDate day) {
+        return to.isBefore(day);
+    }
+
+    @Override
+    public String toString() {
+        return from + ".." + to;
+    }
+}
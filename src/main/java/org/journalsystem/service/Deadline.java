@@ -0,0 +1,66 @@
+package org.journalsystem.service;
+
+import io.smallrye.mutiny.Uni;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Latency budget of one search. Enrichment lookups still running when it expires are
+ * replaced by a fallback (the item with its unenriched fields left empty) and counted as
+ * pending, so one slow upstream read no longer decides the response time. The lookups
+ * themselves keep running and still fill the cache for the next request.
+ */
+public final class Deadline {
+
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long deadlineNanos;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    public boolean isBounded() {
+        return this != NONE;
+    }
+
+    public long remainingNanos() {
+        return isBounded() ? Math.max(0, deadlineNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Item of {@code work}, or of {@code fallback} if work has not finished by the deadline.
+     */
+    public <T> Uni<T> bound(Uni<T> work, Supplier<T> fallback) {
+        if (!isBounded()) {
+            return work;
+        }
+
+        Uni<T> shared = work.memoize().indefinitely();
+        return Uni.createFrom().deferred(() -> {
+            // Subscribed separately so that timing out below does not cancel the lookup
+            shared.subscribe().with(item -> { }, failure -> { });
+            return shared.ifNoItem().after(Duration.ofNanos(Math.max(1, remainingNanos())))
+                    .recoverWithItem(fallback);
+        });
+    }
+
+    public void countPending() {
+        pending.incrementAndGet();
+    }
+
+    public int pending() {
+        return pending.get();
+    }
+
+    public boolean isPartial() {
+        return pending.get() > 0;
+    }
+}
@@ -0,0 +1,107 @@
+package org.journalsystem.service;
+
+import org.journalsystem.dto.DoctorPatientsResult;
+import org.journalsystem.dto.PatientSearchResult;
+import org.journalsystem.dto.fhir.EncounterResource;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.journalsystem.dto.fhir.PatientResource;
+import org.journalsystem.dto.fhir.PractitionerResource;
+import org.journalsystem.mapper.FhirMapper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What one {@code Encounter?participant=...&_include=Encounter:subject&_include=Encounter:participant}
+ * search says about a practitioner's panel: the practitioner, the distinct patients of their
+ * encounters, and which of those patients the search did not include.
+ */
+final class DoctorPanel {
+
+    private final String practitionerId;
+    private final PractitionerResource practitioner;
+    private final Map<String, PatientResource> included;
+    private final Set<String> patientIds = new LinkedHashSet<>();
+    private final boolean truncated;
+
+    private DoctorPanel(String practitionerId, FhirBundle bundle) {
+        this.practitionerId = practitionerId;
+        this.included = FhirMapper.patientsById(bundle);
+
+        PractitionerResource found = null;
+        for (FhirBundle.FhirResource resource : FhirMapper.resourcesOfType(bundle, "Practitioner")) {
+            if (practitionerId.equals(resource.id)) {
+                found = FhirMapper.toPractitionerResource(resource);
+                break;
+            }
+        }
+        this.practitioner = found;
+
+        List<FhirBundle.FhirResource> encounters = FhirMapper.resourcesOfType(bundle, "Encounter");
+        for (FhirBundle.FhirResource resource : encounters) {
+            EncounterResource encounter = FhirMapper.toEncounterResource(resource);
+            if (encounter.subject() != null && encounter.subject().isType("Patient")) {
+                patientIds.add(encounter.subject().id());
+            }
+        }
+        this.truncated = bundle != null && bundle.total > encounters.size();
+    }
+
+    static DoctorPanel of(String practitionerId, FhirBundle bundle) {
+        return new DoctorPanel(practitionerId, bundle);
+    }
+
+    /**
+     * The practitioner as included with the encounters, or null when they have none.
+     */
+    PractitionerResource practitioner() {
+        return practitioner;
+    }
+
+    Map<String, PatientResource> included() {
+        return included;
+    }
+
+    /**
+     * True when the practitioner has more encounters than the search returned.
+     */
+    boolean truncated() {
+        return truncated;
+    }
+
+    List<List<String>> missingPatientBatches() {
+        List<String> missing = new ArrayList<>();
+        for (String patientId : patientIds) {
+            if (!included.containsKey(patientId)) {
+                missing.add(patientId);
+            }
+        }
+        return PatientBatches.of(missing);
+    }
+
+    /**
+     * The panel, patients sorted by name. A patient neither included nor found in
+     * {@code read} is listed with its id only.
+     */
+    DoctorPatientsResult result(PractitionerResource practitioner, Map<String, PatientResource> read) {
+        List<PatientSearchResult> patients = new ArrayList<>(patientIds.size());
+        for (String patientId : patientIds) {
+            PatientResource patient = included.get(patientId);
+            if (patient == null) {
+                patient = read.get(patientId);
+            }
+            patients.add(patient != null
+                    ? FhirMapper.toPatientSearchResult(patient)
+                    : FhirMapper.toUnenrichedPatientSearchResult(patientId));
+        }
+        patients.sort(SearchService.PATIENT_ORDER.get("lastName"));
+
+        return new DoctorPatientsResult(
+                practitionerId,
+                practitioner != null ? practitioner.fullName() : "",
+                patients);
+    }
+}
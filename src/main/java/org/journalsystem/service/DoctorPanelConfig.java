@@ -0,0 +1,30 @@
+package org.journalsystem.service;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "search.doctors")
+public interface DoctorPanelConfig {
+
+    /**
+     * FHIR {@code _count} of the encounter search a panel is built from; a practitioner with
+     * more encounters gets a panel from the first ones (and a log line).
+     */
+    @WithDefault("1000")
+    int maxEncounters();
+
+    /**
+     * How often the panels of active doctors are reloaded in the background. Keep it below
+     * {@code search.cache.query-ttl}, so active doctors never wait for a reload.
+     */
+    @WithDefault("1M")
+    Duration refreshInterval();
+
+    /**
+     * A doctor whose panel was requested within this window counts as active.
+     */
+    @WithDefault("15M")
+    Duration activeWindow();
+}
@@ -0,0 +1,72 @@
+package org.journalsystem.service;
+
+import org.journalsystem.limit.UpstreamLimiter;
+
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the cached panels of doctors who are currently using the application fresh: every
+ * {@code search.doctors.refresh-interval} the panels requested within the last
+ * {@code active-window} are reloaded from FHIR and replace the cached ones, so those doctors
+ * are answered from cache even after the query TTL has passed.
+ */
+@ApplicationScoped
+public class DoctorPanelRefresher {
+
+    private static final Logger LOG = Logger.getLogger(DoctorPanelRefresher.class);
+
+    @Inject
+    DoctorPanelConfig config;
+
+    @Inject
+    SearchService searchService;
+
+    @Inject
+    UpstreamLimiter limiter;
+
+    // Practitioner id -> when their panel was last requested, in System.nanoTime()
+    private final Map<String, Long> lastRequested = new ConcurrentHashMap<>();
+
+    public void touch(String practitionerId) {
+        lastRequested.put(practitionerId, System.nanoTime());
+    }
+
+    public List<String> active() {
+        long cutoff = System.nanoTime() - config.activeWindow().toNanos();
+        lastRequested.values().removeIf(requested -> requested - cutoff < 0);
+        return List.copyOf(lastRequested.keySet());
+    }
+
+    @Scheduled(every = "{search.doctors.refresh-interval}",
+            delayed = "{search.doctors.refresh-interval}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refreshActive() {
+        List<String> practitionerIds = active();
+        if (practitionerIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            Multi.createFrom().iterable(practitionerIds)
+                    .onItem().transformToUni(id -> searchService.refreshDoctorPatients(id)
+                            .onFailure().recoverWithItem(e -> {
+                                LOG.debugf("Could not refresh panel of practitioner %s: %s", id, e.getMessage());
+                                return null;
+                            }))
+                    .merge(limiter.fanOut(practitionerIds.size()))
+                    .collect().last()
+                    .await().atMost(config.refreshInterval());
+            LOG.debugf("Refreshed %d doctor panels", practitionerIds.size());
+        } catch (RuntimeException e) {
+            LOG.warnf("Doctor panel refresh did not finish: %s", e.toString());
+        }
+    }
+}
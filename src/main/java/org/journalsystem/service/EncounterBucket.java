@@ -0,0 +1,88 @@
+package org.journalsystem.service;
+
+import org.journalsystem.cache.CacheRegion;
+import org.journalsystem.cache.CacheRegions;
+import org.journalsystem.cache.QueryPostings;
+import org.journalsystem.dto.EncounterSearchResult;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.jboss.logging.Logger;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One bucket of an encounter range search: a practitioner's encounters in one slice of the
+ * range, cached under its own key. A bucket lying entirely before today no longer changes and
+ * is cached as history.
+ */
+record EncounterBucket(String practitionerId, DateRange range) {
+
+    private static final Logger LOG = Logger.getLogger(EncounterBucket.class);
+
+    String key() {
+        return "encounters|" + practitionerId + "|" + range;
+    }
+
+    CacheRegion<List<EncounterSearchResult>> region() {
+        return range.isBefore(LocalDate.now()) ? CacheRegions.ENCOUNTER_HISTORY : CacheRegions.ENCOUNTER_QUERIES;
+    }
+
+    /**
+     * The encounters FHIR returned for the bucket, with a warning when it cut them off at
+     * {@code search.encounters.range.bucket-count}.
+     */
+    List<FhirBundle.BundleEntry> entries(FhirBundle bundle) {
+        if (bundle == null || bundle.entry == null) {
+            return List.of();
+        }
+        if (bundle.total > bundle.entry.size()) {
+            LOG.warnf("Encounters of %s in %s cut off at %d of %d",
+                    practitionerId, range, bundle.entry.size(), bundle.total);
+        }
+        return bundle.entry;
+    }
+
+    /**
+     * The bucket's results in start time order, posted under the practitioner and every
+     * resource they show.
+     */
+    List<EncounterSearchResult> complete(List<EncounterSearchResult> results, QueryPostings postings) {
+        List<EncounterSearchResult> sorted = new ArrayList<>(results);
+        sorted.sort(SearchService.ENCOUNTER_ORDER.get("startTime"));
+        postings.register(PractitionerLookup.reference(practitionerId), region(), key());
+        postings.registerEncounterQuery(region(), key(), sorted);
+        return sorted;
+    }
+
+    /**
+     * Puts buckets arriving in any order back in range order, keeping an encounter that spans
+     * two buckets only in the first. Not thread-safe.
+     */
+    static final class Merge {
+
+        private final Map<Integer, List<EncounterSearchResult>> arrived = new HashMap<>();
+        private final Set<String> emitted = new HashSet<>();
+        private int next;
+
+        /**
+         * The encounters that follow in range order now that bucket {@code index} arrived.
+         */
+        List<EncounterSearchResult> arrive(int index, List<EncounterSearchResult> results) {
+            arrived.put(index, results);
+            List<EncounterSearchResult> ready = new ArrayList<>();
+            while (arrived.containsKey(next)) {
+                for (EncounterSearchResult encounter : arrived.remove(next++)) {
+                    if (emitted.add(encounter.id())) {
+                        ready.add(encounter);
+                    }
+                }
+            }
+            return ready;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.journalsystem.service;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "search.encounters.range")
+public interface EncounterRangeConfig {
+
+    /**
+     * Days per sub-query when an encounter date range is split up; at least 1, checked at startup.
+     */
+    @WithDefault("7")
+    int bucketDays();
+
+    /**
+     * FHIR {@code _count} per sub-query; a bucket holding more encounters is cut off (and logged).
+     */
+    @WithDefault("500")
+    int bucketCount();
+}
@@ -0,0 +1,21 @@
+package org.journalsystem.service;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "search.export")
+public interface ExportConfig {
+
+    /**
+     * FHIR {@code _count} per page read by an export, at most {@code search.fhir.max-page-size};
+     * an export holds one page in memory.
+     */
+    @WithDefault("500")
+    int pageSize();
+
+    /**
+     * Patient batch reads one export keeps in flight while naming a page of conditions.
+     */
+    @WithDefault("4")
+    int enrichmentConcurrency();
+}
@@ -0,0 +1,38 @@
+package org.journalsystem.service;
+
+import java.util.Locale;
+
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson; charset=UTF-8"),
+    CSV("text/csv; charset=UTF-8");
+
+    private final String mediaType;
+
+    ExportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public String fileExtension() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The format named by a {@code format} parameter; NDJSON when none is given.
+     */
+    public static ExportFormat of(String name) {
+        if (name == null || name.isBlank()) {
+            return NDJSON;
+        }
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name.trim())) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("'format' must be one of [ndjson, csv]");
+    }
+}
@@ -0,0 +1,116 @@
+package org.journalsystem.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.journalsystem.dto.ConditionSearchResult;
+import org.journalsystem.dto.PatientSearchResult;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Turns a stream of export rows into response chunks of {@link #CHUNK_ROWS} NDJSON or CSV
+ * lines. Rows are only requested as chunks are written, so the response applies backpressure
+ * all the way to the FHIR pages behind the rows.
+ */
+@ApplicationScoped
+public class ExportWriter {
+
+    static final int CHUNK_ROWS = 100;
+
+    public static final List<Column<ConditionSearchResult>> CONDITION_COLUMNS = List.of(
+            new Column<>("id", ConditionSearchResult::id),
+            new Column<>("patientId", ConditionSearchResult::patientId),
+            new Column<>("patientName", ConditionSearchResult::patientName),
+            new Column<>("description", ConditionSearchResult::description),
+            new Column<>("recordedDate", ConditionSearchResult::recordedDate));
+
+    public static final List<Column<PatientSearchResult>> PATIENT_COLUMNS = List.of(
+            new Column<>("id", PatientSearchResult::id),
+            new Column<>("firstName", PatientSearchResult::firstName),
+            new Column<>("lastName", PatientSearchResult::lastName),
+            new Column<>("socialSecurityNumber", PatientSearchResult::socialSecurityNumber),
+            new Column<>("dateOfBirth", PatientSearchResult::dateOfBirth));
+
+    public record Column<T>(String name, Function<T, String> value) {}
+
+    private final ObjectMapper mapper;
+
+    @Inject
+    public ExportWriter(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * The rows as NDJSON, or as CSV with a header line of the column names. The header is
+     * written on resumed exports too.
+     */
+    public <T> Multi<String> write(ExportFormat format, List<Column<T>> columns, Multi<T> rows) {
+        Multi<String> body = rows.group().intoLists().of(CHUNK_ROWS)
+                .onItem().transform(chunk -> {
+                    StringBuilder lines = new StringBuilder(chunk.size() * 128);
+                    for (T row : chunk) {
+                        if (format == ExportFormat.CSV) {
+                            csvLine(lines, columns, row);
+                        } else {
+                            lines.append(json(row)).append('\n');
+                        }
+                    }
+                    return lines.toString();
+                });
+
+        if (format != ExportFormat.CSV) {
+            return body;
+        }
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                header.append(',');
+            }
+            header.append(columns.get(i).name());
+        }
+        return Multi.createBy().concatenating().streams(
+                Multi.createFrom().item(header.append("\r\n").toString()), body);
+    }
+
+    private String json(Object row) {
+        try {
+            return mapper.writeValueAsString(row);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> void csvLine(StringBuilder lines, List<Column<T>> columns, T row) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                lines.append(',');
+            }
+            csvField(lines, columns.get(i).value().apply(row));
+        }
+        lines.append("\r\n");
+    }
+
+    /**
+     * RFC 4180: fields holding a separator, quote or line break are quoted, quotes doubled.
+     */
+    static void csvField(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
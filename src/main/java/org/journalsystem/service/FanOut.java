@@ -0,0 +1,117 @@
+package org.journalsystem.service;
+
+import org.journalsystem.limit.CallerContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Structured fan-out for the blocking execution mode, the counterpart of
+ * {@code transformToUni(...).merge(width)}: runs at most {@code width} tasks at once, returns
+ * the non-null results in completion order and stops once {@code maxResults} have arrived.
+ * Tasks are cancelled when it returns or throws, except those overtaken by the
+ * {@link Deadline}: their items are answered by {@code late} and they finish in the
+ * background so their reads still reach the cache.
+ */
+final class FanOut {
+
+    private FanOut() {
+    }
+
+    static <T, R> List<R> map(
+            ExecutorService executor,
+            Collection<T> items,
+            int width,
+            int maxResults,
+            Function<T, R> task) {
+        return map(executor, items, width, maxResults, Deadline.NONE, task, null);
+    }
+
+    static <T, R> List<R> map(
+            ExecutorService executor,
+            Collection<T> items,
+            int width,
+            int maxResults,
+            Deadline deadline,
+            Function<T, R> task,
+            Function<T, R> late) {
+        String principal = CallerContext.principal();
+        ExecutorCompletionService<R> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<R>, T> running = new LinkedHashMap<>();
+        List<R> results = new ArrayList<>();
+        Iterator<T> remaining = items.iterator();
+
+        try {
+            while (running.size() < width && remaining.hasNext()) {
+                T item = remaining.next();
+                running.put(completion.submit(() -> CallerContext.runAs(principal, () -> task.apply(item))), item);
+            }
+
+            while (!running.isEmpty() && results.size() < maxResults) {
+                Future<R> done = deadline.isBounded()
+                        ? completion.poll(deadline.remainingNanos(), TimeUnit.NANOSECONDS)
+                        : completion.take();
+                if (done == null) {
+                    collectLate(running.values(), remaining, results, maxResults, deadline, late);
+                    running.clear();
+                    return results;
+                }
+
+                R result = done.get();
+                running.remove(done);
+                if (result != null) {
+                    results.add(result);
+                }
+                if (remaining.hasNext() && results.size() < maxResults) {
+                    T item = remaining.next();
+                    running.put(completion.submit(() -> CallerContext.runAs(principal, () -> task.apply(item))), item);
+                }
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for fan-out results");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<R> future : running.keySet()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static <T, R> void collectLate(
+            Collection<T> running,
+            Iterator<T> remaining,
+            List<R> results,
+            int maxResults,
+            Deadline deadline,
+            Function<T, R> late) {
+        List<T> lateItems = new ArrayList<>(running);
+        remaining.forEachRemaining(lateItems::add);
+        for (T item : lateItems) {
+            if (results.size() >= maxResults) {
+                return;
+            }
+            R result = late.apply(item);
+            if (result != null) {
+                deadline.countPending();
+                results.add(result);
+            }
+        }
+    }
+}
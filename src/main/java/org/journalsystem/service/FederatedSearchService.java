@@ -0,0 +1,120 @@
+package org.journalsystem.service;
+
+import org.journalsystem.client.FhirClient;
+import org.journalsystem.client.ReplicaClientSettings;
+import org.journalsystem.dto.FederatedPatientResult;
+import org.journalsystem.dto.PatientSearchResult;
+import org.journalsystem.mapper.FhirMapper;
+
+import io.quarkus.rest.client.reactive.QuarkusRestClientBuilder;
+import io.quarkus.restclient.config.RestClientsConfig;
+import io.quarkus.tls.TlsConfigurationRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.journalsystem.limit.LimitExceededException;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Searches the {@code fhir-api} server and every server in {@code search.federation.sources}
+ * at once. Results are emitted as each source answers, so a slow source never holds back a
+ * fast one, and a patient held by several sources (same personnummer) is emitted only once,
+ * tagged with the source that answered first. A source that fails, exceeds its timeout or
+ * already has {@code max-concurrent} calls in flight simply contributes nothing. Source clients
+ * get the same {@code quarkus.rest-client} settings as the {@code fhir-api} client.
+ */
+@ApplicationScoped
+public class FederatedSearchService {
+
+    private static final Logger LOG = Logger.getLogger(FederatedSearchService.class);
+
+    @Inject
+    FederationConfig config;
+
+    @Inject
+    SearchService searchService;
+
+    @Inject
+    RestClientsConfig restClients;
+
+    @Inject
+    TlsConfigurationRegistry tls;
+
+    List<Source> sources = List.of();
+
+    @PostConstruct
+    void init() {
+        List<Source> configured = new ArrayList<>();
+        ReplicaClientSettings settings = new ReplicaClientSettings(restClients, tls);
+        for (Map.Entry<String, FederationConfig.Source> entry : config.sources().entrySet()) {
+            FederationConfig.Source source = entry.getValue();
+            FhirClient client = settings.apply(QuarkusRestClientBuilder.newBuilder()
+                    .baseUri(URI.create(source.url())))
+                    .build(FhirClient.class);
+            configured.add(new Source(entry.getKey(), client, source.timeout().orElse(config.timeout()),
+                    new Semaphore(source.maxConcurrent().orElse(config.maxConcurrent()))));
+        }
+        sources = List.copyOf(configured);
+        if (!sources.isEmpty()) {
+            LOG.infof("Federated search over %s and %d further sources", config.localSource(), sources.size());
+        }
+    }
+
+    public Multi<FederatedPatientResult> searchPatientsByName(String name) {
+        LOG.infof("Federated search for patients by name: %s", name);
+
+        List<Multi<FederatedPatientResult>> perSource = new ArrayList<>(sources.size() + 1);
+        perSource.add(fromSource(config.localSource(), config.timeout(), searchService.searchPatientsByName(name)));
+        for (Source source : sources) {
+            Uni<List<PatientSearchResult>> search = Uni.createFrom()
+                    .deferred(() -> {
+                        if (!source.calls().tryAcquire()) {
+                            return Uni.createFrom().failure(
+                                    new LimitExceededException("Too many calls in flight to " + source.name()));
+                        }
+                        // Also released when the timeout cancels the call
+                        return source.client().searchPatients(name)
+                                .onTermination().invoke(source.calls()::release);
+                    })
+                    .map(FhirMapper::bundleToPatientList);
+            perSource.add(fromSource(source.name(), source.timeout(), search));
+        }
+
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        return Multi.createBy().merging().streams(perSource)
+                .select().where(result -> seen.add(identity(result)));
+    }
+
+    private Multi<FederatedPatientResult> fromSource(String source, Duration timeout, Uni<List<PatientSearchResult>> search) {
+        return search
+                .ifNoItem().after(timeout).fail()
+                .onFailure().recoverWithItem(e -> {
+                    LOG.warnf("Federated source %s gave no results: %s", source, e.toString());
+                    return List.of();
+                })
+                .onItem().transformToMulti(patients -> Multi.createFrom().iterable(patients))
+                .map(patient -> new FederatedPatientResult(source, patient.id(), patient.firstName(),
+                        patient.lastName(), patient.socialSecurityNumber(), patient.dateOfBirth()));
+    }
+
+    /**
+     * Personnummer when the source has one; ids are only unique within a source.
+     */
+    private static String identity(FederatedPatientResult result) {
+        String ssn = result.socialSecurityNumber();
+        return ssn != null && !ssn.isBlank() ? ssn : result.source() + "/" + result.id();
+    }
+
+    record Source(String name, FhirClient client, Duration timeout, Semaphore calls) {}
+}
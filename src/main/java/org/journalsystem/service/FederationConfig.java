@@ -0,0 +1,52 @@
+package org.journalsystem.service;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+@ConfigMapping(prefix = "search.federation")
+public interface FederationConfig {
+
+    /**
+     * Source name reported for results from the {@code fhir-api} server.
+     */
+    @WithDefault("local")
+    String localSource();
+
+    /**
+     * How long a source may take before a federated search goes on without it.
+     */
+    @WithDefault("3S")
+    Duration timeout();
+
+    /**
+     * Calls a source may have in flight; a search that finds them all taken goes on without
+     * that source. Federated calls bypass the adaptive {@code search.limiter}, which is tuned
+     * to the {@code fhir-api} server, so this keeps a slow source from piling up requests.
+     */
+    @WithDefault("16")
+    int maxConcurrent();
+
+    /**
+     * Further FHIR servers to search, keyed by the source name reported on their results.
+     */
+    Map<String, Source> sources();
+
+    interface Source {
+
+        String url();
+
+        /**
+         * Overrides {@link FederationConfig#timeout()} for this source.
+         */
+        Optional<Duration> timeout();
+
+        /**
+         * Overrides {@link FederationConfig#maxConcurrent()} for this source.
+         */
+        Optional<Integer> maxConcurrent();
+    }
+}
@@ -0,0 +1,158 @@
+package org.journalsystem.service;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+public record PageRequest(Integer limit, int offset, String sortField, boolean descending) {
+
+    public static final int MAX_LIMIT = 500;
+
+    // Mutiny's default merge concurrency, used when nothing bounds the fan-out
+    static final int DEFAULT_CONCURRENCY = 256;
+
+    private static final PageRequest UNPAGED = new PageRequest(null, 0, null, false);
+
+    public static PageRequest unpaged() {
+        return UNPAGED;
+    }
+
+    public static PageRequest of(Integer limit, Integer offset, String sort, Map<String, String> sortFields) {
+        if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+            throw new IllegalArgumentException("'limit' must be between 1 and " + MAX_LIMIT);
+        }
+        if (offset != null && offset < 0) {
+            throw new IllegalArgumentException("'offset' must not be negative");
+        }
+
+        String sortField = null;
+        boolean descending = false;
+        if (sort != null && !sort.isBlank()) {
+            sortField = sort.trim();
+            if (sortField.startsWith("-")) {
+                descending = true;
+                sortField = sortField.substring(1);
+            }
+            if (!sortFields.containsKey(sortField)) {
+                throw new IllegalArgumentException("'sort' must be one of " + sortFields.keySet());
+            }
+        }
+        if (offset != null && offset > 0 && sortField == null) {
+            // Unsorted results arrive in enrichment completion order, which differs per request
+            throw new IllegalArgumentException("'offset' requires 'sort'");
+        }
+
+        return new PageRequest(limit, offset != null ? offset : 0, sortField, descending);
+    }
+
+    public boolean isPaged() {
+        return limit != null || offset > 0 || sortField != null;
+    }
+
+    public String cacheKey() {
+        return limit + ":" + offset + ":" + (descending ? "-" : "") + sortField;
+    }
+
+    public int window() {
+        return limit != null ? offset + limit : Integer.MAX_VALUE;
+    }
+
+    /**
+     * The next FHIR request for this page once {@code read} of its rows have been requested:
+     * {@code _count} never above {@code maxPageSize}, since servers silently cap it, at the
+     * following {@code _offset}. Null once the limit is reached; without a limit there is
+     * always a next request, and the first short answer ends the search. Offsets always come
+     * with a sort, so FHIR skips them and {@link #afterFhirOffset()} finishes the page.
+     */
+    public FhirPage fhirPage(int read, int maxPageSize) {
+        if (limit == null) {
+            return new FhirPage(maxPageSize, offset + read);
+        }
+        return read < limit ? new FhirPage(Math.min(maxPageSize, limit - read), offset + read) : null;
+    }
+
+    /**
+     * This page as left to collect from results FHIR already applied the offset to.
+     */
+    public PageRequest afterFhirOffset() {
+        return offset == 0 ? this : new PageRequest(limit, 0, sortField, descending);
+    }
+
+    /**
+     * The FHIR {@code _sort} for the sort field, with {@code _id} breaking ties so FHIR cuts
+     * the window at the same place on every request.
+     */
+    public String fhirSort(Map<String, String> sortFields) {
+        if (sortField == null) {
+            return null;
+        }
+        String param = sortFields.get(sortField);
+        return (descending ? "-" + param : param) + ",_id";
+    }
+
+    public <T> Comparator<T> order(Map<String, Comparator<T>> comparators) {
+        if (sortField == null) {
+            return null;
+        }
+        Comparator<T> order = comparators.get(sortField);
+        return descending ? order.reversed() : order;
+    }
+
+    /**
+     * Concurrency for enrichment fan-outs. Without a sort the page is complete once
+     * {@link #window()} results arrive, so only that many lookups are kept in flight and the
+     * remaining ones are never requested.
+     */
+    public int enrichmentConcurrency() {
+        if (limit != null && sortField == null) {
+            return Math.min(window(), DEFAULT_CONCURRENCY);
+        }
+        return DEFAULT_CONCURRENCY;
+    }
+
+    public <T> Uni<List<T>> collect(Multi<T> results, Comparator<T> order) {
+        if (!isPaged()) {
+            return results.collect().asList();
+        }
+
+        if (order != null) {
+            return results.collect()
+                    .in(() -> new TopK<>(window(), order), TopK::offer)
+                    .onItem().transform(topK -> slice(topK.toSortedList()));
+        }
+
+        Multi<T> bounded = limit != null ? results.select().first(window()) : results;
+        return bounded.collect().asList()
+                .onItem().transform(this::slice);
+    }
+
+    /**
+     * Same as {@link #collect(Multi, Comparator)} for results that are already complete.
+     */
+    public <T> List<T> collect(List<T> results, Comparator<T> order) {
+        if (!isPaged()) {
+            return results;
+        }
+        if (order != null) {
+            TopK<T> topK = new TopK<>(window(), order);
+            results.forEach(topK::offer);
+            return slice(topK.toSortedList());
+        }
+        return slice(results);
+    }
+
+    public record FhirPage(int count, int offset) {
+    }
+
+    private <T> List<T> slice(List<T> items) {
+        if (offset >= items.size()) {
+            return new ArrayList<>();
+        }
+        int end = (int) Math.min(items.size(), (long) offset + (limit != null ? limit : items.size()));
+        return new ArrayList<>(items.subList(offset, end));
+    }
+}
@@ -0,0 +1,25 @@
+package org.journalsystem.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits patient ids into batches for {@code Patient?_id=...}, so reading the patients a
+ * search did not include costs a few FHIR calls however many there are.
+ */
+final class PatientBatches {
+
+    // Patients per batched _id lookup, well below common URL length limits
+    static final int SIZE = 100;
+
+    private PatientBatches() {
+    }
+
+    static List<List<String>> of(List<String> patientIds) {
+        List<List<String>> batches = new ArrayList<>();
+        for (int start = 0; start < patientIds.size(); start += SIZE) {
+            batches.add(patientIds.subList(start, Math.min(patientIds.size(), start + SIZE)));
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,47 @@
+package org.journalsystem.service;
+
+import org.journalsystem.cache.NegativeLookupCache;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.journalsystem.dto.fhir.ResourceRef;
+import org.jboss.logging.Logger;
+
+/**
+ * How {@link SearchService} and {@link BlockingSearchService} turn what a caller passes for a
+ * practitioner into a FHIR id: ids and {@code Practitioner/<id>} references are taken as they
+ * are, anything else is an identifier searched for, whose answer (a miss included) is
+ * remembered in the {@link NegativeLookupCache}.
+ */
+final class PractitionerLookup {
+
+    private static final Logger LOG = Logger.getLogger(PractitionerLookup.class);
+
+    private PractitionerLookup() {
+    }
+
+    /**
+     * The id when {@code idOrIdentifier} already is one, otherwise null.
+     */
+    static String directId(String idOrIdentifier) {
+        return idOrIdentifier.contains("-") ? ResourceRef.parse(idOrIdentifier).id() : null;
+    }
+
+    static String reference(String practitionerId) {
+        return practitionerId.startsWith("Practitioner/") ? practitionerId : "Practitioner/" + practitionerId;
+    }
+
+    /**
+     * The id the identifier search found, or null, recorded as a hit or a miss.
+     */
+    static String resolved(String identifier, FhirBundle bundle, NegativeLookupCache negative) {
+        String missKey = NegativeLookupCache.practitionerIdentifier(identifier);
+        if (bundle != null && bundle.entry != null && !bundle.entry.isEmpty()) {
+            String practitionerId = bundle.entry.get(0).resource.id;
+            LOG.infof("Resolved identifier %s to ID: %s", identifier, practitionerId);
+            negative.found(missKey);
+            return practitionerId;
+        }
+        LOG.warnf("No practitioner found with identifier: %s", identifier);
+        negative.missing(missKey);
+        return null;
+    }
+}
@@ -0,0 +1,134 @@
+package org.journalsystem.service;
+
+import org.journalsystem.cache.CacheRegions;
+import org.journalsystem.cache.CacheStore;
+import org.journalsystem.cache.NegativeLookupCache;
+import org.journalsystem.cache.QueryPostings;
+import org.journalsystem.dto.fhir.*;
+import org.journalsystem.mapper.FhirMapper;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Applies FHIR change notifications to the cache: changed Patients and Practitioners are
+ * written through, and only the cached query results that depend on the changed resource
+ * are invalidated.
+ */
+@ApplicationScoped
+public class ResourceChangeService {
+
+    private static final Logger LOG = Logger.getLogger(ResourceChangeService.class);
+
+    @Inject
+    CacheStore cache;
+
+    @Inject
+    QueryPostings postings;
+
+    @Inject
+    NegativeLookupCache negative;
+
+    public Uni<Integer> onBundle(FhirBundle bundle) {
+        if (bundle == null || bundle.entry == null) {
+            return Uni.createFrom().item(0);
+        }
+
+        return Multi.createFrom().iterable(bundle.entry)
+                .onItem().transformToUniAndConcatenate(entry -> {
+                    if (entry.request != null && "DELETE".equalsIgnoreCase(entry.request.method)) {
+                        ResourceRef ref = ResourceRef.parse(entry.request.url != null ? entry.request.url : entry.fullUrl);
+                        return ref != null ? onDeleted(ref.type(), ref.id()) : Uni.createFrom().item(0);
+                    }
+                    return onUpdated(entry.resource);
+                })
+                .collect().with(Collectors.summingInt(Integer::intValue));
+    }
+
+    public Uni<Integer> onUpdated(FhirBundle.FhirResource resource) {
+        if (resource == null || resource.resourceType == null || resource.id == null) {
+            return Uni.createFrom().item(0);
+        }
+
+        LOG.debugf("FHIR change: %s/%s updated", resource.resourceType, resource.id);
+
+        switch (resource.resourceType) {
+            case "Patient":
+                negative.invalidate(NegativeLookupCache.patient(resource.id));
+                return cache.put(CacheRegions.PATIENTS, resource.id, FhirMapper.toPatientResource(resource))
+                        .chain(() -> invalidate(List.of("Patient/" + resource.id, QueryPostings.NAME_QUERIES)));
+            case "Practitioner":
+                if (resource.identifier != null) {
+                    resource.identifier.stream()
+                            .filter(identifier -> identifier.value != null)
+                            .forEach(identifier -> negative.invalidate(
+                                    NegativeLookupCache.practitionerIdentifier(identifier.value)));
+                }
+                return cache.put(CacheRegions.PRACTITIONERS, resource.id, FhirMapper.toPractitionerResource(resource))
+                        .chain(() -> invalidate(List.of("Practitioner/" + resource.id)));
+            case "Condition":
+                return invalidate(List.of(QueryPostings.CONDITION_QUERIES));
+            case "Encounter": {
+                List<String> buckets = new ArrayList<>();
+                buckets.add("Encounter/" + resource.id);
+                EncounterResource encounter = FhirMapper.toEncounterResource(resource);
+                if (encounter.practitioner() != null) {
+                    buckets.add(encounter.practitioner().toString());
+                }
+                return invalidate(buckets);
+            }
+            default:
+                return Uni.createFrom().item(0);
+        }
+    }
+
+    public Uni<Integer> onDeleted(String resourceType, String id) {
+        if (resourceType == null || id == null) {
+            return Uni.createFrom().item(0);
+        }
+
+        LOG.debugf("FHIR change: %s/%s deleted", resourceType, id);
+
+        switch (resourceType) {
+            case "Patient":
+                return cache.invalidate(CacheRegions.PATIENTS, id)
+                        .chain(() -> invalidate(List.of("Patient/" + id)));
+            case "Practitioner":
+                return cache.invalidate(CacheRegions.PRACTITIONERS, id)
+                        .chain(() -> invalidate(List.of("Practitioner/" + id)));
+            case "Condition":
+                return invalidate(List.of(QueryPostings.CONDITION_QUERIES));
+            case "Encounter":
+                return invalidate(List.of("Encounter/" + id));
+            default:
+                return Uni.createFrom().item(0);
+        }
+    }
+
+    /**
+     * Notifications without a payload do not say what changed, so every cached query result
+     * and every remembered miss is dropped. Cached Patients and Practitioners are kept; they
+     * expire by TTL.
+     */
+    public Uni<Integer> onUnknownChange() {
+        LOG.info("FHIR change notification without payload, dropping all cached query results");
+        negative.clear();
+        return cache.invalidateAll(CacheRegions.PATIENT_QUERIES)
+                .chain(() -> cache.invalidateAll(CacheRegions.ENCOUNTER_QUERIES))
+                .chain(() -> cache.invalidateAll(CacheRegions.DOCTOR_PANELS))
+                .replaceWith(-1);
+    }
+
+    private Uni<Integer> invalidate(List<String> buckets) {
+        return Multi.createFrom().iterable(buckets)
+                .onItem().transformToUniAndConcatenate(postings::invalidate)
+                .collect().with(Collectors.summingInt(Integer::intValue));
+    }
+}
@@ -0,0 +1,100 @@
+package org.journalsystem.service;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.journalsystem.limit.AdmissionConfig;
+import org.journalsystem.limit.CallerContext;
+import org.journalsystem.limit.LimiterConfig;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Threads for the blocking execution mode. Uses a virtual thread per task when the JVM has
+ * them (Java 21+) and falls back to a fixed pool of platform threads otherwise, sized for
+ * every admitted search plus the most FHIR calls the limiter lets through, so fan-out tasks
+ * always find a thread while their searches wait for them. Further tasks queue for a thread.
+ */
+@ApplicationScoped
+public class SearchExecutor {
+
+    private static final Logger LOG = Logger.getLogger(SearchExecutor.class);
+
+    @Inject
+    AdmissionConfig admissionConfig;
+
+    @Inject
+    LimiterConfig limiterConfig;
+
+    private ExecutorService executor;
+    private boolean virtual;
+
+    @PostConstruct
+    void init() {
+        ExecutorService virtualExecutor = newVirtualThreadExecutor();
+        virtual = virtualExecutor != null;
+        if (virtual) {
+            executor = virtualExecutor;
+            LOG.debug("Blocking searches run on virtual threads");
+        } else {
+            int threads = admissionConfig.maxConcurrent() + limiterConfig.maxLimit();
+            executor = newPlatformThreadPool(threads);
+            LOG.debugf("Blocking searches run on up to %d platform threads", threads);
+        }
+    }
+
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Runs a blocking search off the calling thread, on behalf of the given principal.
+     */
+    public <T> Uni<T> submit(String principal, Supplier<T> search) {
+        return Uni.createFrom().item(() -> CallerContext.runAs(principal, search))
+                .runSubscriptionOn(executor);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadPool(int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), platformThreads());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ThreadFactory platformThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "search-blocking-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,39 +1,134 @@
 package org.journalsystem.service;
 
+import org.journalsystem.cache.CacheRegion;
+import org.journalsystem.cache.CacheRegions;
+import org.journalsystem.cache.CacheStore;
+import org.journalsystem.cache.NegativeLookupCache;
+import org.journalsystem.cache.QueryPostings;
 import org.journalsystem.client.FhirClient;
+import org.journalsystem.client.FhirReplicaConfig;
+import org.journalsystem.client.FhirRouter;
 import org.journalsystem.dto.*;
-import org.journalsystem.dto.fhir.FhirBundle;
+import org.journalsystem.dto.fhir.*;
+import org.journalsystem.limit.UpstreamLimiter;
 import org.journalsystem.mapper.FhirMapper;
 
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.Multi;
+import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
+import jakarta.ws.rs.WebApplicationException;
 import org.jboss.logging.Logger;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class SearchService {
 
+    private static final Comparator<String> NULLS_LAST =
+            Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER);
+
     private static final Logger LOG = Logger.getLogger(SearchService.class);
 
+    // Client-facing sort field -> FHIR _sort parameter
+    public static final Map<String, String> PATIENT_SORT_FIELDS = Map.of(
+            "lastName", "family",
+            "firstName", "given",
+            "birthDate", "birthdate"
+    );
+
+    public static final Map<String, String> ENCOUNTER_SORT_FIELDS = Map.of(
+            "startTime", "date"
+    );
+
+    public static final Map<String, String> CONDITION_SORT_FIELDS = Map.of(
+            "recordedDate", "recorded-date"
+    );
+
+    // Each order ends on the id, so results that tie on the sort field always come in the same
+    // order and consecutive pages neither overlap nor skip any of them
+    static final Map<String, Comparator<PatientSearchResult>> PATIENT_ORDER = Map.of(
+            "lastName", Comparator.comparing(PatientSearchResult::lastName, NULLS_LAST)
+                    .thenComparing(PatientSearchResult::firstName, NULLS_LAST)
+                    .thenComparing(PatientSearchResult::id, NULLS_LAST),
+            "firstName", Comparator.comparing(PatientSearchResult::firstName, NULLS_LAST)
+                    .thenComparing(PatientSearchResult::lastName, NULLS_LAST)
+                    .thenComparing(PatientSearchResult::id, NULLS_LAST),
+            "birthDate", Comparator.comparing(PatientSearchResult::dateOfBirth, NULLS_LAST)
+                    .thenComparing(PatientSearchResult::id, NULLS_LAST)
+    );
+
+    static final Map<String, Comparator<EncounterSearchResult>> ENCOUNTER_ORDER = Map.of(
+            "startTime", Comparator.comparing(EncounterSearchResult::startTime, NULLS_LAST)
+                    .thenComparing(EncounterSearchResult::id, NULLS_LAST)
+    );
+
+    static final Map<String, Comparator<ConditionSearchResult>> CONDITION_ORDER = Map.of(
+            "recordedDate", Comparator.comparing(ConditionSearchResult::recordedDate, NULLS_LAST)
+                    .thenComparing(ConditionSearchResult::id, NULLS_LAST)
+    );
+
+    @Inject
+    FhirRouter router;
+
+    @Inject
+    CacheStore cache;
+
+    @Inject
+    QueryPostings postings;
+
     @Inject
-    @RestClient
-    FhirClient fhirClient;
+    UpstreamLimiter limiter;
+
+    @Inject
+    TerminologyService terminology;
+
+    @Inject
+    EncounterRangeConfig rangeConfig;
+
+    @Inject
+    DoctorPanelConfig panelConfig;
+
+    @Inject
+    ExportConfig exportConfig;
+
+    @Inject
+    NegativeLookupCache negative;
+
+    @Inject
+    FhirReplicaConfig fhirConfig;
+
+    void onStart(@Observes StartupEvent event) {
+        // Fail at startup rather than on the first range search
+        if (rangeConfig.bucketDays() < 1) {
+            throw new IllegalStateException("search.encounters.range.bucket-days must be at least 1, not "
+                    + rangeConfig.bucketDays());
+        }
+    }
 
     public Uni<List<PatientSearchResult>> searchPatientsByName(String name) {
+        return searchPatientsByName(name, PageRequest.unpaged());
+    }
+
+    public Uni<List<PatientSearchResult>> searchPatientsByName(String name, PageRequest page) {
         LOG.infof("Searching patients by name: %s", name);
 
-        return fhirClient.searchPatients(name)
-                .onItem().transform(bundle -> {
-                    LOG.infof("Bundle total field: %d", bundle != null ? bundle.total : 0);
-                    return FhirMapper.bundleToPatientList(bundle);
-                })
+        String key = queryKey("name", name, page);
+        return cachedPatientQuery(key, QueryPostings.NAME_QUERIES, Deadline.NONE, () -> loadPatientsByName(name, page))
                 .onFailure().recoverWithItem(e -> {
                     LOG.error("Error searching patients", e);
                     return new ArrayList<PatientSearchResult>();
@@ -41,32 +136,22 @@ public class SearchService {
     }
 
     public Uni<List<PatientSearchResult>> searchPatientsByCondition(String condition) {
-        LOG.infof("Searching patients by condition: %s", condition);
-
-        return fhirClient.searchConditions(condition)
-                .onItem().transformToUni(conditionBundle -> {
-                    if (conditionBundle == null || conditionBundle.entry == null) {
-                        return Uni.createFrom().item(new ArrayList<PatientSearchResult>());
-                    }
+        return searchPatientsByCondition(condition, PageRequest.unpaged());
+    }
 
-                    Set<String> patientIds = new HashSet<>();
-                    for (FhirBundle.BundleEntry entry : conditionBundle.entry) {
-                        if (entry.resource.subject != null && entry.resource.subject.reference != null) {
-                            String patientId = entry.resource.subject.reference.replace("Patient/", "");
-                            patientIds.add(patientId);
-                        }
-                    }
+    public Uni<List<PatientSearchResult>> searchPatientsByCondition(String condition, PageRequest page) {
+        return searchPatientsByCondition(condition, page, Deadline.NONE);
+    }
 
-                    Multi<PatientSearchResult> patientsMulti = Multi.createFrom().iterable(patientIds)
-                            .onItem().transformToUniAndMerge(patientId ->
-                                    fhirClient.getPatient(patientId)
-                                            .onItem().transform(FhirMapper::toPatientSearchResult)
-                                            .onFailure().recoverWithNull()
-                            )
-                            .filter(result -> result != null);
+    public Uni<List<PatientSearchResult>> searchPatientsByCondition(
+            String condition,
+            PageRequest page,
+            Deadline deadline) {
+        LOG.infof("Searching patients by condition: %s", condition);
 
-                    return patientsMulti.collect().asList();
-                })
+        String key = queryKey("condition", condition, page);
+        return cachedPatientQuery(key, QueryPostings.CONDITION_QUERIES, deadline, () ->
+                        loadPatientsByCondition(condition, page, deadline))
                 .onFailure().recoverWithItem(e -> {
                     LOG.errorf("Error searching patients by condition: %s", e.getMessage());
                     return new ArrayList<PatientSearchResult>();
@@ -74,48 +159,24 @@ public class SearchService {
     }
 
     public Uni<List<PatientSearchResult>> searchPatientsByPractitionerId(String practitionerIdOrIdentifier) {
-        LOG.infof("Searching patients by practitioner ID/identifier: %s", practitionerIdOrIdentifier);
-
-        return resolvePractitionerIdReactive(practitionerIdOrIdentifier)
-                .onItem().transformToUni(actualPractitionerId -> {
-                    if (actualPractitionerId == null) {
-                        LOG.warnf("Could not resolve practitioner ID for: %s", practitionerIdOrIdentifier);
-                        return Uni.createFrom().item(new ArrayList<PatientSearchResult>());
-                    }
-
-                    String practitionerReference = actualPractitionerId.startsWith("Practitioner/")
-                            ? actualPractitionerId
-                            : "Practitioner/" + actualPractitionerId;
-
-                    LOG.infof("Searching with practitioner reference: %s", practitionerReference);
-
-                    return fhirClient.searchEncountersByPractitioner(practitionerReference)
-                            .onFailure().recoverWithItem(new FhirBundle())
-                            .onItem().transformToUni(encounterBundle -> {
-                                Set<String> uniquePatientIds = new HashSet<>();
-
-                                if (encounterBundle != null && encounterBundle.entry != null) {
-                                    for (FhirBundle.BundleEntry entry : encounterBundle.entry) {
-                                        if (entry.resource.subject != null && entry.resource.subject.reference != null) {
-                                            String patientId = entry.resource.subject.reference.replace("Patient/", "");
-                                            uniquePatientIds.add(patientId);
-                                        }
-                                    }
-                                }
+        return searchPatientsByPractitionerId(practitionerIdOrIdentifier, PageRequest.unpaged());
+    }
 
-                                LOG.infof("Found %d unique patient IDs", uniquePatientIds.size());
+    public Uni<List<PatientSearchResult>> searchPatientsByPractitionerId(
+            String practitionerIdOrIdentifier,
+            PageRequest page) {
+        return searchPatientsByPractitionerId(practitionerIdOrIdentifier, page, Deadline.NONE);
+    }
 
-                                Multi<PatientSearchResult> patientsMulti = Multi.createFrom().iterable(uniquePatientIds)
-                                        .onItem().transformToUniAndMerge(patientId ->
-                                                fhirClient.getPatient(patientId)
-                                                        .onItem().transform(FhirMapper::toPatientSearchResult)
-                                                        .onFailure().recoverWithNull()
-                                        )
-                                        .filter(result -> result != null);
+    public Uni<List<PatientSearchResult>> searchPatientsByPractitionerId(
+            String practitionerIdOrIdentifier,
+            PageRequest page,
+            Deadline deadline) {
+        LOG.infof("Searching patients by practitioner ID/identifier: %s", practitionerIdOrIdentifier);
 
-                                return patientsMulti.collect().asList();
-                            });
-                })
+        String key = queryKey("practitioner", practitionerIdOrIdentifier, page);
+        return cachedPatientQuery(key, null, deadline, () ->
+                        loadPatientsByPractitioner(practitionerIdOrIdentifier, page, deadline, key))
                 .onFailure().recoverWithItem(e -> {
                     LOG.errorf("Error searching patients by practitioner: %s", e.getMessage());
                     return new ArrayList<PatientSearchResult>();
@@ -123,22 +184,18 @@ public class SearchService {
     }
 
     private Uni<String> resolvePractitionerIdReactive(String idOrIdentifier) {
-        if (idOrIdentifier.contains("-")) {
-            return Uni.createFrom().item(idOrIdentifier.replace("Practitioner/", ""));
+        String direct = PractitionerLookup.directId(idOrIdentifier);
+        if (direct != null) {
+            return Uni.createFrom().item(direct);
+        }
+        if (negative.isMissing(NegativeLookupCache.practitionerIdentifier(idOrIdentifier))) {
+            LOG.debugf("No practitioner with identifier %s (known miss)", idOrIdentifier);
+            return Uni.createFrom().nullItem();
         }
 
         LOG.infof("Searching practitioner by identifier: %s", idOrIdentifier);
-        return fhirClient.searchPractitionerByIdentifier(idOrIdentifier)
-                .onItem().transform(bundle -> {
-                    if (bundle != null && bundle.entry != null && !bundle.entry.isEmpty()) {
-                        String practitionerId = bundle.entry.get(0).resource.id;
-                        LOG.infof("Resolved identifier %s to ID: %s", idOrIdentifier, practitionerId);
-                        return practitionerId;
-                    } else {
-                        LOG.warnf("No practitioner found with identifier: %s", idOrIdentifier);
-                        return null;
-                    }
-                })
+        return upstream(client -> client.searchPractitionerByIdentifier(idOrIdentifier))
+                .onItem().transform(bundle -> PractitionerLookup.resolved(idOrIdentifier, bundle, negative))
                 .onFailure().recoverWithItem(e -> {
                     LOG.errorf("Error resolving practitioner identifier %s: %s", idOrIdentifier, e.getMessage());
                     return null;
@@ -148,9 +205,326 @@ public class SearchService {
     public Uni<List<EncounterSearchResult>> searchEncountersByPractitioner(
             String practitionerIdOrIdentifier,
             String date) {
+        return searchEncountersByPractitioner(practitionerIdOrIdentifier, date, PageRequest.unpaged());
+    }
+
+    public Uni<List<EncounterSearchResult>> searchEncountersByPractitioner(
+            String practitionerIdOrIdentifier,
+            String date,
+            PageRequest page) {
+        return searchEncountersByPractitioner(practitionerIdOrIdentifier, date, page, Deadline.NONE);
+    }
+
+    public Uni<List<EncounterSearchResult>> searchEncountersByPractitioner(
+            String practitionerIdOrIdentifier,
+            String date,
+            PageRequest page,
+            Deadline deadline) {
 
         LOG.infof("Searching encounters by practitioner: %s, date: %s", practitionerIdOrIdentifier, date);
 
+        String key = queryKey("encounters", practitionerIdOrIdentifier + "|" + date, page);
+        return cachedEncounterQuery(key, deadline, () ->
+                        loadEncountersByPractitioner(practitionerIdOrIdentifier, date, page, deadline, key))
+                .onFailure().recoverWithItem(e -> {
+                    LOG.errorf("Error searching encounters by practitioner: %s", e.getMessage());
+                    return new ArrayList<EncounterSearchResult>();
+                });
+    }
+
+    public Uni<List<EncounterSearchResult>> searchEncountersByPractitionerInRange(
+            String practitionerIdOrIdentifier,
+            DateRange range,
+            PageRequest page,
+            Deadline deadline) {
+        return page.collect(streamEncountersByPractitioner(practitionerIdOrIdentifier, range, deadline),
+                        page.order(ENCOUNTER_ORDER))
+                .onFailure().recoverWithItem(e -> {
+                    LOG.errorf("Error searching encounters by practitioner in %s: %s", range, e.getMessage());
+                    return new ArrayList<EncounterSearchResult>();
+                });
+    }
+
+    /**
+     * The practitioner's encounters in the range, in start time order. The range is split into
+     * buckets of {@code search.encounters.range.bucket-days} that are queried in parallel; each
+     * bucket's encounters are emitted once it and every earlier bucket have arrived, and an
+     * encounter spanning two buckets only once. Buckets lying entirely before today are cached
+     * as history, the others like any other encounter query.
+     */
+    public Multi<EncounterSearchResult> streamEncountersByPractitioner(
+            String practitionerIdOrIdentifier,
+            DateRange range,
+            Deadline deadline) {
+        LOG.infof("Searching encounters by practitioner: %s, range: %s", practitionerIdOrIdentifier, range);
+
+        List<DateRange> buckets = range.buckets(rangeConfig.bucketDays());
+        return resolvePractitionerIdReactive(practitionerIdOrIdentifier)
+                .onItem().transformToMulti(actualPractitionerId -> {
+                    if (actualPractitionerId == null) {
+                        LOG.warnf("Could not resolve practitioner ID for: %s", practitionerIdOrIdentifier);
+                        return Multi.createFrom().empty();
+                    }
+
+                    EncounterBucket.Merge merge = new EncounterBucket.Merge();
+                    return Multi.createFrom().range(0, buckets.size())
+                            .onItem().transformToUni(index ->
+                                    loadEncounterBucket(actualPractitionerId, buckets.get(index), deadline)
+                                            .onItem().transform(results -> Map.entry(index, results)))
+                            .merge(limiter.fanOut(buckets.size()))
+                            // merge emits serially, so the reordering state needs no locking
+                            .onItem().transformToIterable(bucket -> merge.arrive(bucket.getKey(), bucket.getValue()));
+                });
+    }
+
+    private Uni<List<EncounterSearchResult>> loadEncounterBucket(String practitionerId, DateRange range, Deadline deadline) {
+        EncounterBucket bucket = new EncounterBucket(practitionerId, range);
+        return cachedQuery(bucket.region(), bucket.key(), deadline, () -> upstream(client ->
+                        client.searchEncountersByPractitionerInRange(
+                                practitionerId, range.fhirDates(), rangeConfig.bucketCount(), "date"))
+                .onItem().transformToUni(bundle -> Multi.createFrom().iterable(bucket.entries(bundle))
+                        .onItem().transformToUni(entry -> mapToEncounterSearchResultReactive(
+                                FhirMapper.toEncounterResource(entry.resource), practitionerId, deadline))
+                        .merge(limiter.fanOut(PageRequest.DEFAULT_CONCURRENCY))
+                        .filter(result -> result != null)
+                        .collect().asList())
+                .onItem().transform(results -> bucket.complete(results, postings)));
+    }
+
+    /**
+     * One page of {@link #streamConditions}, in the page's sort order.
+     */
+    public Uni<List<ConditionSearchResult>> searchConditions(ConditionQuery query, PageRequest page) {
+        return page.afterFhirOffset().collect(streamConditions(query, page), page.order(CONDITION_ORDER))
+                .onFailure().recoverWithItem(e -> {
+                    LOG.errorf("Error searching conditions (%s): %s", query, e.getMessage());
+                    return new ArrayList<ConditionSearchResult>();
+                });
+    }
+
+    /**
+     * Conditions with their patient's name. Patients come with the condition search through
+     * {@code _include}; the few it leaves out are read in batches, never one call per row.
+     * Conditions whose patient is known are emitted first, the others as their batch arrives.
+     */
+    public Multi<ConditionSearchResult> streamConditions(ConditionQuery query, PageRequest page) {
+        return searchConditionsWithSubjects(query, page)
+                .onItem().transformToMulti(bundle -> {
+                    ConditionEnrichment enrichment = ConditionEnrichment.of(bundle);
+                    List<List<String>> batches = enrichment.missingPatientBatches();
+                    if (!batches.isEmpty()) {
+                        LOG.debugf("Reading %d patients not included with their conditions",
+                                batches.stream().mapToInt(List::size).sum());
+                    }
+
+                    Multi<ConditionSearchResult> late = Multi.createFrom().iterable(batches)
+                            .onItem().transformToUni(batch -> fetchPatients(batch)
+                                    .onItem().transform(found -> enrichment.name(batch, found)))
+                            .merge(limiter.fanOut(Math.max(1, batches.size())))
+                            .onItem().transformToIterable(results -> results);
+
+                    return Multi.createBy().concatenating().streams(
+                            cachePatients(enrichment.included())
+                                    .onItem().transformToMulti(ignored -> Multi.createFrom().iterable(enrichment.named())),
+                            late);
+                });
+    }
+
+    /**
+     * Every condition matching the query, for exports. FHIR is read one page of
+     * {@code search.export.page-size} at a time, only when the consumer asks for more rows, so
+     * an export holds one page however many conditions match. Patient names are filled in as
+     * in {@link #streamConditions}, with at most {@code search.export.enrichment-concurrency}
+     * batch reads in flight. Rows keep FHIR's {@code _id} order, so an export cut off after
+     * {@code n} rows is resumed with {@code cursor} {@code n}.
+     */
+    public Multi<ConditionSearchResult> exportConditions(ConditionQuery query, int cursor) {
+        Uni<ConditionCodes> codes = query.text() != null
+                ? terminology.codesFor(query.text())
+                : Uni.createFrom().item(ConditionCodes.exact(query.code()));
+        return codes
+                .onItem().transformToMulti(tokens -> pages("Condition", cursor, exportConfig.pageSize(), (offset, count) ->
+                        upstream(client -> tokens == null
+                                ? client.searchConditionsPage(query.text(), null, null, query.subject(), count, offset)
+                                : client.searchConditionsPage(
+                                        null, tokens.code(), tokens.codeBelow(), query.subject(), count, offset))))
+                .onItem().transformToUniAndConcatenate(this::nameConditions)
+                .onItem().transformToIterable(rows -> rows);
+    }
+
+    /**
+     * Every patient whose name matches, for exports; paged and resumable like
+     * {@link #exportConditions}.
+     */
+    public Multi<PatientSearchResult> exportPatientsByName(String name, int cursor) {
+        return pages("Patient", cursor, exportConfig.pageSize(), (offset, count) ->
+                        upstream(client -> client.searchPatientsPage(name, count, offset)))
+                .onItem().transformToIterable(FhirMapper::bundleToPatientList);
+    }
+
+    /**
+     * A practitioner's patients, or null when the practitioner cannot be found. Built from one
+     * encounter search that includes the encounters' patients and the practitioner; only the
+     * patients it leaves out are read in batches, and the practitioner separately only when
+     * they have no encounters. Cached per practitioner.
+     */
+    public Uni<DoctorPatientsResult> searchDoctorPatients(String practitionerIdOrIdentifier) {
+        return resolvePractitionerIdReactive(practitionerIdOrIdentifier)
+                .onItem().transformToUni(practitionerId -> practitionerId == null
+                        ? Uni.createFrom().<DoctorPatientsResult>nullItem()
+                        : cachedQuery(CacheRegions.DOCTOR_PANELS, practitionerId, Deadline.NONE,
+                                () -> loadDoctorPatients(practitionerId)));
+    }
+
+    /**
+     * Reloads a practitioner's panel from FHIR into the cache, whether or not it is cached.
+     */
+    public Uni<DoctorPatientsResult> refreshDoctorPatients(String practitionerId) {
+        return loadDoctorPatients(practitionerId)
+                .call(panel -> panel != null
+                        ? cache.put(CacheRegions.DOCTOR_PANELS, practitionerId, panel)
+                        : Uni.createFrom().voidItem());
+    }
+
+    /**
+     * Number of patients a name search matches, from {@code Bundle.total} of a
+     * {@code _summary=count} query.
+     */
+    public Uni<Integer> countPatientsByName(String name) {
+        LOG.infof("Counting patients by name: %s", name);
+        return upstream(client -> client.countPatients(name))
+                .onItem().transform(bundle -> bundle != null ? bundle.total : 0);
+    }
+
+    /**
+     * Number of distinct patients {@link #searchPatientsByCondition(String)} returns, counted
+     * from the subjects of every matching Condition without fetching any Patient.
+     */
+    public Uni<Integer> countPatientsByCondition(String condition) {
+        LOG.infof("Counting patients by condition: %s", condition);
+        return terminology.codesFor(condition)
+                .onItem().transformToUni(codes -> countSubjects("Condition", codes != null
+                        ? (offset, count) -> upstream(client -> terminology.timed(true,
+                                client.searchConditionSubjectsByCode(codes.code(), codes.codeBelow(), count, offset)))
+                        : (offset, count) -> upstream(client -> terminology.timed(false,
+                                client.searchConditionSubjects(condition, count, offset)))));
+    }
+
+    /**
+     * Number of distinct patients {@link #searchPatientsByPractitionerId(String)} returns,
+     * counted from the subjects of every Encounter without fetching any Patient.
+     */
+    public Uni<Integer> countPatientsByPractitionerId(String practitionerIdOrIdentifier) {
+        LOG.infof("Counting patients by practitioner: %s", practitionerIdOrIdentifier);
+        return resolvePractitionerIdReactive(practitionerIdOrIdentifier)
+                .onItem().transformToUni(actualPractitionerId -> {
+                    if (actualPractitionerId == null) {
+                        return Uni.createFrom().item(0);
+                    }
+
+                    String practitionerReference = PractitionerLookup.reference(actualPractitionerId);
+                    return countSubjects("Encounter", (offset, count) -> upstream(client ->
+                            client.searchEncounterSubjectsByPractitioner(practitionerReference, count, offset)));
+                });
+    }
+
+    public Uni<Integer> countEncountersByPractitioner(String practitionerIdOrIdentifier, String date) {
+        LOG.infof("Counting encounters by practitioner: %s, date: %s", practitionerIdOrIdentifier, date);
+        boolean hasDate = date != null && !date.trim().isEmpty();
+        return resolvePractitionerIdReactive(practitionerIdOrIdentifier)
+                .onItem().transformToUni(actualPractitionerId -> actualPractitionerId == null
+                        ? Uni.createFrom().item(0)
+                        : upstream(client -> client.countEncountersByPractitioner(actualPractitionerId, hasDate ? date : null))
+                                .onItem().transform(bundle -> bundle != null ? bundle.total : 0));
+    }
+
+    /**
+     * Reads the practitioners into the cache. Returns how many could be loaded; practitioners
+     * FHIR does not answer for are skipped.
+     */
+    public Uni<Integer> preloadPractitioners(List<String> practitionerIds) {
+        if (practitionerIds.isEmpty()) {
+            return Uni.createFrom().item(0);
+        }
+        return Multi.createFrom().iterable(practitionerIds)
+                .onItem().transformToUni(id -> fetchPractitioner(id)
+                        .onItem().transform(practitioner -> practitioner != null ? 1 : 0)
+                        .onFailure().recoverWithItem(e -> {
+                            LOG.warnf("Could not preload practitioner %s: %s", id, e.getMessage());
+                            return 0;
+                        }))
+                .merge(limiter.fanOut(practitionerIds.size()))
+                .collect().with(Collectors.summingInt(Integer::intValue));
+    }
+
+    private Uni<List<PatientSearchResult>> loadPatientsByName(String name, PageRequest page) {
+        Uni<FhirBundle> bundleUni = page.isPaged()
+                ? searchWindow(page, (count, offset) -> upstream(client ->
+                        client.searchPatients(name, count, offset, page.fhirSort(PATIENT_SORT_FIELDS))))
+                : upstream(client -> client.searchPatients(name));
+
+        return bundleUni
+                .onItem().transformToUni(bundle -> {
+                    LOG.infof("Bundle total field: %d", bundle != null ? bundle.total : 0);
+                    return page.afterFhirOffset().collect(
+                            Multi.createFrom().iterable(FhirMapper.bundleToPatientList(bundle)),
+                            page.order(PATIENT_ORDER));
+                });
+    }
+
+    private Uni<List<PatientSearchResult>> loadPatientsByCondition(
+            String condition,
+            PageRequest page,
+            Deadline deadline) {
+        return searchConditions(condition)
+                .onItem().transformToUni(conditionBundle -> {
+                    if (conditionBundle == null || conditionBundle.entry == null) {
+                        return Uni.createFrom().item(new ArrayList<PatientSearchResult>());
+                    }
+
+                    Set<String> patientIds = subjectIds(conditionBundle);
+
+                    return page.collect(enrichPatients(patientIds, page, deadline), page.order(PATIENT_ORDER));
+                });
+    }
+
+    private Uni<List<PatientSearchResult>> loadPatientsByPractitioner(
+            String practitionerIdOrIdentifier,
+            PageRequest page,
+            Deadline deadline,
+            String cacheKey) {
+        return resolvePractitionerIdReactive(practitionerIdOrIdentifier)
+                .onItem().transformToUni(actualPractitionerId -> {
+                    if (actualPractitionerId == null) {
+                        LOG.warnf("Could not resolve practitioner ID for: %s", practitionerIdOrIdentifier);
+                        return Uni.createFrom().item(new ArrayList<PatientSearchResult>());
+                    }
+
+                    String practitionerReference = PractitionerLookup.reference(actualPractitionerId);
+                    postings.register(practitionerReference, CacheRegions.PATIENT_QUERIES, cacheKey);
+
+                    LOG.infof("Searching with practitioner reference: %s", practitionerReference);
+
+                    return upstream(client -> client.searchEncountersByPractitioner(practitionerReference))
+                            .onFailure().recoverWithItem(new FhirBundle())
+                            .onItem().transformToUni(encounterBundle -> {
+                                Set<String> uniquePatientIds = subjectIds(encounterBundle);
+
+                                LOG.infof("Found %d unique patient IDs", uniquePatientIds.size());
+
+                                return page.collect(
+                                        enrichPatients(uniquePatientIds, page, deadline),
+                                        page.order(PATIENT_ORDER));
+                            });
+                });
+    }
+
+    private Uni<List<EncounterSearchResult>> loadEncountersByPractitioner(
+            String practitionerIdOrIdentifier,
+            String date,
+            PageRequest page,
+            Deadline deadline,
+            String cacheKey) {
         return resolvePractitionerIdReactive(practitionerIdOrIdentifier)
                 .onItem().transformToUni(actualPractitionerId -> {
                     if (actualPractitionerId == null) {
@@ -159,14 +533,28 @@ public class SearchService {
                     }
 
                     LOG.infof("Resolved practitioner ID: %s", actualPractitionerId);
+                    postings.register("Practitioner/" + actualPractitionerId, CacheRegions.ENCOUNTER_QUERIES, cacheKey);
+
+                    boolean hasDate = date != null && !date.trim().isEmpty();
 
                     Uni<FhirBundle> encounterBundleUni;
-                    if (date != null && !date.trim().isEmpty()) {
+                    if (page.isPaged()) {
+                        LOG.infof("Searching encounters for practitioner %s, page %s", actualPractitionerId, page);
+                        encounterBundleUni = searchWindow(page, (count, offset) -> upstream(client ->
+                                client.searchEncountersByPractitioner(
+                                        actualPractitionerId,
+                                        hasDate ? date : null,
+                                        count,
+                                        offset,
+                                        page.fhirSort(ENCOUNTER_SORT_FIELDS))));
+                    } else if (hasDate) {
                         LOG.infof("Searching encounters for practitioner %s on date %s", actualPractitionerId, date);
-                        encounterBundleUni = fhirClient.searchEncountersByPractitionerAndDate(actualPractitionerId, date);
+                        encounterBundleUni = upstream(client ->
+                                client.searchEncountersByPractitionerAndDate(actualPractitionerId, date));
                     } else {
                         LOG.infof("Searching all encounters for practitioner %s", actualPractitionerId);
-                        encounterBundleUni = fhirClient.searchEncountersByPractitionerOnly(actualPractitionerId);
+                        encounterBundleUni = upstream(client ->
+                                client.searchEncountersByPractitionerOnly(actualPractitionerId));
                     }
 
                     return encounterBundleUni
@@ -179,43 +567,41 @@ public class SearchService {
                                 LOG.infof("Found %d encounters", encounterBundle.entry.size());
 
                                 Multi<EncounterSearchResult> encountersMulti = Multi.createFrom().iterable(encounterBundle.entry)
-                                        .onItem().transformToUniAndMerge(entry ->
-                                                mapToEncounterSearchResultReactive(entry.resource, actualPractitionerId)
+                                        .onItem().transformToUni(entry ->
+                                                mapToEncounterSearchResultReactive(
+                                                        FhirMapper.toEncounterResource(entry.resource),
+                                                        actualPractitionerId,
+                                                        deadline)
                                         )
+                                        .merge(limiter.fanOut(page.enrichmentConcurrency()))
                                         .filter(result -> result != null);
 
-                                return encountersMulti.collect().asList();
+                                return page.afterFhirOffset().collect(encountersMulti, page.order(ENCOUNTER_ORDER));
                             });
-                })
-                .onFailure().recoverWithItem(e -> {
-                    LOG.errorf("Error searching encounters by practitioner: %s", e.getMessage());
-                    return new ArrayList<EncounterSearchResult>();
                 });
     }
 
     private Uni<EncounterSearchResult> mapToEncounterSearchResultReactive(
-            FhirBundle.FhirResource resource,
-            String practitionerId) {
-
-        String encounterId = resource.id;
-        String patientId = null;
+            EncounterResource encounter,
+            String practitionerId,
+            Deadline deadline) {
 
-        if (resource.subject != null && resource.subject.reference != null) {
-            patientId = resource.subject.reference.replace("Patient/", "");
-        }
-
-        if (patientId == null) {
+        if (encounter == null || encounter.subject() == null) {
             return Uni.createFrom().nullItem();
         }
 
-        String finalPatientId = patientId;
+        AtomicBoolean late = new AtomicBoolean();
+        Supplier<String> lateName = () -> {
+            late.set(true);
+            return "";
+        };
 
-        Uni<String> patientNameUni = fhirClient.getPatient(patientId)
-                .onItem().transform(this::getFullName)
+        Uni<String> patientNameUni = deadline.bound(fetchPatient(encounter.subject().id())
+                        .onItem().transform(patient -> patient != null ? patient.fullName() : ""), lateName)
                 .onFailure().recoverWithItem("");
 
-        Uni<String> practitionerNameUni = fhirClient.getPractitioner(practitionerId)
-                .onItem().transform(this::getFullName)
+        Uni<String> practitionerNameUni = deadline.bound(fetchPractitioner(practitionerId)
+                        .onItem().transform(practitioner -> practitioner != null ? practitioner.fullName() : ""), lateName)
                 .onFailure().recoverWithItem("");
 
         return Uni.combine().all().unis(patientNameUni, practitionerNameUni)
@@ -223,34 +609,272 @@ public class SearchService {
                 .onItem().transform(tuple -> {
                     String patientName = tuple.getItem1();
                     String practitionerName = tuple.getItem2();
+                    if (late.get()) {
+                        deadline.countPending();
+                    }
 
                     return FhirMapper.toEncounterSearchResult(
-                            resource,
+                            encounter,
                             patientName,
                             practitionerName
                     );
                 });
     }
 
-    private String getFullName(FhirBundle.FhirResource resource) {
-        if (resource == null || resource.name == null || resource.name.isEmpty()) {
-            return "";
+    private Multi<PatientSearchResult> enrichPatients(Set<String> patientIds, PageRequest page, Deadline deadline) {
+        return Multi.createFrom().iterable(patientIds)
+                .onItem().transformToUni(patientId ->
+                        deadline.bound(
+                                        fetchPatient(patientId).onItem().transform(FhirMapper::toPatientSearchResult),
+                                        () -> {
+                                            deadline.countPending();
+                                            return FhirMapper.toUnenrichedPatientSearchResult(patientId);
+                                        })
+                                .onFailure().recoverWithNull()
+                )
+                .merge(limiter.fanOut(page.enrichmentConcurrency()))
+                .filter(result -> result != null);
+    }
+
+    /**
+     * Token search on the condition's codes when the terminology knows them, otherwise
+     * {@code code:text}, whose result may teach the terminology those codes.
+     */
+    private Uni<FhirBundle> searchConditions(String condition) {
+        return terminology.codesFor(condition)
+                .onItem().transformToUni(codes -> codes != null
+                        ? upstream(client -> terminology.timed(true, client.searchConditionsByCode(codes.code(), codes.codeBelow())))
+                        : upstream(client -> terminology.timed(false, client.searchConditions(condition)))
+                                .call(bundle -> terminology.learn(condition, bundle)));
+    }
+
+    /**
+     * Like {@link #searchConditions(String)}, with the conditions' patients included. Text
+     * limited to one patient is never learned: its codes are only that patient's.
+     */
+    private Uni<FhirBundle> searchConditionsWithSubjects(ConditionQuery query, PageRequest page) {
+        String sort = page.fhirSort(CONDITION_SORT_FIELDS);
+        if (query.text() == null) {
+            return searchWindow(page, (count, offset) -> upstream(client -> client.searchConditionsWithSubjects(
+                    null, query.code(), null, query.subject(), count, offset, sort)));
         }
 
-        FhirBundle.HumanName name = resource.name.get(0);
-        StringBuilder fullName = new StringBuilder();
+        return terminology.codesFor(query.text())
+                .onItem().transformToUni(codes -> codes != null
+                        ? searchWindow(page, (count, offset) -> upstream(client -> terminology.timed(true,
+                                client.searchConditionsWithSubjects(
+                                        null, codes.code(), codes.codeBelow(), query.subject(), count, offset, sort))))
+                        : searchWindow(page, (count, offset) -> upstream(client -> terminology.timed(false,
+                                client.searchConditionsWithSubjects(
+                                        query.text(), null, null, query.subject(), count, offset, sort))))
+                                .call(bundle -> query.patientId() == null
+                                        ? terminology.learn(query.text(), bundle)
+                                        : Uni.createFrom().voidItem()));
+    }
+
+    /**
+     * A page's FHIR rows, read in the requests {@link PageRequest#fhirPage} asks for one after
+     * another and joined in search order. A short answer means the search has no more rows.
+     */
+    private Uni<FhirBundle> searchWindow(PageRequest page, BiFunction<Integer, Integer, Uni<FhirBundle>> search) {
+        return readWindow(page, search, 0, new ArrayList<>())
+                .onItem().transform(FhirMapper::concat);
+    }
+
+    private Uni<List<FhirBundle>> readWindow(
+            PageRequest page,
+            BiFunction<Integer, Integer, Uni<FhirBundle>> search,
+            int requested,
+            List<FhirBundle> read) {
+        PageRequest.FhirPage request = page.fhirPage(requested, fhirConfig.maxPageSize());
+        if (request == null) {
+            return Uni.createFrom().item(read);
+        }
+        return search.apply(request.count(), request.offset())
+                .onItem().transformToUni(bundle -> {
+                    read.add(bundle);
+                    boolean full = bundle != null && bundle.entry != null && bundle.entry.size() >= request.count();
+                    return full
+                            ? readWindow(page, search, requested + request.count(), read)
+                            : Uni.createFrom().item(read);
+                });
+    }
+
+    /**
+     * Search pages from {@code cursor} on, each requested once the previous one has been
+     * consumed. Pages ask for at most {@code search.fhir.max-page-size} rows, since FHIR caps
+     * larger ones; the first page with fewer than that many matches is the last.
+     */
+    private Multi<FhirBundle> pages(
+            String matchType, int cursor, int pageSize, BiFunction<Integer, Integer, Uni<FhirBundle>> page) {
+        int size = Math.min(pageSize, fhirConfig.maxPageSize());
+        return Multi.createBy().repeating()
+                .uni(() -> new AtomicInteger(cursor), offset -> page.apply(offset.get(), size)
+                        .onItem().ifNull().continueWith(FhirBundle::new)
+                        .invoke(bundle -> offset.addAndGet(FhirMapper.resourcesOfType(bundle, matchType).size())))
+                .whilst(bundle -> FhirMapper.resourcesOfType(bundle, matchType).size() == size);
+    }
+
+    /**
+     * Distinct subjects over all pages of a subject projection, read at the FHIR maximum
+     * page size.
+     */
+    private Uni<Integer> countSubjects(String matchType, BiFunction<Integer, Integer, Uni<FhirBundle>> page) {
+        return pages(matchType, 0, fhirConfig.maxPageSize(), page)
+                .collect().in(HashSet<String>::new, (ids, bundle) -> ids.addAll(subjectIds(bundle)))
+                .onItem().transform(Set::size);
+    }
+
+    /**
+     * A page of conditions named in search order. Patients read for an export are not cached:
+     * a one-off scan over many patients would only evict the ones searches actually hit.
+     */
+    private Uni<List<ConditionSearchResult>> nameConditions(FhirBundle page) {
+        ConditionEnrichment enrichment = ConditionEnrichment.of(page);
+        return Multi.createFrom().iterable(enrichment.missingPatientBatches())
+                .onItem().transformToUni(this::readPatients)
+                .merge(limiter.fanOut(exportConfig.enrichmentConcurrency()))
+                .collect().in(HashMap<String, PatientResource>::new, Map::putAll)
+                .onItem().transform(enrichment::inOrder);
+    }
+
+    private Uni<DoctorPatientsResult> loadDoctorPatients(String practitionerId) {
+        return upstream(client -> client.searchEncountersWithParticipants(
+                        "Practitioner/" + practitionerId, panelConfig.maxEncounters()))
+                .onItem().transformToUni(bundle -> {
+                    DoctorPanel panel = DoctorPanel.of(practitionerId, bundle);
+                    if (panel.truncated()) {
+                        LOG.warnf("Practitioner %s has more than %d encounters, panel built from the first ones",
+                                practitionerId, panelConfig.maxEncounters());
+                    }
+
+                    Uni<PractitionerResource> practitionerUni = panel.practitioner() != null
+                            ? cache.put(CacheRegions.PRACTITIONERS, practitionerId, panel.practitioner())
+                                    .replaceWith(panel.practitioner())
+                            : fetchPractitioner(practitionerId);
 
-        if (name.given != null && !name.given.isEmpty()) {
-            fullName.append(String.join(" ", name.given));
+                    List<List<String>> batches = panel.missingPatientBatches();
+                    Uni<Map<String, PatientResource>> readUni = Multi.createFrom().iterable(batches)
+                            .onItem().transformToUni(this::fetchPatients)
+                            .merge(limiter.fanOut(Math.max(1, batches.size())))
+                            .collect().in(HashMap<String, PatientResource>::new, Map::putAll);
+
+                    return cachePatients(panel.included())
+                            .chain(() -> Uni.combine().all().unis(practitionerUni, readUni).asTuple())
+                            .onItem().transform(found -> panel.result(found.getItem1(), found.getItem2()));
+                })
+                .invoke(result -> postings.registerDoctorPatients(practitionerId, result))
+                .onFailure(SearchService::isNotFound).recoverWithNull();
+    }
+
+    /**
+     * Reads the patients in one call and caches them. Patients that could not be read are
+     * missing from the result.
+     */
+    private Uni<Map<String, PatientResource>> fetchPatients(List<String> patientIds) {
+        return readPatients(patientIds).call(this::cachePatients);
+    }
+
+    private Uni<Map<String, PatientResource>> readPatients(List<String> patientIds) {
+        List<String> unknown = negative.unknownPatients(patientIds);
+        if (unknown.isEmpty()) {
+            return Uni.createFrom().item(Map.of());
         }
+        return upstream(client -> client.getPatients(String.join(",", unknown), unknown.size()))
+                .onItem().transform(FhirMapper::patientsById)
+                .invoke(found -> negative.patientsRead(unknown, found))
+                .onFailure().recoverWithItem(e -> {
+                    LOG.warnf("Could not read %d patients: %s", patientIds.size(), e.getMessage());
+                    return Map.of();
+                });
+    }
+
+    private Uni<Void> cachePatients(Map<String, PatientResource> patients) {
+        if (patients.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        List<Uni<Void>> puts = new ArrayList<>();
+        patients.forEach((id, patient) -> puts.add(cache.put(CacheRegions.PATIENTS, id, patient)));
+        return Uni.join().all(puts).andCollectFailures()
+                .replaceWithVoid()
+                .onFailure().recoverWithNull();
+    }
+
+    /**
+     * Runs one FHIR call under the adaptive limit, on the replica the router picks.
+     */
+    private <T> Uni<T> upstream(Function<FhirClient, Uni<T>> request) {
+        return limiter.call(() -> router.call(request));
+    }
+
+    /**
+     * The patient, from the cache or FHIR. A patient FHIR recently did not have is null
+     * without a call.
+     */
+    private Uni<PatientResource> fetchPatient(String patientId) {
+        String missKey = NegativeLookupCache.patient(patientId);
+        return cache.getOrLoad(CacheRegions.PATIENTS, patientId, () -> negative.isMissing(missKey)
+                ? Uni.createFrom().nullItem()
+                : upstream(client -> client.getPatient(patientId))
+                        .onItem().transform(FhirMapper::toPatientResource)
+                        .invoke(() -> negative.found(missKey))
+                        .onFailure(SearchService::isNotFound).invoke(() -> negative.missing(missKey)));
+    }
+
+    private Uni<PractitionerResource> fetchPractitioner(String practitionerId) {
+        return cache.getOrLoad(CacheRegions.PRACTITIONERS, practitionerId, () ->
+                upstream(client -> client.getPractitioner(practitionerId))
+                        .onItem().transform(FhirMapper::toPractitionerResource));
+    }
+
+    private Uni<List<PatientSearchResult>> cachedPatientQuery(
+            String key,
+            String bucket,
+            Deadline deadline,
+            Supplier<Uni<List<PatientSearchResult>>> loader) {
+        return cachedQuery(CacheRegions.PATIENT_QUERIES, key, deadline, () -> loader.get()
+                .invoke(results -> postings.registerPatientQuery(key, bucket, results)));
+    }
+
+    private Uni<List<EncounterSearchResult>> cachedEncounterQuery(
+            String key,
+            Deadline deadline,
+            Supplier<Uni<List<EncounterSearchResult>>> loader) {
+        return cachedQuery(CacheRegions.ENCOUNTER_QUERIES, key, deadline, () -> loader.get()
+                .invoke(results -> postings.registerEncounterQuery(key, results)));
+    }
+
+    // Like CacheStore.getOrLoad, but a result cut short by its deadline is never cached
+    private <V> Uni<V> cachedQuery(CacheRegion<V> region, String key, Deadline deadline, Supplier<Uni<V>> loader) {
+        return cache.get(region, key)
+                .onItem().ifNull().switchTo(() -> loader.get()
+                        .call(value -> value != null && !deadline.isPartial()
+                                ? cache.put(region, key, value)
+                                : Uni.createFrom().voidItem()));
+    }
+
+    static boolean isNotFound(Throwable failure) {
+        return failure instanceof WebApplicationException wae
+                && wae.getResponse() != null
+                && wae.getResponse().getStatus() == 404;
+    }
+
+    static String queryKey(String kind, String value, PageRequest page) {
+        return kind + "|" + value + "|" + page.cacheKey();
+    }
+
+    static Set<String> subjectIds(FhirBundle bundle) {
+        Set<String> patientIds = new HashSet<>();
 
-        if (name.family != null && !name.family.isEmpty()) {
-            if (fullName.length() > 0) {
-                fullName.append(" ");
+        if (bundle != null && bundle.entry != null) {
+            for (FhirBundle.BundleEntry entry : bundle.entry) {
+                ResourceRef subject = FhirMapper.subjectRef(entry.resource);
+                if (subject != null) {
+                    patientIds.add(subject.id());
+                }
             }
-            fullName.append(name.family);
         }
 
-        return fullName.toString();
+        return patientIds;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package org.journalsystem.service;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "search.terminology")
+public interface TerminologyConfig {
+
+    /**
+     * When false, condition searches always use {@code code:text}.
+     */
+    @WithDefault("true")
+    boolean enabled();
+
+    /**
+     * Use the term table shipped in {@code terminology/conditions.tsv}. Its terms are searched
+     * with {@code code:below}, which needs a FHIR server holding the SNOMED CT and ICD-10
+     * hierarchies (in HAPI, loaded terminology); other servers should leave it off.
+     */
+    @WithDefault("false")
+    boolean bundled();
+
+    /**
+     * Remember the codes a complete {@code code:text} search returned, so the next search
+     * for the same text is a token search.
+     */
+    @WithDefault("true")
+    boolean learn();
+
+    /**
+     * Text whose matches carry more distinct codes than this is not learned.
+     */
+    @WithDefault("20")
+    int maxLearnedCodes();
+}
@@ -0,0 +1,204 @@
+package org.journalsystem.service;
+
+import org.journalsystem.cache.CacheRegions;
+import org.journalsystem.cache.CacheStore;
+import org.journalsystem.cache.QueryPostings;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.journalsystem.mapper.FhirMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Maps condition search text to FHIR code tokens ({@code system|code}, comma-separated), so
+ * condition searches can run as indexed token searches instead of {@code code:text}. Text is
+ * resolved, in order, as a token or bare SNOMED/ICD-10 code typed by the user, through the
+ * bundled term table, or through codes learned from an earlier {@code code:text} search that
+ * returned all its matches. Bundled terms name whole branches of SNOMED CT and ICD-10 (E11
+ * covers E11.9), so they are searched with {@code code:below}; typed and learned codes are
+ * matched exactly. Learned codes live in the query cache and are dropped together with the
+ * condition queries when a Condition changes.
+ */
+@ApplicationScoped
+public class TerminologyService {
+
+    private static final Logger LOG = Logger.getLogger(TerminologyService.class);
+
+    static final String TABLE = "terminology/conditions.tsv";
+
+    // Bare codes: SNOMED concept ids and ICD-10 codes such as J45 or E11.9
+    private static final Pattern BARE_CODE = Pattern.compile("\\d{6,18}|[A-Z]\\d\\d(\\.\\d{1,4})?");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Inject
+    TerminologyConfig config;
+
+    @Inject
+    CacheStore cache;
+
+    @Inject
+    QueryPostings postings;
+
+    @Inject
+    MeterRegistry registry;
+
+    Map<String, String> table = Map.of();
+
+    private Timer tokenSearches;
+    private Timer textSearches;
+
+    @PostConstruct
+    void init() {
+        tokenSearches = searchTimer("token");
+        textSearches = searchTimer("text");
+        if (config.enabled() && config.bundled()) {
+            table = load(TABLE);
+            LOG.infof("Loaded %d condition terms from %s", table.size(), TABLE);
+        }
+    }
+
+    /**
+     * Tokens to search the text as, or null when only {@code code:text} can find it.
+     */
+    public Uni<ConditionCodes> codesFor(String text) {
+        if (!config.enabled()) {
+            return Uni.createFrom().nullItem();
+        }
+
+        String direct = directToken(text);
+        if (direct != null) {
+            return Uni.createFrom().item(ConditionCodes.exact(direct));
+        }
+        String term = normalize(text);
+        String known = table.get(term);
+        if (known != null) {
+            return Uni.createFrom().item(ConditionCodes.withDescendants(known));
+        }
+        return cache.get(CacheRegions.CONDITION_CODES, term).map(ConditionCodes::exact);
+    }
+
+    /**
+     * Remembers the codes of a {@code code:text} search result. Only a result holding all its
+     * matches is learned: codes missing from an incomplete page would silently drop patients
+     * from every later search for the same text.
+     */
+    public Uni<Void> learn(String text, FhirBundle conditions) {
+        String tokens = config.enabled() && config.learn() ? learnedTokens(conditions) : null;
+        if (tokens == null) {
+            return Uni.createFrom().voidItem();
+        }
+
+        String term = normalize(text);
+        LOG.debugf("Learned condition codes for '%s': %s", term, tokens);
+        postings.register(QueryPostings.CONDITION_QUERIES, CacheRegions.CONDITION_CODES, term);
+        return cache.put(CacheRegions.CONDITION_CODES, term, tokens);
+    }
+
+    /**
+     * Records how long the FHIR condition search took per mode, so token and text searches
+     * can be compared on /q/metrics.
+     */
+    public <T> Uni<T> timed(boolean token, Uni<T> search) {
+        Timer timer = token ? tokenSearches : textSearches;
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            return search.onItem().invoke(() -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    public <T> T timedBlocking(boolean token, Supplier<T> search) {
+        return (token ? tokenSearches : textSearches).record(search);
+    }
+
+    private Timer searchTimer(String mode) {
+        return Timer.builder("search.conditions.fhir")
+                .description("FHIR Condition search time by search mode")
+                .tag("mode", mode)
+                .register(registry);
+    }
+
+    private String learnedTokens(FhirBundle conditions) {
+        // Resources added by _include are not matches and do not count towards the total
+        List<FhirBundle.FhirResource> matches = FhirMapper.resourcesOfType(conditions, "Condition");
+        if (matches.isEmpty() || conditions.total > matches.size()) {
+            return null;
+        }
+
+        Set<String> tokens = new LinkedHashSet<>();
+        for (FhirBundle.FhirResource match : matches) {
+            FhirBundle.CodeableConcept code = match.code;
+            if (code == null || code.coding == null || code.coding.isEmpty()) {
+                // A match only found through its text would be lost to a token search
+                return null;
+            }
+            for (FhirBundle.Coding coding : code.coding) {
+                if (coding.code != null && !coding.code.isBlank()) {
+                    tokens.add(coding.system != null ? coding.system + "|" + coding.code : coding.code);
+                }
+            }
+        }
+
+        if (tokens.isEmpty() || tokens.size() > config.maxLearnedCodes()) {
+            return null;
+        }
+        return String.join(",", tokens);
+    }
+
+    static String directToken(String text) {
+        String trimmed = text.trim();
+        if (trimmed.contains("|") && !trimmed.contains(" ")) {
+            return trimmed;
+        }
+        return BARE_CODE.matcher(trimmed).matches() ? trimmed : null;
+    }
+
+    static String normalize(String text) {
+        return WHITESPACE.matcher(text.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+
+    static Map<String, String> load(String resource) {
+        InputStream in = TerminologyService.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            LOG.warnf("No condition term table at %s", resource);
+            return Map.of();
+        }
+
+        Map<String, String> terms = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    terms.put(normalize(line.substring(0, tab)), line.substring(tab + 1).trim());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Map.copyOf(terms);
+    }
+}
@@ -0,0 +1,49 @@
+package org.journalsystem.service;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+@ConfigMapping(prefix = "search.warmup")
+public interface WarmupConfig {
+
+    /**
+     * When false the instance reports ready as soon as it has started.
+     */
+    @WithDefault("true")
+    boolean enabled();
+
+    /**
+     * Rounds of mapping, sorting and serializing the synthetic bundles, enough for the JIT to
+     * compile the hot search paths.
+     */
+    @WithDefault("300")
+    int iterations();
+
+    /**
+     * Connections opened to each FHIR replica before traffic arrives.
+     */
+    @WithDefault("8")
+    int connections();
+
+    /**
+     * Practitioner ids read into the cache during warm-up.
+     */
+    Optional<List<String>> practitioners();
+
+    /**
+     * Longest the FHIR part of the warm-up may take; the instance reports ready afterwards
+     * even if FHIR did not answer.
+     */
+    @WithDefault("30S")
+    Duration timeout();
+
+    /**
+     * Long-term FHIR round-trip time above which readiness reports the upstream as slow.
+     */
+    @WithDefault("2S")
+    Duration slowUpstream();
+}
@@ -0,0 +1,216 @@
+package org.journalsystem.service;
+
+import org.journalsystem.client.FhirRouter;
+import org.journalsystem.dto.ConditionSearchResult;
+import org.journalsystem.dto.EncounterSearchResult;
+import org.journalsystem.dto.PatientSearchResult;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.journalsystem.dto.fhir.PractitionerResource;
+import org.journalsystem.mapper.FhirMapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gets a fresh instance ready for traffic before readiness lets Kubernetes route to it. Right
+ * after startup it runs synthetic FHIR bundles through deserialization, {@link FhirMapper},
+ * sorting and JSON serialization until the JIT has compiled those paths, opens connections to
+ * every FHIR replica and reads the configured practitioners into the cache.
+ *
+ * <p>FHIR trouble never keeps the instance unready: once the warm-up is done or has given up
+ * after {@code search.warmup.timeout}, the instance is ready.
+ */
+@ApplicationScoped
+public class WarmupService {
+
+    private static final Logger LOG = Logger.getLogger(WarmupService.class);
+
+    private static final int SYNTHETIC_ENTRIES = 50;
+
+    public enum State { PENDING, RUNNING, DONE }
+
+    @Inject
+    WarmupConfig config;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    FhirRouter router;
+
+    @Inject
+    SearchService searchService;
+
+    private volatile State state = State.PENDING;
+    private volatile long warmupMillis = -1;
+    private volatile int openedConnections;
+    private volatile int preloadedPractitioners;
+    private volatile long checksum;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!config.enabled()) {
+            state = State.DONE;
+            return;
+        }
+        // Startup itself is not held up; readiness stays DOWN until this is done
+        Infrastructure.getDefaultWorkerPool().execute(this::warmUp);
+    }
+
+    void warmUp() {
+        state = State.RUNNING;
+        long start = System.nanoTime();
+        try {
+            checksum = exercise(config.iterations());
+            openedConnections = router.openConnections(config.connections())
+                    .await().atMost(config.timeout());
+            preloadedPractitioners = searchService.preloadPractitioners(config.practitioners().orElse(List.of()))
+                    .await().atMost(config.timeout());
+        } catch (RuntimeException e) {
+            LOG.warnf("Warm-up did not finish, reporting ready anyway: %s", e.toString());
+        } finally {
+            warmupMillis = (System.nanoTime() - start) / 1_000_000;
+            state = State.DONE;
+        }
+        LOG.infof("Warm-up done in %d ms: %d FHIR connections opened, %d practitioners preloaded",
+                warmupMillis, openedConnections, preloadedPractitioners);
+    }
+
+    /**
+     * Runs the synthetic bundles through the search paths that do not depend on FHIR. Returns
+     * the total size of the results, so the work cannot be optimized away.
+     */
+    long exercise(int iterations) {
+        byte[] patients = write(syntheticBundle("Patient"));
+        byte[] practitioners = write(syntheticBundle("Practitioner"));
+        byte[] encounters = write(syntheticBundle("Encounter"));
+        byte[] conditions = write(syntheticBundle("Condition"));
+
+        PageRequest patientPage = PageRequest.of(20, 0, "lastName", SearchService.PATIENT_SORT_FIELDS);
+        PageRequest encounterPage = PageRequest.of(20, 0, "startTime", SearchService.ENCOUNTER_SORT_FIELDS);
+
+        long total = 0;
+        for (int i = 0; i < iterations; i++) {
+            List<PatientSearchResult> patientResults = patientPage.collect(
+                    FhirMapper.bundleToPatientList(read(patients)),
+                    patientPage.order(SearchService.PATIENT_ORDER));
+
+            List<EncounterSearchResult> encounterResults = new ArrayList<>();
+            FhirBundle practitionerBundle = read(practitioners);
+            FhirBundle encounterBundle = read(encounters);
+            for (int j = 0; j < encounterBundle.entry.size(); j++) {
+                PractitionerResource practitioner =
+                        FhirMapper.toPractitionerResource(practitionerBundle.entry.get(j).resource);
+                encounterResults.add(FhirMapper.toEncounterSearchResult(
+                        encounterBundle.entry.get(j).resource, "Patient " + j, practitioner.fullName()));
+            }
+            encounterResults = encounterPage.collect(encounterResults, encounterPage.order(SearchService.ENCOUNTER_ORDER));
+
+            List<ConditionSearchResult> conditionResults = FhirMapper.bundleToConditionList(read(conditions));
+
+            total += write(patientResults).length + write(encounterResults).length + write(conditionResults).length;
+        }
+        return total;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public boolean isDone() {
+        return state == State.DONE;
+    }
+
+    public long warmupMillis() {
+        return warmupMillis;
+    }
+
+    private FhirBundle read(byte[] json) {
+        try {
+            return mapper.readValue(json, FhirBundle.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] write(Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static FhirBundle syntheticBundle(String resourceType) {
+        FhirBundle bundle = new FhirBundle();
+        bundle.resourceType = "Bundle";
+        bundle.type = "searchset";
+        bundle.total = SYNTHETIC_ENTRIES;
+        bundle.entry = new ArrayList<>();
+        for (int i = 0; i < SYNTHETIC_ENTRIES; i++) {
+            FhirBundle.BundleEntry entry = new FhirBundle.BundleEntry();
+            entry.resource = syntheticResource(resourceType, i);
+            entry.fullUrl = resourceType + "/" + entry.resource.id;
+            bundle.entry.add(entry);
+        }
+        return bundle;
+    }
+
+    private static FhirBundle.FhirResource syntheticResource(String resourceType, int i) {
+        FhirBundle.FhirResource resource = new FhirBundle.FhirResource();
+        resource.resourceType = resourceType;
+        resource.id = String.format("00000000-0000-0000-0000-%012d", i);
+
+        switch (resourceType) {
+            case "Patient", "Practitioner" -> {
+                FhirBundle.HumanName name = new FhirBundle.HumanName();
+                name.given = List.of("Warm" + i, "Up");
+                name.family = "Synthetic" + (SYNTHETIC_ENTRIES - i);
+                resource.name = List.of(name);
+                FhirBundle.Identifier identifier = new FhirBundle.Identifier();
+                identifier.system = "http://electronichealth.se/identifier/personnummer";
+                identifier.value = String.format("1970%02d%02d%04d", i % 12 + 1, i % 28 + 1, i);
+                resource.identifier = List.of(identifier);
+                resource.birthDate = String.format("1970-%02d-%02d", i % 12 + 1, i % 28 + 1);
+            }
+            case "Encounter" -> {
+                resource.subject = reference("Patient/" + resource.id);
+                FhirBundle.Participant participant = new FhirBundle.Participant();
+                participant.individual = reference("Practitioner/" + resource.id);
+                resource.participant = List.of(participant);
+                resource.period = new FhirBundle.Period();
+                resource.period.start = String.format("2024-01-%02dT%02d:00:00", i % 28 + 1, i % 24);
+                resource.period.end = String.format("2024-01-%02dT%02d:30:00", i % 28 + 1, i % 24);
+            }
+            case "Condition" -> {
+                resource.subject = reference("Patient/" + resource.id);
+                FhirBundle.Coding coding = new FhirBundle.Coding();
+                coding.system = "http://snomed.info/sct";
+                coding.code = "44054006";
+                coding.display = "Diabetes mellitus type 2";
+                resource.code = new FhirBundle.CodeableConcept();
+                resource.code.text = coding.display;
+                resource.code.coding = List.of(coding);
+                resource.recordedDate = "2024-01-01";
+            }
+            default -> throw new IllegalArgumentException("No synthetic " + resourceType);
+        }
+        return resource;
+    }
+
+    private static FhirBundle.Reference reference(String reference) {
+        FhirBundle.Reference ref = new FhirBundle.Reference();
+        ref.reference = reference;
+        return ref;
+    }
+}
@@ -0,0 +1,136 @@
+package org.journalsystem;
+
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.journalsystem.cache.CacheStore;
+import org.journalsystem.client.FhirClient;
+import org.journalsystem.dto.PatientSearchResult;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.journalsystem.service.SearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.when;
+
+@QuarkusTest
+class FhirNotificationResourceTest {
+
+    private static final String PRACTITIONER_A = "30681750-1667-311a-a3e3-878ae10a35bb";
+    private static final String PRACTITIONER_B = "40681750-1667-311a-a3e3-878ae10a35bb";
+
+    @Inject
+    SearchService searchService;
+
+    @Inject
+    CacheStore cacheStore;
+
+    @InjectMock
+    @RestClient
+    FhirClient fhirClient;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.reset(fhirClient);
+        cacheStore.clear().await().indefinitely();
+    }
+
+    @Test
+    void patientUpdate_shouldWriteThroughAndInvalidateDependentQueries() {
+        when(fhirClient.searchConditions("Diabetes")).thenReturn(Uni.createFrom().item(
+                bundle(condition("cond1", "Patient/123"))));
+        when(fhirClient.getPatient("123")).thenReturn(Uni.createFrom().item(patient("123", "Anna")));
+        searchService.searchPatientsByCondition("Diabetes").await().indefinitely();
+
+        given()
+                .header("X-Subscription-Token", "test-token")
+                .contentType("application/fhir+json")
+                .body("{\"resourceType\": \"Patient\", \"id\": \"123\", \"name\": [{\"given\": [\"Annika\"], \"family\": \"Andersson\"}]}")
+                .when().put("/api/fhir-notifications/Patient/123")
+                .then()
+                .statusCode(200)
+                .body(containsString("\"invalidated\": 1"));
+
+        List<PatientSearchResult> result = searchService.searchPatientsByCondition("Diabetes").await().indefinitely();
+
+        assertThat(result).extracting(PatientSearchResult::firstName).containsExactly("Annika");
+        Mockito.verify(fhirClient, Mockito.times(2)).searchConditions("Diabetes");
+        Mockito.verify(fhirClient, Mockito.times(1)).getPatient("123");
+    }
+
+    @Test
+    void encounterHistoryBundle_shouldOnlyInvalidateAffectedPractitioner() {
+        when(fhirClient.searchEncountersByPractitionerOnly(Mockito.anyString()))
+                .thenReturn(Uni.createFrom().item(bundle()));
+        searchService.searchEncountersByPractitioner(PRACTITIONER_A, null).await().indefinitely();
+        searchService.searchEncountersByPractitioner(PRACTITIONER_B, null).await().indefinitely();
+
+        given()
+                .header("X-Subscription-Token", "test-token")
+                .contentType("application/fhir+json")
+                .body("{\"resourceType\": \"Bundle\", \"type\": \"history\", \"entry\": [{"
+                        + "\"resource\": {\"resourceType\": \"Encounter\", \"id\": \"enc9\","
+                        + " \"subject\": {\"reference\": \"Patient/123\"},"
+                        + " \"participant\": [{\"individual\": {\"reference\": \"Practitioner/" + PRACTITIONER_A + "\"}}]},"
+                        + "\"request\": {\"method\": \"POST\", \"url\": \"Encounter\"}}]}")
+                .when().post("/api/fhir-notifications")
+                .then()
+                .statusCode(200);
+
+        searchService.searchEncountersByPractitioner(PRACTITIONER_A, null).await().indefinitely();
+        searchService.searchEncountersByPractitioner(PRACTITIONER_B, null).await().indefinitely();
+
+        Mockito.verify(fhirClient, Mockito.times(2)).searchEncountersByPractitionerOnly(PRACTITIONER_A);
+        Mockito.verify(fhirClient, Mockito.times(1)).searchEncountersByPractitionerOnly(PRACTITIONER_B);
+    }
+
+    @Test
+    void notification_shouldBeRejectedWithoutToken() {
+        given()
+                .contentType("application/fhir+json")
+                .when().delete("/api/fhir-notifications/Patient/123")
+                .then()
+                .statusCode(401);
+    }
+
+    private static FhirBundle bundle(FhirBundle.FhirResource... resources) {
+        FhirBundle bundle = new FhirBundle();
+        bundle.resourceType = "Bundle";
+        bundle.entry = new ArrayList<>();
+        for (FhirBundle.FhirResource resource : resources) {
+            FhirBundle.BundleEntry entry = new FhirBundle.BundleEntry();
+            entry.resource = resource;
+            bundle.entry.add(entry);
+        }
+        return bundle;
+    }
+
+    private static FhirBundle.FhirResource patient(String id, String firstName) {
+        FhirBundle.FhirResource patient = new FhirBundle.FhirResource();
+        patient.resourceType = "Patient";
+        patient.id = id;
+        FhirBundle.HumanName name = new FhirBundle.HumanName();
+        name.given = List.of(firstName);
+        name.family = "Andersson";
+        patient.name = List.of(name);
+        return patient;
+    }
+
+    private static FhirBundle.FhirResource condition(String id, String subject) {
+        FhirBundle.FhirResource condition = new FhirBundle.FhirResource();
+        condition.resourceType = "Condition";
+        condition.id = id;
+        condition.subject = new FhirBundle.Reference();
+        condition.subject.reference = subject;
+        return condition;
+    }
+}
@@ -0,0 +1,108 @@
+package org.journalsystem;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+
+import java.time.Duration;
+
+/**
+ * Minimal FHIR server for benchmarks, served by the test application itself at the
+ * {@code fhir-api} URL of the test profile. A condition search for {@code <name>} returns
+ * {@link #CONDITIONS_PER_SEARCH} conditions on patients {@code <name>-0..n}; every answer is
+ * delayed by {@link #LATENCY} to stand in for HAPI's round trip.
+ *
+ * <p>Paged condition searches ({@code _offset} set) instead read from a synthetic dataset of
+ * {@link #EXPORT_CONDITIONS} conditions, three per patient, at most {@link #MAX_PAGE_SIZE} per
+ * page. The page includes the patients, except every tenth one, which has to be read through
+ * a batched {@code _id} search.
+ */
+@Path("/fhir")
+@Produces(MediaType.APPLICATION_JSON)
+public class FhirStandInResource {
+
+    public static final int CONDITIONS_PER_SEARCH = 20;
+    public static final Duration LATENCY = Duration.ofMillis(5);
+    public static final int EXPORT_CONDITIONS = 1_000_000;
+    // HAPI's default hapi.fhir.max_page_size: larger _count values are cut down to it
+    public static final int MAX_PAGE_SIZE = 200;
+
+    @GET
+    @Path("/Condition")
+    public Uni<String> searchConditions(
+            @QueryParam("code:text") String text,
+            @QueryParam("_count") Integer count,
+            @QueryParam("_offset") Integer offset) {
+        if (offset != null) {
+            return delayed(conditionPage(text, offset, Math.min(count, MAX_PAGE_SIZE)));
+        }
+        StringBuilder json = new StringBuilder("{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"entry\":[");
+        for (int i = 0; i < CONDITIONS_PER_SEARCH; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"resource\":{\"resourceType\":\"Condition\",\"id\":\"").append(text).append('-').append(i)
+                    .append("\",\"subject\":{\"reference\":\"Patient/").append(text).append('-').append(i)
+                    .append("\"},\"code\":{\"text\":\"").append(text).append("\"}}}");
+        }
+        return delayed(json.append("]}").toString());
+    }
+
+    @GET
+    @Path("/Patient/{id}")
+    public Uni<String> getPatient(@PathParam("id") String id) {
+        return delayed("{\"resourceType\":\"Patient\",\"id\":\"" + id + "\","
+                + "\"name\":[{\"given\":[\"Anna\"],\"family\":\"Andersson-" + id + "\"}],"
+                + "\"identifier\":[{\"value\":\"19700101" + Math.abs(id.hashCode() % 10000) + "\"}],"
+                + "\"birthDate\":\"1970-01-01\"}");
+    }
+
+    @GET
+    @Path("/Patient")
+    public Uni<String> getPatients(@QueryParam("_id") String ids) {
+        StringBuilder json = new StringBuilder("{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"entry\":[");
+        String[] patientIds = ids.split(",");
+        for (int i = 0; i < patientIds.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"resource\":").append(patient(patientIds[i])).append('}');
+        }
+        return delayed(json.append("]}").toString());
+    }
+
+    private static String conditionPage(String text, int offset, int count) {
+        StringBuilder json = new StringBuilder("{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"entry\":[");
+        int end = Math.min(EXPORT_CONDITIONS, offset + count);
+        String lastPatient = null;
+        for (int i = offset; i < end; i++) {
+            String patientId = "p-" + i / 3;
+            if (i > offset) {
+                json.append(',');
+            }
+            json.append("{\"resource\":{\"resourceType\":\"Condition\",\"id\":\"c-").append(i)
+                    .append("\",\"subject\":{\"reference\":\"Patient/").append(patientId)
+                    .append("\"},\"code\":{\"text\":\"").append(text)
+                    .append("\"},\"recordedDate\":\"2024-01-01\"}}");
+            if (!patientId.equals(lastPatient) && (i / 3) % 10 != 0) {
+                json.append(",{\"resource\":").append(patient(patientId)).append('}');
+            }
+            lastPatient = patientId;
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String patient(String id) {
+        return "{\"resourceType\":\"Patient\",\"id\":\"" + id + "\","
+                + "\"name\":[{\"given\":[\"Anna\"],\"family\":\"Andersson-" + id + "\"}],"
+                + "\"birthDate\":\"1970-01-01\"}";
+    }
+
+    private static Uni<String> delayed(String json) {
+        return Uni.createFrom().item(json).onItem().delayIt().by(LATENCY);
+    }
+}
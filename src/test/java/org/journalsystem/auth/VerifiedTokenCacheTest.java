@@ -0,0 +1,98 @@
+package org.journalsystem.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.security.runtime.QuarkusPrincipal;
+import io.quarkus.security.runtime.QuarkusSecurityIdentity;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private static final long NOW = 1_700_000_000L;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void get_shouldExpireEntryWithToken() {
+        VerifiedTokenCache cache = cache(true, Duration.ofMinutes(5));
+        SecurityIdentity identity = identity(NOW + 60);
+
+        cache.put(VerifiedTokenCache.hash("token-a"), identity);
+        advance(Duration.ofSeconds(59));
+        assertThat(cache.get(VerifiedTokenCache.hash("token-a"))).isSameAs(identity);
+        assertThat(cache.get(VerifiedTokenCache.hash("token-b"))).isNull();
+
+        advance(Duration.ofSeconds(1));
+        assertThat(cache.get(VerifiedTokenCache.hash("token-a"))).isNull();
+    }
+
+    @Test
+    void get_shouldNotTrustTokenLongerThanMaxTtl() {
+        VerifiedTokenCache cache = cache(true, Duration.ofMinutes(5));
+
+        cache.put("hash", identity(NOW + 3600));
+        advance(Duration.ofMinutes(5));
+
+        assertThat(cache.get("hash")).isNull();
+    }
+
+    @Test
+    void put_shouldSkipExpiredTokensAndTokensWithoutExp() {
+        VerifiedTokenCache cache = cache(true, Duration.ofMinutes(5));
+
+        cache.put("expired", identity(NOW));
+        cache.put("no-exp", QuarkusSecurityIdentity.builder().setPrincipal(new QuarkusPrincipal("anna")).build());
+
+        assertThat(cache.get("expired")).isNull();
+        assertThat(cache.get("no-exp")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void get_shouldMissWhenDisabled() {
+        VerifiedTokenCache cache = cache(false, Duration.ofMinutes(5));
+
+        cache.put("hash", identity(NOW + 60));
+
+        assertThat(cache.get("hash")).isNull();
+    }
+
+    private VerifiedTokenCache cache(boolean enabled, Duration maxTtl) {
+        TokenCacheConfig config = new TokenCacheConfig() {
+            @Override
+            public boolean enabled() {
+                return enabled;
+            }
+
+            @Override
+            public long maxSize() {
+                return 100;
+            }
+
+            @Override
+            public Duration maxTtl() {
+                return maxTtl;
+            }
+        };
+        return new VerifiedTokenCache(config, new SimpleMeterRegistry(), nanos::get,
+                () -> NOW + TimeUnit.NANOSECONDS.toSeconds(nanos.get()));
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private static SecurityIdentity identity(long expiresAt) {
+        return QuarkusSecurityIdentity.builder()
+                .setPrincipal(new QuarkusPrincipal("anna"))
+                .addRole("doctor")
+                .addAttribute(VerifiedTokenCache.EXPIRE_TIME, expiresAt)
+                .build();
+    }
+}
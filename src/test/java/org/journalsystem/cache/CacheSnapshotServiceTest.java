@@ -0,0 +1,149 @@
+package org.journalsystem.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.journalsystem.dto.fhir.PatientResource;
+import org.journalsystem.dto.fhir.PractitionerResource;
+import org.journalsystem.dto.fhir.ResourceRef;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheSnapshotServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restartedStore_shouldServeSnapshottedResources() {
+        Path path = dir.resolve("cache.snapshot");
+        LocalCacheStore before = new LocalCacheStore(100, region -> Duration.ofMinutes(10));
+        before.putNow(CacheRegions.PATIENTS, "123", patient("123"));
+        before.putNow(CacheRegions.PRACTITIONERS, "999", practitioner("999"));
+        before.putNow(CacheRegions.PATIENT_QUERIES, "name|Anna", List.of());
+        service(before, path).writeSnapshot();
+
+        LocalCacheStore after = new LocalCacheStore(100, region -> Duration.ofMinutes(10));
+        CacheSnapshotService restarted = service(after, path);
+        restarted.onStart(null);
+
+        assertThat(restarted.timeToWarmMillis()).isGreaterThanOrEqualTo(0);
+        assertThat(restarted.lastSnapshotBytes()).isEqualTo(sizeOf(path));
+        assertThat(restarted.registry.get("search.cache.snapshot.bytes").gauge().value()).isEqualTo(sizeOf(path));
+        assertThat(after.snapshot().remaining()).isEqualTo(2);
+        assertThat(after.getNow(CacheRegions.PATIENTS, "123")).isEqualTo(patient("123"));
+        assertThat(after.getNow(CacheRegions.PRACTITIONERS, "999")).isEqualTo(practitioner("999"));
+        assertThat(after.getNow(CacheRegions.PATIENT_QUERIES, "name|Anna")).isNull();
+        assertThat(after.snapshot().remaining()).isZero();
+    }
+
+    @Test
+    void snapshot_shouldCarryOverEntriesThatWereNeverHydrated() {
+        Path path = dir.resolve("cache.snapshot");
+        LocalCacheStore first = new LocalCacheStore(100, region -> Duration.ofMinutes(10));
+        first.putNow(CacheRegions.PATIENTS, "123", patient("123"));
+        service(first, path).writeSnapshot();
+
+        LocalCacheStore second = new LocalCacheStore(100, region -> Duration.ofMinutes(10));
+        CacheSnapshotService secondService = service(second, path);
+        secondService.onStart(null);
+        second.putNow(CacheRegions.PATIENTS, "456", patient("456"));
+        secondService.writeSnapshot();
+
+        LocalCacheStore third = new LocalCacheStore(100, region -> Duration.ofMinutes(10));
+        service(third, path).onStart(null);
+
+        assertThat(third.getNow(CacheRegions.PATIENTS, "123")).isEqualTo(patient("123"));
+        assertThat(third.getNow(CacheRegions.PATIENTS, "456")).isEqualTo(patient("456"));
+    }
+
+    @Test
+    void snapshot_shouldSkipExpiredAndInvalidatedEntries() throws Exception {
+        Path path = dir.resolve("cache.snapshot");
+        LocalCacheStore before = new LocalCacheStore(100, region ->
+                region == CacheRegions.PATIENTS ? Duration.ofMillis(200) : Duration.ofMinutes(10));
+        before.putNow(CacheRegions.PATIENTS, "123", patient("123"));
+        before.putNow(CacheRegions.PRACTITIONERS, "999", practitioner("999"));
+        service(before, path).writeSnapshot();
+        Thread.sleep(300);
+
+        LocalCacheStore after = new LocalCacheStore(100, region -> Duration.ofMinutes(10));
+        service(after, path).onStart(null);
+        after.invalidateNow(CacheRegions.PRACTITIONERS, "999");
+
+        assertThat(after.snapshot().skipped()).isEqualTo(1);
+        assertThat(after.getNow(CacheRegions.PATIENTS, "123")).isNull();
+        assertThat(after.getNow(CacheRegions.PRACTITIONERS, "999")).isNull();
+    }
+
+    @Test
+    void truncatedSnapshot_shouldBeDeletedAndStartCold() throws Exception {
+        Path path = dir.resolve("cache.snapshot");
+        LocalCacheStore before = new LocalCacheStore(100, region -> Duration.ofMinutes(10));
+        before.putNow(CacheRegions.PATIENTS, "123", patient("123"));
+        before.putNow(CacheRegions.PRACTITIONERS, "999", practitioner("999"));
+        service(before, path).writeSnapshot();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        LocalCacheStore after = new LocalCacheStore(100, region -> Duration.ofMinutes(10));
+        CacheSnapshotService restarted = service(after, path);
+        restarted.onStart(null);
+
+        assertThat(after.snapshot()).isNull();
+        assertThat(restarted.registry.get("search.cache.snapshot.time-to-warm").gauge().value()).isEqualTo(-1);
+        assertThat(path).doesNotExist();
+    }
+
+    private static CacheSnapshotService service(LocalCacheStore store, Path path) {
+        CacheSnapshotService service = new CacheSnapshotService();
+        service.cacheStore = store;
+        service.config = config(path);
+        service.registry = new SimpleMeterRegistry();
+        service.init();
+        return service;
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static PatientResource patient(String id) {
+        return new PatientResource(ResourceRef.of("Patient", id), List.of("Anna", "Maria"), "Andersson", "197001011234", null);
+    }
+
+    private static PractitionerResource practitioner(String id) {
+        return new PractitionerResource(ResourceRef.of("Practitioner", id), List.of("Erik"), "Karlsson", null);
+    }
+
+    private static CacheConfig config(Path path) {
+        CacheConfig.Snapshot snapshot = new CacheConfig.Snapshot() {
+            public boolean enabled() { return true; }
+            public String path() { return path.toString(); }
+            public Duration interval() { return Duration.ofMinutes(5); }
+        };
+        return new CacheConfig() {
+            public String type() { return "local"; }
+            public long maxEntries() { return 100; }
+            public Duration resourceTtl() { return Duration.ofMinutes(10); }
+            public Duration queryTtl() { return Duration.ofMinutes(2); }
+            public boolean preSerialize() { return true; }
+            public long preSerializeMaxBytes() { return 1 << 20; }
+            public Redis redis() { return null; }
+            public Snapshot snapshot() { return snapshot; }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package org.journalsystem.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.journalsystem.dto.EncounterSearchResult;
+import org.journalsystem.dto.PatientSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonBodyCacheTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void write_shouldMatchJacksonOutput() throws Exception {
+        JsonBodyCache cache = new JsonBodyCache(mapper, true, 1 << 20);
+        List<PatientSearchResult> results = List.of(
+                new PatientSearchResult("1", "Anna", "Andersson", "197001011234", "1970-01-01"),
+                new PatientSearchResult("2", "Åsa", "Öberg", "", null));
+
+        assertThat(new String(cache.write(results), StandardCharsets.UTF_8))
+                .isEqualTo(mapper.writeValueAsString(results));
+        assertThat(new String(cache.write(List.of()), StandardCharsets.UTF_8)).isEqualTo("[]");
+    }
+
+    @Test
+    void write_shouldReuseBytesForSameListAndRecords() throws Exception {
+        JsonBodyCache cache = new JsonBodyCache(mapper, true, 1 << 20);
+        PatientSearchResult anna = new PatientSearchResult("1", "Anna", "Andersson", "197001011234", "1970-01-01");
+        PatientSearchResult bo = new PatientSearchResult("2", "Bo", "Berg", "198001011234", "1980-01-01");
+        List<PatientSearchResult> cached = List.of(anna, bo);
+
+        byte[] first = cache.write(cached);
+        byte[] second = cache.write(cached);
+        byte[] page = cache.write(List.of(bo));
+
+        assertThat(second).isSameAs(first);
+        assertThat(new String(page, StandardCharsets.UTF_8)).isEqualTo(mapper.writeValueAsString(List.of(bo)));
+    }
+
+    @Test
+    void write_shouldSerializeEveryTimeWhenDisabled() throws Exception {
+        JsonBodyCache cache = new JsonBodyCache(mapper, false, 1 << 20);
+        List<EncounterSearchResult> results = List.of();
+
+        assertThat(cache.write(results)).isNotSameAs(cache.write(results));
+        assertThat(new String(cache.write(results), StandardCharsets.UTF_8)).isEqualTo("[]");
+    }
+}
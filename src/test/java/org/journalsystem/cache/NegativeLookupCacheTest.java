@@ -0,0 +1,89 @@
+package org.journalsystem.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NegativeLookupCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void isMissing_shouldAnswerRepeatedMissUntilTtl() {
+        NegativeLookupCache cache = cache(true, 0, 1.0);
+
+        cache.missing(NegativeLookupCache.patient("404"));
+        assertThat(cache.isMissing(NegativeLookupCache.patient("404"))).isTrue();
+        assertThat(cache.isMissing(NegativeLookupCache.patient("123"))).isFalse();
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(10));
+        assertThat(cache.isMissing(NegativeLookupCache.patient("404"))).isFalse();
+        assertThat(registry.counter("search.negative.saved").count()).isEqualTo(1);
+    }
+
+    @Test
+    void found_shouldCountVerifiedMissAsFalsePositive() {
+        NegativeLookupCache cache = cache(true, 0.5, 0.1);
+        String key = NegativeLookupCache.practitionerIdentifier("195001011234");
+
+        cache.missing(key);
+        assertThat(cache.isMissing(key)).isFalse();
+        cache.found(key);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.falsePositiveRate()).isEqualTo(1.0);
+    }
+
+    @Test
+    void unknownPatients_shouldDropKnownMissesFromBatch() {
+        NegativeLookupCache cache = cache(true, 0, 1.0);
+
+        cache.patientsRead(List.of("1", "2", "3"), Map.of("1", "found"));
+
+        assertThat(cache.unknownPatients(List.of("1", "2", "3", "4"))).containsExactly("1", "4");
+        cache.invalidate(NegativeLookupCache.patient("2"));
+        assertThat(cache.unknownPatients(List.of("2", "3"))).containsExactly("2");
+    }
+
+    @Test
+    void isMissing_shouldNeverSkipWhenDisabled() {
+        NegativeLookupCache cache = cache(false, 0, 1.0);
+
+        cache.missing(NegativeLookupCache.patient("404"));
+
+        assertThat(cache.isMissing(NegativeLookupCache.patient("404"))).isFalse();
+    }
+
+    private NegativeLookupCache cache(boolean enabled, double verifyRatio, double random) {
+        NegativeLookupConfig config = new NegativeLookupConfig() {
+            @Override
+            public boolean enabled() {
+                return enabled;
+            }
+
+            @Override
+            public long maxEntries() {
+                return 100;
+            }
+
+            @Override
+            public Duration ttl() {
+                return Duration.ofMinutes(10);
+            }
+
+            @Override
+            public double verifyRatio() {
+                return verifyRatio;
+            }
+        };
+        return new NegativeLookupCache(config, registry, nanos::get, () -> random);
+    }
+}
@@ -0,0 +1,75 @@
+package org.journalsystem.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryPostingsTest {
+
+    private static final Duration TTL = Duration.ofMinutes(2);
+    private static final Duration RESOURCE_TTL = Duration.ofMinutes(10);
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void invalidate_shouldReachQueryRegisteredJustBeforeBucketWouldExpire() {
+        QueryPostings postings = postings();
+
+        postings.register(QueryPostings.NAME_QUERIES, CacheRegions.PATIENT_QUERIES, "first");
+        advance(TTL.minusSeconds(1));
+        cache(postings, CacheRegions.PATIENT_QUERIES, "second");
+        postings.register(QueryPostings.NAME_QUERIES, CacheRegions.PATIENT_QUERIES, "second");
+        advance(Duration.ofSeconds(2));
+
+        assertThat(postings.invalidate(QueryPostings.NAME_QUERIES).await().indefinitely()).isEqualTo(2);
+        assertThat(store(postings).getNow(CacheRegions.PATIENT_QUERIES, "second")).isNull();
+    }
+
+    @Test
+    void invalidate_shouldForgetBucketAfterTtlWithoutRegistrations() {
+        QueryPostings postings = postings();
+
+        postings.register("Patient/123", CacheRegions.PATIENT_QUERIES, "only");
+        advance(TTL);
+
+        assertThat(postings.invalidate("Patient/123").await().indefinitely()).isZero();
+    }
+
+    @Test
+    void invalidate_shouldReachEncounterHistoryForItsResourceTtl() {
+        QueryPostings postings = postings();
+
+        cache(postings, CacheRegions.ENCOUNTER_HISTORY, "2024-01-01");
+        postings.register("Practitioner/999", CacheRegions.ENCOUNTER_QUERIES, "today");
+        postings.register("Practitioner/999", CacheRegions.ENCOUNTER_HISTORY, "2024-01-01");
+        postings.register("Practitioner/888", CacheRegions.ENCOUNTER_QUERIES, "today");
+        advance(TTL.plusMinutes(5));
+
+        assertThat(postings.invalidate("Practitioner/888").await().indefinitely()).isZero();
+        assertThat(postings.invalidate("Practitioner/999").await().indefinitely()).isEqualTo(1);
+        assertThat(store(postings).getNow(CacheRegions.ENCOUNTER_HISTORY, "2024-01-01")).isNull();
+    }
+
+    private QueryPostings postings() {
+        QueryPostings postings = new QueryPostings();
+        postings.cacheStore = new LocalCacheStore(
+                100, region -> region.kind() == CacheRegion.Kind.RESOURCE ? RESOURCE_TTL : TTL, nanos::get);
+        return postings;
+    }
+
+    private static LocalCacheStore store(QueryPostings postings) {
+        return (LocalCacheStore) postings.cacheStore;
+    }
+
+    private static <V> void cache(QueryPostings postings, CacheRegion<List<V>> region, String key) {
+        store(postings).putNow(region, key, List.of());
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,149 @@
+package org.journalsystem.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.Vertx;
+import org.journalsystem.dto.fhir.PatientResource;
+import org.journalsystem.dto.fhir.ResourceRef;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisCacheStoreTest {
+
+    private Vertx vertx;
+    private RespStandIn standIn;
+    private RedisCacheStore replicaA;
+    private RedisCacheStore replicaB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        standIn = new RespStandIn(vertx);
+        replicaA = new RedisCacheStore(config(standIn.port()), vertx, new ObjectMapper());
+        replicaB = new RedisCacheStore(config(standIn.port()), vertx, new ObjectMapper());
+        // Let both replicas finish subscribing before anything is published
+        replicaA.get(CacheRegions.PATIENTS, "warmup").await().indefinitely();
+        replicaB.get(CacheRegions.PATIENTS, "warmup").await().indefinitely();
+        Thread.sleep(100);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        replicaA.close();
+        replicaB.close();
+        standIn.close();
+        vertx.close().toCompletionStage().toCompletableFuture().get();
+    }
+
+    @Test
+    void get_shouldReturnValueWrittenByAnotherReplica() {
+        PatientResource patient = patient("123", "Anna");
+
+        replicaA.put(CacheRegions.PATIENTS, "123", patient).await().indefinitely();
+
+        PatientResource cached = replicaB.get(CacheRegions.PATIENTS, "123").await().indefinitely();
+        assertThat(cached).isEqualTo(patient);
+        assertThat(cached.ref()).isSameAs(ResourceRef.of("Patient", "123"));
+    }
+
+    @Test
+    void put_shouldDropStaleNearCacheEntriesOnOtherReplicas() {
+        replicaA.put(CacheRegions.PATIENTS, "123", patient("123", "Anna")).await().indefinitely();
+        assertThat(replicaB.get(CacheRegions.PATIENTS, "123").await().indefinitely().firstName()).isEqualTo("Anna");
+
+        replicaA.put(CacheRegions.PATIENTS, "123", patient("123", "Annika")).await().indefinitely();
+
+        awaitUntil(() -> "Annika".equals(replicaB.get(CacheRegions.PATIENTS, "123").await().indefinitely().firstName()));
+    }
+
+    @Test
+    void invalidateAll_shouldRemoveRegionEverywhere() {
+        replicaA.put(CacheRegions.PATIENTS, "123", patient("123", "Anna")).await().indefinitely();
+        replicaB.get(CacheRegions.PATIENTS, "123").await().indefinitely();
+
+        replicaA.invalidateAll(CacheRegions.PATIENTS).await().indefinitely();
+
+        assertThat(standIn.containsKey("search-cache:patient:123")).isFalse();
+        awaitUntil(() -> replicaB.get(CacheRegions.PATIENTS, "123").await().indefinitely() == null);
+    }
+
+    @Test
+    void invalidate_shouldReachQueriesPostedByAnotherReplica() {
+        QueryPostings postingsA = postings(replicaA);
+        QueryPostings postingsB = postings(replicaB);
+        replicaA.put(CacheRegions.PATIENT_QUERIES, "name:anna", List.of()).await().indefinitely();
+        postingsA.register("Patient/123", CacheRegions.PATIENT_QUERIES, "name:anna");
+        awaitUntil(() -> standIn.containsKey("search-cache:postings:patient-query:Patient/123"));
+
+        assertThat(postingsB.invalidate("Patient/123").await().indefinitely()).isEqualTo(1);
+
+        assertThat(standIn.containsKey("search-cache:patient-query:name:anna")).isFalse();
+        assertThat(standIn.containsKey("search-cache:postings:patient-query:Patient/123")).isFalse();
+        awaitUntil(() -> replicaA.get(CacheRegions.PATIENT_QUERIES, "name:anna").await().indefinitely() == null);
+    }
+
+    @Test
+    void get_shouldTreatUnreachableServerAsMiss() {
+        RedisCacheStore unreachable = new RedisCacheStore(config(1), vertx, new ObjectMapper());
+        try {
+            assertThat(unreachable.get(CacheRegions.PATIENTS, "123").await().indefinitely()).isNull();
+            unreachable.put(CacheRegions.PATIENTS, "123", patient("123", "Anna")).await().indefinitely();
+        } finally {
+            unreachable.close();
+        }
+    }
+
+    private static QueryPostings postings(CacheStore store) {
+        QueryPostings postings = new QueryPostings();
+        postings.cacheStore = store;
+        return postings;
+    }
+
+    private static PatientResource patient(String id, String given) {
+        return new PatientResource(ResourceRef.of("Patient", id), List.of(given), "Andersson", "197001011234", "1970-01-01");
+    }
+
+    private static void awaitUntil(Supplier<Boolean> condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.get()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within 5s");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static CacheConfig config(int port) {
+        CacheConfig.Redis redis = new CacheConfig.Redis() {
+            public String host() { return "localhost"; }
+            public int port() { return port; }
+            public Optional<String> password() { return Optional.empty(); }
+            public String keyPrefix() { return "search-cache"; }
+            public String invalidationChannel() { return "search-cache:invalidations"; }
+            public Duration nearCacheTtl() { return Duration.ofSeconds(30); }
+            public Duration timeout() { return Duration.ofSeconds(2); }
+        };
+        return new CacheConfig() {
+            public String type() { return "redis"; }
+            public long maxEntries() { return 1000; }
+            public Duration resourceTtl() { return Duration.ofMinutes(10); }
+            public Duration queryTtl() { return Duration.ofMinutes(2); }
+            public boolean preSerialize() { return true; }
+            public long preSerializeMaxBytes() { return 1 << 20; }
+            public Redis redis() { return redis; }
+            public Snapshot snapshot() { return null; }
+        };
+    }
+}
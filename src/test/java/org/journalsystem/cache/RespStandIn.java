@@ -0,0 +1,132 @@
+package org.journalsystem.cache;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetServer;
+import io.vertx.core.net.NetSocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded stand-in speaking the subset of RESP2 that {@link RedisCacheStore} uses.
+ */
+class RespStandIn implements AutoCloseable {
+
+    private final Vertx vertx;
+    private final NetServer server;
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sets = new ConcurrentHashMap<>();
+    private final Map<String, Set<NetSocket>> subscribers = new ConcurrentHashMap<>();
+
+    RespStandIn(Vertx vertx) throws Exception {
+        this.vertx = vertx;
+        this.server = vertx.createNetServer()
+                .connectHandler(this::accept)
+                .listen(0, "localhost")
+                .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    int port() {
+        return server.actualPort();
+    }
+
+    boolean containsKey(String key) {
+        return values.containsKey(key) || sets.containsKey(key);
+    }
+
+    @Override
+    public void close() throws Exception {
+        server.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    private void accept(NetSocket socket) {
+        Resp.Decoder decoder = new Resp.Decoder(command -> handle(socket, (List<?>) command));
+        socket.handler(decoder::feed);
+        socket.closeHandler(ignored -> subscribers.values().forEach(set -> set.remove(socket)));
+    }
+
+    private void handle(NetSocket socket, List<?> command) {
+        List<String> args = new ArrayList<>();
+        for (Object arg : command) {
+            args.add(Resp.asString(arg));
+        }
+
+        switch (args.get(0).toUpperCase()) {
+            case "PING" -> socket.write(subscribers.values().stream().anyMatch(s -> s.contains(socket))
+                    ? array(bulk("pong"), bulk(""))
+                    : Buffer.buffer("+PONG\r\n"));
+            case "AUTH" -> socket.write(Buffer.buffer("+OK\r\n"));
+            case "GET" -> {
+                byte[] value = values.get(args.get(1));
+                socket.write(value != null ? bulk(value) : Buffer.buffer("$-1\r\n"));
+            }
+            case "SET" -> {
+                values.put(args.get(1), (byte[]) command.get(2));
+                socket.write(Buffer.buffer("+OK\r\n"));
+            }
+            case "DEL" -> {
+                long removed = args.subList(1, args.size()).stream()
+                        .filter(key -> values.remove(key) != null)
+                        .count();
+                socket.write(Buffer.buffer(":" + removed + "\r\n"));
+            }
+            case "SADD" -> {
+                Set<String> members = sets.computeIfAbsent(args.get(1), ignored -> ConcurrentHashMap.newKeySet());
+                long added = args.subList(2, args.size()).stream().filter(members::add).count();
+                socket.write(Buffer.buffer(":" + added + "\r\n"));
+            }
+            // Expiry is not simulated; the stand-in only needs to accept the command
+            case "PEXPIRE" -> socket.write(Buffer.buffer(":" + (containsKey(args.get(1)) ? 1 : 0) + "\r\n"));
+            case "SPOP" -> {
+                // Only the counted form is used, and it takes the whole set
+                Set<String> members = sets.remove(args.get(1));
+                socket.write(array(members != null
+                        ? members.stream().map(this::bulk).toArray(Buffer[]::new)
+                        : new Buffer[0]));
+            }
+            case "SCAN" -> {
+                Pattern pattern = Pattern.compile(args.get(3).replace("*", ".*"));
+                List<Buffer> keys = values.keySet().stream()
+                        .filter(key -> pattern.matcher(key).matches())
+                        .map(this::bulk)
+                        .toList();
+                socket.write(array(bulk("0"), array(keys.toArray(Buffer[]::new))));
+            }
+            case "SUBSCRIBE" -> {
+                subscribers.computeIfAbsent(args.get(1), ignored -> new CopyOnWriteArraySet<>()).add(socket);
+                socket.write(array(bulk("subscribe"), bulk(args.get(1)), Buffer.buffer(":1\r\n")));
+            }
+            case "PUBLISH" -> {
+                Set<NetSocket> receivers = subscribers.getOrDefault(args.get(1), Set.of());
+                Buffer message = array(bulk("message"), bulk(args.get(1)), bulk(args.get(2)));
+                receivers.forEach(receiver -> receiver.write(message));
+                socket.write(Buffer.buffer(":" + receivers.size() + "\r\n"));
+            }
+            default -> socket.write(Buffer.buffer("-ERR unknown command '" + args.get(0) + "'\r\n"));
+        }
+    }
+
+    private Buffer bulk(String value) {
+        return bulk(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Buffer bulk(byte[] value) {
+        return Buffer.buffer("$" + value.length + "\r\n").appendBytes(value).appendString("\r\n");
+    }
+
+    private Buffer array(Buffer... items) {
+        Buffer buffer = Buffer.buffer("*" + items.length + "\r\n");
+        for (Buffer item : items) {
+            buffer.appendBuffer(item);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,141 @@
+package org.journalsystem.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class FhirRouterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void call_shouldPreferReplicaWithFewerOutstandingCalls() {
+        FhirClient first = mock(FhirClient.class);
+        FhirClient second = mock(FhirClient.class);
+        when(first.searchConditions(any())).thenReturn(Uni.createFrom().nothing());
+        when(second.searchConditions(any())).thenReturn(Uni.createFrom().nothing());
+        FhirRouter router = router(2, first, second);
+
+        router.call(client -> client.searchConditions("asthma")).subscribe().with(bundle -> { });
+        router.call(client -> client.searchConditions("asthma")).subscribe().with(bundle -> { });
+
+        verify(first, times(1)).searchConditions("asthma");
+        verify(second, times(1)).searchConditions("asthma");
+        assertThat(router.outstanding("a")).isEqualTo(1);
+        assertThat(router.outstanding("b")).isEqualTo(1);
+    }
+
+    @Test
+    void call_shouldPreferFasterReplicaWhenIdle() {
+        FhirClient slow = mock(FhirClient.class);
+        FhirClient fast = mock(FhirClient.class);
+        when(slow.getPatient(any())).thenAnswer(invocation -> answerAfter(50));
+        when(fast.getPatient(any())).thenAnswer(invocation -> answerAfter(5));
+        FhirRouter router = router(2, slow, fast);
+
+        // Both replicas answer once before their latency is known
+        while (router.latencyNanos("a") == 0 || router.latencyNanos("b") == 0) {
+            router.call(client -> client.getPatient("p1")).await().indefinitely();
+        }
+        clearInvocations(slow, fast);
+
+        for (int i = 0; i < 10; i++) {
+            router.call(client -> client.getPatient("p1")).await().indefinitely();
+        }
+
+        verify(slow, never()).getPatient(any());
+        verify(fast, times(10)).getPatient("p1");
+    }
+
+    @Test
+    void failingReplica_shouldBeEjectedAndReadmittedAfterProbe() {
+        FhirClient failing = mock(FhirClient.class);
+        FhirClient healthy = mock(FhirClient.class);
+        when(failing.searchConditions(any())).thenReturn(Uni.createFrom().failure(new WebApplicationException(503)));
+        when(healthy.searchConditions(any())).thenReturn(Uni.createFrom().item(new FhirBundle()));
+        FhirRouter router = router(3, failing, healthy);
+
+        for (int i = 0; i < 50; i++) {
+            router.call(client -> client.searchConditions("asthma"))
+                    .onFailure().recoverWithNull()
+                    .await().indefinitely();
+        }
+
+        assertThat(router.isHealthy("a")).isFalse();
+        verify(failing, times(3)).searchConditions("asthma");
+
+        when(failing.capabilities(any())).thenReturn(Uni.createFrom().item(Response.ok().build()));
+        router.probeEjected();
+
+        assertThat(router.isHealthy("a")).isTrue();
+    }
+
+    @Test
+    void singleReplica_shouldNeverBeEjected() {
+        FhirClient client = mock(FhirClient.class);
+        when(client.searchConditions(any())).thenReturn(Uni.createFrom().failure(new WebApplicationException(503)));
+        FhirRouter router = new FhirRouter(config(1),
+                List.of(new FhirRouter.Replica(FhirRouter.DEFAULT_REPLICA, client, null)),
+                new SimpleMeterRegistry(), clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            router.call(fhir -> fhir.searchConditions("asthma"))
+                    .subscribe().withSubscriber(UniAssertSubscriber.create())
+                    .assertFailedWith(WebApplicationException.class);
+        }
+
+        assertThat(router.isHealthy(FhirRouter.DEFAULT_REPLICA)).isTrue();
+        assertThat(router.outstanding(FhirRouter.DEFAULT_REPLICA)).isZero();
+    }
+
+    private Uni<FhirBundle.FhirResource> answerAfter(long millis) {
+        return Uni.createFrom().item(() -> {
+            clock.addAndGet(millis * 1_000_000);
+            return new FhirBundle.FhirResource();
+        });
+    }
+
+    private FhirRouter router(int ejectAfter, FhirClient a, FhirClient b) {
+        return new FhirRouter(config(ejectAfter), List.of(
+                new FhirRouter.Replica("a", a, null),
+                new FhirRouter.Replica("b", b, null)),
+                new SimpleMeterRegistry(), clock::get);
+    }
+
+    private static FhirReplicaConfig config(int ejectAfter) {
+        return new FhirReplicaConfig() {
+            @Override
+            public Optional<List<String>> replicas() {
+                return Optional.empty();
+            }
+
+            @Override
+            public int ejectAfter() {
+                return ejectAfter;
+            }
+
+            @Override
+            public Duration probeInterval() {
+                return Duration.ofSeconds(10);
+            }
+
+            @Override
+            public int maxPageSize() {
+                return 200;
+            }
+        };
+    }
+}
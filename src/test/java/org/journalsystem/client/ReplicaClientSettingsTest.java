@@ -0,0 +1,66 @@
+package org.journalsystem.client;
+
+import io.quarkus.rest.client.reactive.QuarkusRestClientBuilder;
+import io.quarkus.restclient.config.RestClientsConfig;
+import io.quarkus.tls.TlsConfiguration;
+import io.quarkus.tls.TlsConfigurationRegistry;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReplicaClientSettingsTest {
+
+    private final RestClientsConfig clients = mock(RestClientsConfig.class);
+    private final RestClientsConfig.RestClientConfig fhirApi = mock(RestClientsConfig.RestClientConfig.class);
+    private final TlsConfigurationRegistry tls = mock(TlsConfigurationRegistry.class);
+    private final QuarkusRestClientBuilder builder = mock(QuarkusRestClientBuilder.class);
+
+    @Test
+    void apply_shouldUseFhirApiSettingsOverGlobalOnes() {
+        TlsConfiguration fhirTls = mock(TlsConfiguration.class);
+        when(clients.getClient(FhirClient.class)).thenReturn(fhirApi);
+        when(clients.connectTimeout()).thenReturn(15000L);
+        when(clients.readTimeout()).thenReturn(30000L);
+        when(fhirApi.readTimeout()).thenReturn(Optional.of(2000L));
+        when(fhirApi.tlsConfigurationName()).thenReturn(Optional.of("fhir"));
+        when(tls.get("fhir")).thenReturn(Optional.of(fhirTls));
+
+        new ReplicaClientSettings(clients, tls).apply(builder);
+
+        verify(builder).connectTimeout(15000L, TimeUnit.MILLISECONDS);
+        verify(builder).readTimeout(2000L, TimeUnit.MILLISECONDS);
+        verify(builder).tlsConfiguration(fhirTls);
+        verify(builder, never()).register(any(ClientRequestFilter.class));
+    }
+
+    @Test
+    void apply_shouldSendConfiguredHeadersUnlessTheRequestSetsThem() throws Exception {
+        when(clients.getClient(FhirClient.class)).thenReturn(fhirApi);
+        when(clients.headers()).thenReturn(Map.of("X-Tenant", "north", "Accept-Language", "sv"));
+        when(fhirApi.headers()).thenReturn(Map.of("X-Tenant", "south"));
+
+        new ReplicaClientSettings(clients, tls).apply(builder);
+
+        ArgumentCaptor<Object> filter = ArgumentCaptor.forClass(Object.class);
+        verify(builder).register(filter.capture());
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        headers.putSingle("Accept-Language", "en");
+        ClientRequestContext request = mock(ClientRequestContext.class);
+        when(request.getHeaders()).thenReturn(headers);
+        ((ClientRequestFilter) filter.getValue()).filter(request);
+
+        assertThat(headers.getFirst("X-Tenant")).isEqualTo("south");
+        assertThat(headers.getFirst("Accept-Language")).isEqualTo("en");
+    }
+}
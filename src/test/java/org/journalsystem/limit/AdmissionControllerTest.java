@@ -0,0 +1,98 @@
+package org.journalsystem.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControllerTest {
+
+    private final List<String> started = new ArrayList<>();
+
+    @Test
+    void overload_shouldShedLowPrioritiesAndQueueHighOnesByPriority() {
+        AdmissionController admission = admission(Duration.ofSeconds(10));
+        CompletableFuture<String> first = new CompletableFuture<>();
+
+        UniAssertSubscriber<String> running = submit(admission, Priority.CRITICAL, "running-1", first);
+        submit(admission, Priority.CRITICAL, "running-2", new CompletableFuture<>());
+
+        submit(admission, Priority.LOW, "name-search", new CompletableFuture<>())
+                .assertFailedWith(AdmissionRejectedException.class);
+        UniAssertSubscriber<String> high = submit(admission, Priority.HIGH, "high", new CompletableFuture<>());
+        submit(admission, Priority.NORMAL, "staff-lookup", new CompletableFuture<>())
+                .assertFailedWith(AdmissionRejectedException.class);
+        submit(admission, Priority.CRITICAL, "encounters", new CompletableFuture<>());
+
+        assertThat(started).containsExactly("running-1", "running-2");
+        assertThat(admission.queued()).isEqualTo(2);
+        assertThat(admission.rejections(Priority.LOW)).isEqualTo(1.0);
+        assertThat(admission.rejections(Priority.NORMAL)).isEqualTo(1.0);
+
+        first.complete("done");
+        running.assertItem("done");
+
+        assertThat(started).containsExactly("running-1", "running-2", "encounters");
+        high.assertNotTerminated();
+    }
+
+    @Test
+    void queuedSearch_shouldBeRejectedAfterMaxQueueWait() {
+        AdmissionController admission = admission(Duration.ofMillis(50));
+        submit(admission, Priority.CRITICAL, "running-1", new CompletableFuture<>());
+        submit(admission, Priority.CRITICAL, "running-2", new CompletableFuture<>());
+
+        UniAssertSubscriber<String> queued = submit(admission, Priority.HIGH, "queued", new CompletableFuture<>());
+
+        AdmissionRejectedException rejection = (AdmissionRejectedException) queued
+                .awaitFailure(Duration.ofSeconds(5))
+                .getFailure();
+        assertThat(rejection.retryAfterSeconds()).isGreaterThanOrEqualTo(1);
+        assertThat(admission.queued()).isZero();
+        assertThat(started).doesNotContain("queued");
+    }
+
+    private UniAssertSubscriber<String> submit(
+            AdmissionController admission,
+            Priority priority,
+            String name,
+            CompletableFuture<String> result) {
+        return admission.admit(priority, () -> {
+                    started.add(name);
+                    return Uni.createFrom().completionStage(result);
+                })
+                .subscribe().withSubscriber(UniAssertSubscriber.create());
+    }
+
+    private AdmissionController admission(Duration maxQueueWait) {
+        AdmissionConfig config = new AdmissionConfig() {
+            @Override
+            public boolean enabled() {
+                return true;
+            }
+
+            @Override
+            public int maxConcurrent() {
+                return 2;
+            }
+
+            @Override
+            public int maxQueue() {
+                return 2;
+            }
+
+            @Override
+            public Duration maxQueueWait() {
+                return maxQueueWait;
+            }
+        };
+        return new AdmissionController(config, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,207 @@
+package org.journalsystem.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void limit_shouldGrowWhileSaturatedAndLatencyIsSteady() {
+        UpstreamLimiter limiter = limiter(20, 1000);
+
+        for (int round = 0; round < 5; round++) {
+            runRound(limiter, limiter.currentLimit(), 10);
+        }
+
+        assertThat(limiter.currentLimit()).isGreaterThan(20);
+        assertThat(limiter.lastRttNanos()).isEqualTo(10_000_000L);
+    }
+
+    @Test
+    void limit_shouldShrinkWhenLatencyRises() {
+        UpstreamLimiter limiter = limiter(20, 1000);
+        for (int round = 0; round < 5; round++) {
+            runRound(limiter, limiter.currentLimit(), 10);
+        }
+        int beforeSlowdown = limiter.currentLimit();
+
+        for (int round = 0; round < 2; round++) {
+            runRound(limiter, limiter.currentLimit(), 100);
+        }
+
+        assertThat(limiter.currentLimit()).isLessThan(beforeSlowdown);
+    }
+
+    @Test
+    void serverErrors_shouldBackOffMultiplicatively() {
+        UpstreamLimiter limiter = limiter(20, 1000);
+
+        limiter.call(() -> Uni.createFrom().failure(new WebApplicationException(503)))
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .assertFailedWith(WebApplicationException.class);
+
+        assertThat(limiter.currentLimit()).isEqualTo(18);
+    }
+
+    @Test
+    void callsOverTheLimit_shouldWaitAndBeRejectedWhenQueueIsFull() {
+        UpstreamLimiter limiter = limiter(2, 1);
+        AtomicInteger started = new AtomicInteger();
+        List<CompletableFuture<String>> pending = new ArrayList<>();
+
+        List<UniAssertSubscriber<String>> subscribers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            pending.add(future);
+            subscribers.add(limiter.call(() -> {
+                started.incrementAndGet();
+                return Uni.createFrom().completionStage(future);
+            }).subscribe().withSubscriber(UniAssertSubscriber.create()));
+        }
+
+        assertThat(started).hasValue(2);
+        assertThat(limiter.queued()).isEqualTo(1);
+
+        limiter.call(() -> Uni.createFrom().item("rejected"))
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .assertFailedWith(LimitExceededException.class);
+        assertThat(limiter.rejections()).isEqualTo(1.0);
+
+        pending.get(0).complete("first");
+        subscribers.get(0).assertItem("first");
+        assertThat(started).hasValue(3);
+        assertThat(limiter.queued()).isZero();
+
+        pending.get(1).complete("second");
+        pending.get(2).complete("third");
+        subscribers.get(2).assertItem("third");
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void lightPrincipal_shouldNotQueueBehindHeavyPrincipal() {
+        UpstreamLimiter limiter = limiter(4, 1000);
+        List<CompletableFuture<String>> heavy = new ArrayList<>();
+        List<String> started = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            heavy.add(future);
+            int call = i;
+            limiter.call("heavy", () -> {
+                started.add("heavy-" + call);
+                return Uni.createFrom().completionStage(future);
+            }).subscribe().with(item -> { });
+        }
+        UniAssertSubscriber<String> light = limiter.call("light", () -> {
+            started.add("light");
+            return Uni.createFrom().item("light");
+        }).subscribe().withSubscriber(UniAssertSubscriber.create());
+
+        assertThat(limiter.queued("heavy")).isEqualTo(16);
+        assertThat(limiter.queued("light")).isEqualTo(1);
+
+        heavy.get(0).complete("ok");
+
+        // The light call takes the first free permit, its own completion frees one for heavy again
+        light.assertItem("light");
+        assertThat(started).containsExactly("heavy-0", "heavy-1", "heavy-2", "heavy-3", "light", "heavy-4");
+        assertThat(limiter.queued("heavy")).isEqualTo(15);
+        assertThat(limiter.queued("light")).isZero();
+    }
+
+    @Test
+    void meters_shouldNotNameOrGrowWithPrincipals() {
+        UpstreamLimiter limiter = limiter(4, 1000);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.call("user-" + i, () -> Uni.createFrom().item("ok")).await().indefinitely();
+        }
+
+        assertThat(registry.getMeters())
+                .allSatisfy(meter -> assertThat(meter.getId().getTag("principal")).isNull());
+        assertThat(registry.get("search.upstream.latency").timer().count()).isEqualTo(50);
+        assertThat(registry.get("search.upstream.principals").gauge().value()).isZero();
+    }
+
+    private void runRound(UpstreamLimiter limiter, int calls, long rttMillis) {
+        List<CompletableFuture<String>> pending = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            pending.add(future);
+            limiter.call(() -> Uni.createFrom().completionStage(future))
+                    .subscribe().with(item -> { });
+        }
+        clock.addAndGet(rttMillis * 1_000_000);
+        pending.forEach(future -> future.complete("ok"));
+    }
+
+    private UpstreamLimiter limiter(int initialLimit, int maxQueue) {
+        LimiterConfig config = new LimiterConfig() {
+            @Override
+            public boolean enabled() {
+                return true;
+            }
+
+            @Override
+            public int initialLimit() {
+                return initialLimit;
+            }
+
+            @Override
+            public int minLimit() {
+                return 1;
+            }
+
+            @Override
+            public int maxLimit() {
+                return 256;
+            }
+
+            @Override
+            public int maxQueue() {
+                return maxQueue;
+            }
+
+            @Override
+            public double principalShare() {
+                return 0.5;
+            }
+
+            @Override
+            public double rttTolerance() {
+                return 1.5;
+            }
+
+            @Override
+            public double smoothing() {
+                return 0.2;
+            }
+
+            @Override
+            public double backoffRatio() {
+                return 0.9;
+            }
+
+            @Override
+            public int longWindow() {
+                return 600;
+            }
+        };
+        return new UpstreamLimiter(config, registry, clock::get);
+    }
+}
@@ -0,0 +1,32 @@
+package org.journalsystem.mapper;
+
+import org.journalsystem.dto.fhir.EncounterResource;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.journalsystem.dto.fhir.ResourceRef;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FhirMapperTest {
+
+    @Test
+    void toEncounterResource_shouldSkipEmptyParticipantReference() {
+        FhirBundle.FhirResource resource = new FhirBundle.FhirResource();
+        resource.resourceType = "Encounter";
+        resource.id = "e-1";
+        resource.participant = List.of(participant(""), participant("Practitioner/p-1"));
+
+        EncounterResource encounter = FhirMapper.toEncounterResource(resource);
+
+        assertThat(encounter.practitioner()).isEqualTo(ResourceRef.of("Practitioner", "p-1"));
+    }
+
+    private static FhirBundle.Participant participant(String reference) {
+        FhirBundle.Participant participant = new FhirBundle.Participant();
+        participant.individual = new FhirBundle.Reference();
+        participant.individual.reference = reference;
+        return participant;
+    }
+}
@@ -0,0 +1,180 @@
+package org.journalsystem.service;
+
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.journalsystem.cache.CacheStore;
+import org.journalsystem.cache.NegativeLookupCache;
+import org.journalsystem.client.BlockingFhirClient;
+import org.journalsystem.dto.EncounterSearchResult;
+import org.journalsystem.dto.PatientSearchResult;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@QuarkusTest
+class BlockingSearchServiceTest {
+
+    private static final String PRACTITIONER_ID = "30681750-1667-311a-a3e3-878ae10a35bb";
+
+    @Inject
+    BlockingSearchService searchService;
+
+    @InjectMock
+    @RestClient
+    BlockingFhirClient fhirClient;
+
+    @Inject
+    CacheStore cacheStore;
+
+    @Inject
+    NegativeLookupCache negativeLookups;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.reset(fhirClient);
+        cacheStore.clear().await().indefinitely();
+        negativeLookups.clear();
+    }
+
+    @Test
+    void searchPatientsByCondition_shouldDeduplicateAndEnrichPatients() {
+        when(fhirClient.searchConditions("Diabetes")).thenReturn(bundle(
+                condition("c1", "Patient/1"), condition("c2", "Patient/1"), condition("c3", "Patient/2")));
+        when(fhirClient.getPatient("1")).thenReturn(patient("1", "Anna", "Andersson"));
+        when(fhirClient.getPatient("2")).thenReturn(patient("2", "Bo", "Berg"));
+
+        List<PatientSearchResult> result = searchService.searchPatientsByCondition("Diabetes", PageRequest.unpaged());
+
+        assertThat(result).extracting(PatientSearchResult::firstName).containsExactlyInAnyOrder("Anna", "Bo");
+        Mockito.verify(fhirClient, Mockito.times(1)).getPatient("1");
+    }
+
+    @Test
+    void searchPatientsByCondition_shouldSortAndSliceLikeTheReactivePath() {
+        when(fhirClient.searchConditions("Asthma")).thenReturn(bundle(
+                condition("c1", "Patient/1"), condition("c2", "Patient/2"), condition("c3", "Patient/3")));
+        when(fhirClient.getPatient("1")).thenReturn(patient("1", "Cecilia", "Carlsson"));
+        when(fhirClient.getPatient("2")).thenReturn(patient("2", "Anna", "Andersson"));
+        when(fhirClient.getPatient("3")).thenReturn(patient("3", "Bo", "Berg"));
+
+        PageRequest page = PageRequest.of(1, 1, "lastName", SearchService.PATIENT_SORT_FIELDS);
+        List<PatientSearchResult> result = searchService.searchPatientsByCondition("Asthma", page);
+
+        assertThat(result).extracting(PatientSearchResult::lastName).containsExactly("Berg");
+    }
+
+    @Test
+    void searchEncountersByPractitioner_shouldResolveNamesAndTolerateMissingPatients() {
+        when(fhirClient.searchEncountersByPractitionerOnly(PRACTITIONER_ID)).thenReturn(bundle(
+                encounter("e1", "Patient/1"), encounter("e2", "Patient/404")));
+        when(fhirClient.getPatient("1")).thenReturn(patient("1", "Anna", "Andersson"));
+        when(fhirClient.getPatient("404")).thenThrow(new RuntimeException("Not found"));
+        when(fhirClient.getPractitioner(PRACTITIONER_ID)).thenReturn(practitioner("Erik", "Karlsson"));
+
+        List<EncounterSearchResult> result =
+                searchService.searchEncountersByPractitioner(PRACTITIONER_ID, null, PageRequest.unpaged());
+
+        assertThat(result).hasSize(2);
+        assertThat(result).extracting(EncounterSearchResult::patientName)
+                .containsExactlyInAnyOrder("Anna Andersson", "");
+        assertThat(result).extracting(EncounterSearchResult::practitionerName)
+                .containsOnly("Erik Karlsson");
+    }
+
+    @Test
+    void searchPatientsByCondition_shouldAnswerLatePatientsUnenriched_whenDeadlineExpires() {
+        when(fhirClient.searchConditions("Diabetes")).thenReturn(bundle(
+                condition("c1", "Patient/1"), condition("c2", "Patient/slow")));
+        when(fhirClient.getPatient("1")).thenReturn(patient("1", "Anna", "Andersson"));
+        when(fhirClient.getPatient("slow")).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return patient("slow", "Sven", "Svensson");
+        });
+
+        Deadline deadline = Deadline.after(Duration.ofMillis(200));
+        long start = System.nanoTime();
+        List<PatientSearchResult> result =
+                searchService.searchPatientsByCondition("Diabetes", PageRequest.unpaged(), deadline);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(result).extracting(PatientSearchResult::firstName).containsExactlyInAnyOrder("Anna", "");
+        assertThat(deadline.pending()).isEqualTo(1);
+    }
+
+    @Test
+    void searchPatientsByName_shouldReturnEmptyList_onError() {
+        when(fhirClient.searchPatients("Error")).thenThrow(new RuntimeException("FHIR error"));
+
+        assertThat(searchService.searchPatientsByName("Error", PageRequest.unpaged())).isEmpty();
+    }
+
+    private static FhirBundle bundle(FhirBundle.FhirResource... resources) {
+        FhirBundle bundle = new FhirBundle();
+        bundle.resourceType = "Bundle";
+        bundle.entry = new ArrayList<>();
+        for (FhirBundle.FhirResource resource : resources) {
+            FhirBundle.BundleEntry entry = new FhirBundle.BundleEntry();
+            entry.resource = resource;
+            bundle.entry.add(entry);
+        }
+        return bundle;
+    }
+
+    private static FhirBundle.FhirResource patient(String id, String firstName, String lastName) {
+        FhirBundle.FhirResource patient = new FhirBundle.FhirResource();
+        patient.resourceType = "Patient";
+        patient.id = id;
+        patient.name = List.of(name(firstName, lastName));
+        return patient;
+    }
+
+    private static FhirBundle.FhirResource practitioner(String firstName, String lastName) {
+        FhirBundle.FhirResource practitioner = new FhirBundle.FhirResource();
+        practitioner.resourceType = "Practitioner";
+        practitioner.id = PRACTITIONER_ID;
+        practitioner.name = List.of(name(firstName, lastName));
+        return practitioner;
+    }
+
+    private static FhirBundle.HumanName name(String firstName, String lastName) {
+        FhirBundle.HumanName name = new FhirBundle.HumanName();
+        name.given = List.of(firstName);
+        name.family = lastName;
+        return name;
+    }
+
+    private static FhirBundle.FhirResource condition(String id, String subject) {
+        FhirBundle.FhirResource condition = new FhirBundle.FhirResource();
+        condition.resourceType = "Condition";
+        condition.id = id;
+        condition.subject = reference(subject);
+        return condition;
+    }
+
+    private static FhirBundle.FhirResource encounter(String id, String subject) {
+        FhirBundle.FhirResource encounter = new FhirBundle.FhirResource();
+        encounter.resourceType = "Encounter";
+        encounter.id = id;
+        encounter.subject = reference(subject);
+        FhirBundle.Participant participant = new FhirBundle.Participant();
+        participant.individual = reference("Practitioner/" + PRACTITIONER_ID);
+        encounter.participant = List.of(participant);
+        return encounter;
+    }
+
+    private static FhirBundle.Reference reference(String value) {
+        FhirBundle.Reference reference = new FhirBundle.Reference();
+        reference.reference = value;
+        return reference;
+    }
+}
@@ -0,0 +1,127 @@
+package org.journalsystem.service;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import org.journalsystem.FhirStandInResource;
+import org.journalsystem.cache.CacheStore;
+import org.journalsystem.dto.PatientSearchResult;
+import org.journalsystem.limit.CallerContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the reactive and blocking execution modes on condition searches against
+ * {@link FhirStandInResource} (one condition search plus 20 patient reads per request, 5 ms
+ * each). Run with {@code mvn test -Dtest=ExecutionModeBenchmarkTest -Dbenchmark=true}.
+ * Allocation is summed over live platform threads, so it undercounts virtual threads.
+ */
+@QuarkusTest
+@TestProfile(ExecutionModeBenchmarkTest.StandInFhir.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ExecutionModeBenchmarkTest {
+
+    public static class StandInFhir implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "quarkus.rest-client.fhir-api.url", "http://localhost:${quarkus.http.test-port:8081}/fhir",
+                    "quarkus.log.category.\"org.journalsystem\".level", "WARN");
+        }
+    }
+
+    private static final int WARMUP = 300;
+    private static final int REQUESTS = 3000;
+    private static final int CONCURRENCY = 64;
+
+    @Inject
+    SearchService searchService;
+
+    @Inject
+    BlockingSearchService blockingSearchService;
+
+    @Inject
+    SearchExecutor searchExecutor;
+
+    @Inject
+    CacheStore cacheStore;
+
+    @Test
+    void compareExecutionModes() {
+        Function<String, Uni<List<PatientSearchResult>>> reactive = condition ->
+                searchService.searchPatientsByCondition(condition, PageRequest.unpaged());
+        Function<String, Uni<List<PatientSearchResult>>> blocking = condition ->
+                searchExecutor.submit(CallerContext.ANONYMOUS, () ->
+                        blockingSearchService.searchPatientsByCondition(condition, PageRequest.unpaged()));
+
+        run("reactive-warmup", reactive, WARMUP);
+        run("blocking-warmup", blocking, WARMUP);
+        Result reactiveResult = run("reactive", reactive, REQUESTS);
+        Result blockingResult = run("blocking", blocking, REQUESTS);
+
+        System.out.printf("%n%-9s %10s %9s %9s %9s %12s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "alloc KB/req");
+        for (Result result : List.of(reactiveResult, blockingResult)) {
+            System.out.printf("%-9s %10.0f %9.1f %9.1f %9.1f %12.0f%n", result.mode(), result.throughput(),
+                    result.percentile(0.50), result.percentile(0.99), result.percentile(1.0),
+                    result.allocatedBytes() / 1024.0 / REQUESTS);
+        }
+        System.out.printf("blocking mode on %s threads%n%n", searchExecutor.isVirtual() ? "virtual" : "platform");
+
+        assertThat(reactiveResult.complete()).isTrue();
+        assertThat(blockingResult.complete()).isTrue();
+    }
+
+    private Result run(String mode, Function<String, Uni<List<PatientSearchResult>>> search, int requests) {
+        cacheStore.clear().await().indefinitely();
+        long[] latencies = new long[requests];
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        List<Integer> sizes = Multi.createFrom().range(0, requests)
+                .onItem().transformToUni(i -> {
+                    long requestStart = System.nanoTime();
+                    return search.apply(mode + "-" + i)
+                            .invoke(ignored -> latencies[i] = System.nanoTime() - requestStart)
+                            .map(List::size);
+                })
+                .merge(CONCURRENCY)
+                .collect().asList()
+                .await().indefinitely();
+
+        long elapsed = System.nanoTime() - start;
+        boolean complete = sizes.stream().allMatch(size -> size == FhirStandInResource.CONDITIONS_PER_SEARCH);
+        return new Result(mode, latencies, elapsed, allocatedBytes() - allocatedBefore, complete);
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return Arrays.stream(threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+                .filter(bytes -> bytes > 0)
+                .sum();
+    }
+
+    private record Result(String mode, long[] latencies, long elapsedNanos, long allocatedBytes, boolean complete) {
+
+        double throughput() {
+            return latencies.length / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        double percentile(double percentile) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
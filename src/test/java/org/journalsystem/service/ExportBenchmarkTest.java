@@ -0,0 +1,99 @@
+package org.journalsystem.service;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.journalsystem.FhirStandInResource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports the synthetic conditions of {@link FhirStandInResource} as CSV and reports rows per
+ * second and peak heap. The 100k-row export starts from a cursor near the end of the same
+ * dataset, so the two runs differ only in length: with a bounded window their peaks should be
+ * about the same. Run with {@code mvn test -Dtest=ExportBenchmarkTest -Dbenchmark=true}, and
+ * a small heap ({@code -DargLine=-Xmx256m}) to see the export stay within it.
+ */
+@QuarkusTest
+@TestProfile(ExportBenchmarkTest.StandInFhir.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ExportBenchmarkTest {
+
+    public static class StandInFhir implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "quarkus.rest-client.fhir-api.url", "http://localhost:${quarkus.http.test-port:8081}/fhir",
+                    "%test.search.export.page-size", "500",
+                    "quarkus.log.category.\"org.journalsystem\".level", "WARN");
+        }
+    }
+
+    @Inject
+    SearchService searchService;
+
+    @Inject
+    ExportWriter writer;
+
+    @Test
+    void exportMillionConditions() {
+        ConditionQuery query = ConditionQuery.of("export", null, null);
+        run(query, FhirStandInResource.EXPORT_CONDITIONS - 10_000);
+        Result small = run(query, FhirStandInResource.EXPORT_CONDITIONS - 100_000);
+        Result full = run(query, 0);
+
+        System.out.printf("%n%-9s %10s %10s %10s %14s%n", "rows", "rows/s", "MB", "seconds", "peak heap MB");
+        for (Result result : List.of(small, full)) {
+            System.out.printf("%-9d %10.0f %10.1f %10.1f %14.1f%n", result.rows(), result.throughput(),
+                    result.bytes() / 1024.0 / 1024.0, result.elapsedNanos() / 1e9, result.peakHeap() / 1024.0 / 1024.0);
+        }
+        System.out.println();
+
+        assertThat(small.rows()).isEqualTo(100_000);
+        assertThat(full.rows()).isEqualTo(FhirStandInResource.EXPORT_CONDITIONS);
+    }
+
+    private Result run(ConditionQuery query, int cursor) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        AtomicLong peak = new AtomicLong(memory.getHeapMemoryUsage().getUsed());
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 10, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        long[] totals;
+        try {
+            totals = writer.write(ExportFormat.CSV, ExportWriter.CONDITION_COLUMNS,
+                            searchService.exportConditions(query, cursor))
+                    .collect().in(() -> new long[2], (sums, chunk) -> {
+                        sums[0] += chunk.chars().filter(c -> c == '\n').count();
+                        sums[1] += chunk.length();
+                    })
+                    .await().indefinitely();
+        } finally {
+            sampler.shutdownNow();
+        }
+        // The CSV header line is not a row
+        return new Result(totals[0] - 1, totals[1], System.nanoTime() - start, peak.get());
+    }
+
+    private record Result(long rows, long bytes, long elapsedNanos, long peakHeap) {
+
+        double throughput() {
+            return rows / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.journalsystem.service;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.journalsystem.FhirStandInResource;
+import org.journalsystem.dto.ConditionSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports against {@link FhirStandInResource}, which like HAPI never returns more than
+ * {@link FhirStandInResource#MAX_PAGE_SIZE} rows per page, with a larger export page size.
+ */
+@QuarkusTest
+@TestProfile(ExportBenchmarkTest.StandInFhir.class)
+class ExportPagingTest {
+
+    @Inject
+    SearchService searchService;
+
+    @Test
+    void exportConditions_shouldReadPastTheFhirPageCap() {
+        int rows = 3 * FhirStandInResource.MAX_PAGE_SIZE + 50;
+        int cursor = FhirStandInResource.EXPORT_CONDITIONS - rows;
+
+        List<ConditionSearchResult> exported = searchService
+                .exportConditions(ConditionQuery.of("export", null, null), cursor)
+                .collect().asList().await().indefinitely();
+
+        assertThat(exported).hasSize(rows);
+        assertThat(exported.get(0).id()).isEqualTo("c-" + cursor);
+        assertThat(exported.get(rows - 1).id()).isEqualTo("c-" + (FhirStandInResource.EXPORT_CONDITIONS - 1));
+    }
+}
@@ -0,0 +1,55 @@
+package org.journalsystem.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.mutiny.Multi;
+import org.journalsystem.dto.ConditionSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExportWriterTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ExportWriter writer = new ExportWriter(mapper);
+
+    @Test
+    void write_shouldQuoteCsvFieldsOnlyWhenNeeded() {
+        Multi<ConditionSearchResult> rows = Multi.createFrom().items(
+                new ConditionSearchResult("c1", "123", "Anna Andersson", "Diabetes, type 2", "2024-01-01"),
+                new ConditionSearchResult("c2", "456", "Bo \"Bosse\" Berg", "Asthma", null));
+
+        String csv = String.join("", writer.write(ExportFormat.CSV, ExportWriter.CONDITION_COLUMNS, rows)
+                .collect().asList().await().indefinitely());
+
+        assertThat(csv).isEqualTo("id,patientId,patientName,description,recordedDate\r\n"
+                + "c1,123,Anna Andersson,\"Diabetes, type 2\",2024-01-01\r\n"
+                + "c2,456,\"Bo \"\"Bosse\"\" Berg\",Asthma,\r\n");
+    }
+
+    @Test
+    void write_shouldChunkNdjsonLines() throws Exception {
+        List<ConditionSearchResult> rows = IntStream.range(0, ExportWriter.CHUNK_ROWS + 1)
+                .mapToObj(i -> new ConditionSearchResult("c" + i, "123", "Anna Andersson", "Asthma", "2024-01-01"))
+                .toList();
+
+        List<String> chunks = writer.write(ExportFormat.NDJSON, ExportWriter.CONDITION_COLUMNS,
+                Multi.createFrom().iterable(rows)).collect().asList().await().indefinitely();
+
+        assertThat(chunks).hasSize(2);
+        String[] lines = String.join("", chunks).split("\n");
+        assertThat(lines).hasSize(rows.size());
+        assertThat(mapper.readValue(lines[ExportWriter.CHUNK_ROWS], ConditionSearchResult.class))
+                .isEqualTo(rows.get(ExportWriter.CHUNK_ROWS));
+    }
+
+    @Test
+    void formatOf_shouldDefaultToNdjsonAndRejectUnknown() {
+        assertThat(ExportFormat.of(null)).isEqualTo(ExportFormat.NDJSON);
+        assertThat(ExportFormat.of("CSV")).isEqualTo(ExportFormat.CSV);
+        assertThatThrownBy(() -> ExportFormat.of("xlsx")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,162 @@
+package org.journalsystem.service;
+
+import io.smallrye.mutiny.Uni;
+import org.journalsystem.client.FhirClient;
+import org.journalsystem.dto.FederatedPatientResult;
+import org.journalsystem.dto.PatientSearchResult;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FederatedSearchServiceTest {
+
+    private FederatedSearchService service;
+    private FhirClient south;
+    private FhirClient north;
+    private Semaphore northCalls;
+
+    @BeforeEach
+    void setUp() {
+        service = new FederatedSearchService();
+        service.config = config();
+        service.searchService = mock(SearchService.class);
+        south = mock(FhirClient.class);
+        north = mock(FhirClient.class);
+        northCalls = new Semaphore(1);
+        service.sources = List.of(
+                new FederatedSearchService.Source("south", south, Duration.ofMillis(200), new Semaphore(16)),
+                new FederatedSearchService.Source("north", north, Duration.ofMillis(200), northCalls));
+    }
+
+    @Test
+    void searchPatientsByName_shouldMergeSourcesAndDropDuplicatePersonnummer() {
+        when(service.searchService.searchPatientsByName("Anna")).thenReturn(Uni.createFrom().item(List.of(
+                new PatientSearchResult("1", "Anna", "Andersson", "197001011234", "1970-01-01"))));
+        when(south.searchPatients(any())).thenReturn(Uni.createFrom().item(bundle(
+                patient("s-7", "Anna", "Andersson", "197001011234"),
+                patient("s-8", "Anna", "Berg", "198502023456"))));
+        when(north.searchPatients(any())).thenReturn(Uni.createFrom().item(bundle(
+                patient("n-3", "Anna", "Nilsson", "199003034567"))));
+
+        List<FederatedPatientResult> results = service.searchPatientsByName("Anna")
+                .collect().asList().await().atMost(Duration.ofSeconds(5));
+
+        assertThat(results).extracting(FederatedPatientResult::socialSecurityNumber)
+                .containsExactlyInAnyOrder("197001011234", "198502023456", "199003034567");
+        assertThat(results).extracting(FederatedPatientResult::source)
+                .containsExactlyInAnyOrder("local", "south", "north");
+    }
+
+    @Test
+    void searchPatientsByName_shouldNotWaitBeyondTimeoutForSlowSource() {
+        when(service.searchService.searchPatientsByName("Anna")).thenReturn(Uni.createFrom().item(List.of()));
+        when(south.searchPatients(any())).thenReturn(Uni.createFrom().item(bundle(
+                patient("s-8", "Anna", "Berg", "198502023456"))));
+        when(north.searchPatients(any())).thenReturn(Uni.createFrom().nothing());
+
+        long start = System.nanoTime();
+        List<FederatedPatientResult> results = service.searchPatientsByName("Anna")
+                .collect().asList().await().atMost(Duration.ofSeconds(5));
+
+        assertThat(results).extracting(FederatedPatientResult::source).containsExactly("south");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void searchPatientsByName_shouldKeepPatientsWithoutPersonnummerFromEverySource() {
+        when(service.searchService.searchPatientsByName("Anna")).thenReturn(Uni.createFrom().item(List.of(
+                new PatientSearchResult("1", "Anna", "Andersson", "", ""))));
+        when(south.searchPatients(any())).thenReturn(Uni.createFrom().item(bundle(
+                patient("1", "Anna", "Andersson", null))));
+        when(north.searchPatients(any())).thenReturn(Uni.createFrom().failure(new RuntimeException("down")));
+
+        List<FederatedPatientResult> results = service.searchPatientsByName("Anna")
+                .collect().asList().await().atMost(Duration.ofSeconds(5));
+
+        assertThat(results).extracting(FederatedPatientResult::source).containsExactlyInAnyOrder("local", "south");
+    }
+
+    @Test
+    void searchPatientsByName_shouldSkipSourceWithAllCallsInFlight() {
+        when(service.searchService.searchPatientsByName("Anna")).thenReturn(Uni.createFrom().item(List.of()));
+        when(south.searchPatients(any())).thenReturn(Uni.createFrom().item(bundle()));
+        when(north.searchPatients(any())).thenReturn(Uni.createFrom().nothing());
+
+        CompletableFuture<List<FederatedPatientResult>> first = service.searchPatientsByName("Anna").collect().asList().subscribe().asCompletionStage();
+        service.searchPatientsByName("Anna").collect().asList().await().atMost(Duration.ofSeconds(5));
+        first.join();
+
+        verify(north, times(1)).searchPatients(any());
+        assertThat(northCalls.availablePermits()).isEqualTo(1);
+    }
+
+    private static FhirBundle.FhirResource patient(String id, String firstName, String lastName, String ssn) {
+        FhirBundle.FhirResource patient = new FhirBundle.FhirResource();
+        patient.resourceType = "Patient";
+        patient.id = id;
+
+        FhirBundle.HumanName name = new FhirBundle.HumanName();
+        name.given = List.of(firstName);
+        name.family = lastName;
+        patient.name = List.of(name);
+
+        if (ssn != null) {
+            FhirBundle.Identifier identifier = new FhirBundle.Identifier();
+            identifier.value = ssn;
+            patient.identifier = List.of(identifier);
+        }
+        return patient;
+    }
+
+    private static FhirBundle bundle(FhirBundle.FhirResource... patients) {
+        FhirBundle bundle = new FhirBundle();
+        bundle.resourceType = "Bundle";
+        bundle.type = "searchset";
+        bundle.total = patients.length;
+        bundle.entry = new ArrayList<>();
+        for (FhirBundle.FhirResource patient : patients) {
+            FhirBundle.BundleEntry entry = new FhirBundle.BundleEntry();
+            entry.resource = patient;
+            bundle.entry.add(entry);
+        }
+        return bundle;
+    }
+
+    private static FederationConfig config() {
+        return new FederationConfig() {
+            @Override
+            public String localSource() {
+                return "local";
+            }
+
+            @Override
+            public Duration timeout() {
+                return Duration.ofMillis(200);
+            }
+
+            @Override
+            public int maxConcurrent() {
+                return 16;
+            }
+
+            @Override
+            public Map<String, Source> sources() {
+                return Map.of();
+            }
+        };
+    }
+}
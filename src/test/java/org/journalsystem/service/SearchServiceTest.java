@@ -5,8 +5,14 @@ import io.quarkus.test.InjectMock;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.journalsystem.cache.CacheRegions;
+import org.journalsystem.cache.CacheStore;
+import org.journalsystem.cache.NegativeLookupCache;
 import org.journalsystem.client.FhirClient;
+import org.journalsystem.dto.ConditionSearchResult;
+import org.journalsystem.dto.DoctorPatientsResult;
 import org.journalsystem.dto.EncounterSearchResult;
 import org.journalsystem.dto.PatientSearchResult;
 import org.journalsystem.dto.fhir.FhirBundle;
@@ -14,11 +20,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @QuarkusTest
@@ -31,6 +45,15 @@ class SearchServiceTest {
     @RestClient
     FhirClient fhirClient;
 
+    @Inject
+    CacheStore cacheStore;
+
+    @Inject
+    NegativeLookupCache negativeLookups;
+
+    @Inject
+    ResourceChangeService changeService;
+
     private FhirBundle testPatientBundle;
     private FhirBundle testConditionBundle;
     private FhirBundle testEncounterBundle;
@@ -40,6 +63,8 @@ class SearchServiceTest {
     @BeforeEach
     void setUp() {
         Mockito.reset(fhirClient);
+        cacheStore.clear().await().indefinitely();
+        negativeLookups.clear();
 
         // Setup test data
         testPatient = createTestPatient("123", "Anna", "Andersson", "197001011234", "1970-01-01");
@@ -159,6 +184,25 @@ class SearchServiceTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    void searchPatientsByCondition_shouldDeduplicateAbsoluteAndRelativeSubjectReferences() {
+        FhirBundle conditions = createBundleWithConditions(List.of(
+                createTestCondition("cond1", "Patient/123", "Diabetes"),
+                createTestCondition("cond2", "https://hapi.example.org/fhir/Patient/123/_history/2", "Diabetes")
+        ));
+        when(fhirClient.searchConditions("Diabetes")).thenReturn(Uni.createFrom().item(conditions));
+        when(fhirClient.getPatient("123")).thenReturn(Uni.createFrom().item(testPatient));
+
+        List<PatientSearchResult> result = searchService.searchPatientsByCondition("Diabetes")
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).id()).isEqualTo("123");
+        Mockito.verify(fhirClient, Mockito.times(1)).getPatient("123");
+    }
+
     @Test
     void searchPatientsByCondition_shouldRecoverWithEmptyList_onError() {
         when(fhirClient.searchConditions("Error")).thenReturn(Uni.createFrom().failure(new RuntimeException("FHIR error")));
@@ -232,6 +276,28 @@ class SearchServiceTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    void searchPatientsByPractitionerId_shouldSkipKnownMissingIdentifierUntilPractitionerChanges() {
+        String identifier = "9999999999";
+        when(fhirClient.searchPractitionerByIdentifier(identifier))
+                .thenReturn(Uni.createFrom().item(createEmptyBundle()));
+
+        searchService.searchPatientsByPractitionerId(identifier).await().indefinitely();
+        cacheStore.clear().await().indefinitely();
+        assertThat(searchService.searchPatientsByPractitionerId(identifier).await().indefinitely()).isEmpty();
+        verify(fhirClient, times(1)).searchPractitionerByIdentifier(identifier);
+
+        FhirBundle.FhirResource practitioner = createTestPractitioner("999", "Dr. Erik", "Karlsson");
+        FhirBundle.Identifier personnummer = new FhirBundle.Identifier();
+        personnummer.value = identifier;
+        practitioner.identifier = List.of(personnummer);
+        changeService.onUpdated(practitioner).await().indefinitely();
+        cacheStore.clear().await().indefinitely();
+
+        searchService.searchPatientsByPractitionerId(identifier).await().indefinitely();
+        verify(fhirClient, times(2)).searchPractitionerByIdentifier(identifier);
+    }
+
     // ==========================================
     // searchEncountersByPractitioner() TESTS
     // ==========================================
@@ -256,6 +322,23 @@ class SearchServiceTest {
         assertThat(result.get(0).patientId()).isEqualTo("123");
     }
 
+    @Test
+    void searchEncountersByPractitioner_shouldNotReadMissingPatientAgain() {
+        String practitionerId = "30681750-1667-311a-a3e3-878ae10a35bb";
+        when(fhirClient.searchEncountersByPractitionerOnly(practitionerId))
+                .thenReturn(Uni.createFrom().item(testEncounterBundle));
+        when(fhirClient.getPatient("123")).thenReturn(Uni.createFrom().failure(new WebApplicationException(404)));
+        when(fhirClient.getPractitioner(practitionerId)).thenReturn(Uni.createFrom().item(testPractitioner));
+
+        searchService.searchEncountersByPractitioner(practitionerId, null).await().indefinitely();
+        cacheStore.clear().await().indefinitely();
+        List<EncounterSearchResult> result = searchService.searchEncountersByPractitioner(practitionerId, null)
+                .await().indefinitely();
+
+        assertThat(result).extracting(EncounterSearchResult::patientName).containsExactly("");
+        verify(fhirClient, times(1)).getPatient("123");
+    }
+
     @Test
     void searchEncountersByPractitioner_shouldReturnEncounters_whenDateProvided() {
         String practitionerId = "30681750-1667-311a-a3e3-878ae10a35bb";
@@ -314,6 +397,598 @@ class SearchServiceTest {
         assertThat(result.get(0).id()).isEqualTo("enc1");
     }
 
+    // ==========================================
+    // CACHING TESTS
+    // ==========================================
+
+    @Test
+    void searchPatientsByName_shouldServeRepeatedQueryFromCache() {
+        when(fhirClient.searchPatients("Anna")).thenReturn(Uni.createFrom().item(testPatientBundle));
+
+        searchService.searchPatientsByName("Anna").await().indefinitely();
+        List<PatientSearchResult> result = searchService.searchPatientsByName("Anna").await().indefinitely();
+
+        assertThat(result).hasSize(1);
+        Mockito.verify(fhirClient, Mockito.times(1)).searchPatients("Anna");
+    }
+
+    @Test
+    void searchPatientsByName_shouldNotCacheFailures() {
+        when(fhirClient.searchPatients("Anna"))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("FHIR error")))
+                .thenReturn(Uni.createFrom().item(testPatientBundle));
+
+        assertThat(searchService.searchPatientsByName("Anna").await().indefinitely()).isEmpty();
+        assertThat(searchService.searchPatientsByName("Anna").await().indefinitely()).hasSize(1);
+    }
+
+    @Test
+    void searchEncountersByPractitioner_shouldReuseCachedPatientsAndPractitioner() {
+        String practitionerId = "30681750-1667-311a-a3e3-878ae10a35bb";
+        FhirBundle encounters = createBundleWithEncounters(List.of(
+                createTestEncounter("enc1", "Patient/123", "Practitioner/999", "2024-01-01T10:00:00", "2024-01-01T11:00:00"),
+                createTestEncounter("enc2", "Patient/123", "Practitioner/999", "2024-01-02T10:00:00", "2024-01-02T11:00:00")
+        ));
+
+        when(fhirClient.searchEncountersByPractitionerOnly(practitionerId))
+                .thenReturn(Uni.createFrom().item(encounters));
+        when(fhirClient.getPatient("123")).thenReturn(Uni.createFrom().item(testPatient));
+        when(fhirClient.getPractitioner(practitionerId)).thenReturn(Uni.createFrom().item(testPractitioner));
+
+        List<EncounterSearchResult> result = searchService.searchEncountersByPractitioner(practitionerId, null)
+                .await().indefinitely();
+
+        assertThat(result).hasSize(2);
+        assertThat(result).extracting(EncounterSearchResult::patientName).containsOnly("Anna Andersson");
+        Mockito.verify(fhirClient, Mockito.times(1)).getPatient("123");
+        Mockito.verify(fhirClient, Mockito.times(1)).getPractitioner(practitionerId);
+
+        when(fhirClient.searchConditions("Diabetes")).thenReturn(Uni.createFrom().item(testConditionBundle));
+        searchService.searchPatientsByCondition("Diabetes").await().indefinitely();
+
+        Mockito.verify(fhirClient, Mockito.times(1)).getPatient("123");
+    }
+
+    // ==========================================
+    // PAGING TESTS
+    // ==========================================
+
+    @Test
+    void searchPatientsByName_shouldPushDownCountOffsetAndSort() {
+        FhirBundle.FhirResource patient2 = createTestPatient("456", "Anna", "Berg", "198001011234", "1980-01-01");
+        FhirBundle.FhirResource patient3 = createTestPatient("789", "Anna", "Carlsson", "199001011234", "1990-01-01");
+        when(fhirClient.searchPatients("Anna", 2, 1, "family,_id"))
+                .thenReturn(Uni.createFrom().item(createBundleWithPatients(List.of(patient3, patient2))));
+
+        PageRequest page = PageRequest.of(2, 1, "lastName", SearchService.PATIENT_SORT_FIELDS);
+        List<PatientSearchResult> result = searchService.searchPatientsByName("Anna", page)
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        assertThat(result).extracting(PatientSearchResult::lastName).containsExactly("Berg", "Carlsson");
+    }
+
+    @Test
+    void searchPatientsByName_shouldReadPagesAboveTheFhirMaximumInSeveralRequests() {
+        List<FhirBundle.FhirResource> fullPage = IntStream.range(0, 200)
+                .mapToObj(i -> createTestPatient("p" + i, "Anna", "Andersson", "19700101" + i, "1970-01-01"))
+                .toList();
+        FhirBundle.FhirResource patient2 = createTestPatient("456", "Anna", "Berg", "198001011234", "1980-01-01");
+        when(fhirClient.searchPatients("Anna", 200, 10, "family,_id"))
+                .thenReturn(Uni.createFrom().item(createBundleWithPatients(fullPage)));
+        when(fhirClient.searchPatients("Anna", 100, 210, "family,_id"))
+                .thenReturn(Uni.createFrom().item(createBundleWithPatients(List.of(patient2))));
+
+        PageRequest page = PageRequest.of(300, 10, "lastName", SearchService.PATIENT_SORT_FIELDS);
+        List<PatientSearchResult> result = searchService.searchPatientsByName("Anna", page)
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        assertThat(result).hasSize(201);
+        assertThat(result.get(200).lastName()).isEqualTo("Berg");
+    }
+
+    @Test
+    void searchPatientsByName_shouldReadEveryPageWhenSortedWithoutLimit() {
+        for (int offset = 0; offset < 600; offset += 200) {
+            int first = offset;
+            List<FhirBundle.FhirResource> fullPage = IntStream.range(first, first + 200)
+                    .mapToObj(i -> createTestPatient("p" + i, "Anna", "Andersson", "19700101" + i, "1970-01-01"))
+                    .toList();
+            when(fhirClient.searchPatients("Anna", 200, offset, "family,_id"))
+                    .thenReturn(Uni.createFrom().item(createBundleWithPatients(fullPage)));
+        }
+        when(fhirClient.searchPatients("Anna", 200, 600, "family,_id"))
+                .thenReturn(Uni.createFrom().item(createBundleWithPatients(List.of(
+                        createTestPatient("p600", "Anna", "Berg", "198001011234", "1980-01-01")))));
+
+        PageRequest page = PageRequest.of(null, null, "lastName", SearchService.PATIENT_SORT_FIELDS);
+        List<PatientSearchResult> result = searchService.searchPatientsByName("Anna", page)
+                .await().indefinitely();
+
+        assertThat(result).hasSize(601);
+        assertThat(result.get(600).lastName()).isEqualTo("Berg");
+    }
+
+    @Test
+    void searchPatientsByCondition_shouldStopEnrichingOnceLimitIsReached() {
+        FhirBundle conditions = createBundleWithConditions(List.of(
+                createTestCondition("cond1", "Patient/1", "Diabetes"),
+                createTestCondition("cond2", "Patient/2", "Diabetes"),
+                createTestCondition("cond3", "Patient/3", "Diabetes")
+        ));
+        when(fhirClient.searchConditions("Diabetes")).thenReturn(Uni.createFrom().item(conditions));
+        when(fhirClient.getPatient(anyString())).thenReturn(Uni.createFrom().item(testPatient));
+
+        PageRequest page = PageRequest.of(1, 0, null, SearchService.PATIENT_SORT_FIELDS);
+        List<PatientSearchResult> result = searchService.searchPatientsByCondition("Diabetes", page)
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        assertThat(result).hasSize(1);
+        Mockito.verify(fhirClient, Mockito.times(1)).getPatient(anyString());
+    }
+
+    @Test
+    void searchPatientsByCondition_shouldKeepTopKBySortOrder() {
+        FhirBundle conditions = createBundleWithConditions(List.of(
+                createTestCondition("cond1", "Patient/1", "Diabetes"),
+                createTestCondition("cond2", "Patient/2", "Diabetes"),
+                createTestCondition("cond3", "Patient/3", "Diabetes")
+        ));
+        when(fhirClient.searchConditions("Diabetes")).thenReturn(Uni.createFrom().item(conditions));
+        when(fhirClient.getPatient("1")).thenReturn(Uni.createFrom().item(
+                createTestPatient("1", "Anna", "Andersson", "1", "1970-01-01")));
+        when(fhirClient.getPatient("2")).thenReturn(Uni.createFrom().item(
+                createTestPatient("2", "Bo", "Berg", "2", "1980-01-01")));
+        when(fhirClient.getPatient("3")).thenReturn(Uni.createFrom().item(
+                createTestPatient("3", "Cecilia", "Carlsson", "3", "1990-01-01")));
+
+        PageRequest page = PageRequest.of(2, 0, "-lastName", SearchService.PATIENT_SORT_FIELDS);
+        List<PatientSearchResult> result = searchService.searchPatientsByCondition("Diabetes", page)
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        assertThat(result).extracting(PatientSearchResult::id).containsExactly("3", "2");
+    }
+
+    @Test
+    void searchPatientsByCondition_shouldPageWithoutOverlapOrGaps_whenSortFieldTies() {
+        List<FhirBundle.FhirResource> conditions = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            String id = String.valueOf(i);
+            conditions.add(createTestCondition("cond" + i, "Patient/" + id, "Diabetes"));
+            // Same name for everyone, later ids answer first: only the id can order them
+            when(fhirClient.getPatient(id)).thenReturn(Uni.createFrom().item(
+                            createTestPatient(id, "Anna", "Berg", id, "1970-01-01"))
+                    .onItem().delayIt().by(Duration.ofMillis(60 - 10L * i)));
+        }
+        when(fhirClient.searchConditions("Diabetes")).thenReturn(Uni.createFrom().item(createBundleWithConditions(conditions)));
+
+        List<String> paged = new ArrayList<>();
+        for (int offset = 0; offset < 6; offset += 2) {
+            PageRequest page = PageRequest.of(2, offset, "lastName", SearchService.PATIENT_SORT_FIELDS);
+            searchService.searchPatientsByCondition("Diabetes", page).await().indefinitely()
+                    .forEach(patient -> paged.add(patient.id()));
+            cacheStore.clear().await().indefinitely();
+        }
+
+        assertThat(paged).containsExactly("1", "2", "3", "4", "5");
+        assertThatThrownBy(() -> PageRequest.of(2, 2, null, SearchService.PATIENT_SORT_FIELDS))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void searchEncountersByPractitioner_shouldPushDownSortToFhir() {
+        String practitionerId = "30681750-1667-311a-a3e3-878ae10a35bb";
+        FhirBundle encounters = createBundleWithEncounters(List.of(
+                createTestEncounter("enc2", "Patient/123", "Practitioner/999", "2024-02-01T10:00:00", "2024-02-01T11:00:00"),
+                createTestEncounter("enc1", "Patient/123", "Practitioner/999", "2024-01-01T10:00:00", "2024-01-01T11:00:00")
+        ));
+
+        when(fhirClient.searchEncountersByPractitioner(practitionerId, null, 2, 0, "-date,_id"))
+                .thenReturn(Uni.createFrom().item(encounters));
+        when(fhirClient.getPatient("123")).thenReturn(Uni.createFrom().item(testPatient));
+        when(fhirClient.getPractitioner(practitionerId)).thenReturn(Uni.createFrom().item(testPractitioner));
+
+        PageRequest page = PageRequest.of(2, 0, "-startTime", SearchService.ENCOUNTER_SORT_FIELDS);
+        List<EncounterSearchResult> result = searchService.searchEncountersByPractitioner(practitionerId, null, page)
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        assertThat(result).extracting(EncounterSearchResult::id).containsExactly("enc2", "enc1");
+    }
+
+    // ==========================================
+    // DEADLINE TESTS
+    // ==========================================
+
+    @Test
+    void searchPatientsByCondition_shouldReturnPartialResults_whenDeadlineExpires() {
+        FhirBundle conditions = createBundleWithConditions(List.of(
+                createTestCondition("c1", "Patient/1", "Diabetes"),
+                createTestCondition("c2", "Patient/slow", "Diabetes")
+        ));
+        when(fhirClient.searchConditions("Diabetes")).thenReturn(Uni.createFrom().item(conditions));
+        when(fhirClient.getPatient("1")).thenReturn(Uni.createFrom().item(
+                createTestPatient("1", "Anna", "Andersson", "1", "1970-01-01")));
+        when(fhirClient.getPatient("slow")).thenReturn(Uni.createFrom().item(
+                        createTestPatient("slow", "Sven", "Svensson", "2", "1980-01-01"))
+                .onItem().delayIt().by(Duration.ofSeconds(2)));
+
+        Deadline deadline = Deadline.after(Duration.ofMillis(200));
+        List<PatientSearchResult> result = searchService.searchPatientsByCondition(
+                        "Diabetes", PageRequest.unpaged(), deadline)
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem(Duration.ofSeconds(1))
+                .getItem();
+
+        assertThat(result).extracting(PatientSearchResult::id).containsExactlyInAnyOrder("1", "slow");
+        assertThat(result).filteredOn(patient -> patient.id().equals("slow"))
+                .extracting(PatientSearchResult::firstName).containsExactly("");
+        assertThat(deadline.isPartial()).isTrue();
+        assertThat(deadline.pending()).isEqualTo(1);
+
+        // A partial answer is never cached as the answer to the query
+        searchService.searchPatientsByCondition("Diabetes").await().indefinitely();
+        Mockito.verify(fhirClient, Mockito.times(2)).searchConditions("Diabetes");
+    }
+
+    @Test
+    void searchEncountersByPractitioner_shouldLeaveLateNamesEmpty() {
+        String practitionerId = "30681750-1667-311a-a3e3-878ae10a35bb";
+        when(fhirClient.searchEncountersByPractitionerOnly(practitionerId))
+                .thenReturn(Uni.createFrom().item(testEncounterBundle));
+        when(fhirClient.getPatient("123")).thenReturn(Uni.createFrom().item(testPatient));
+        when(fhirClient.getPractitioner(practitionerId)).thenReturn(Uni.createFrom().item(testPractitioner)
+                .onItem().delayIt().by(Duration.ofSeconds(2)));
+
+        Deadline deadline = Deadline.after(Duration.ofMillis(200));
+        List<EncounterSearchResult> result = searchService.searchEncountersByPractitioner(
+                        practitionerId, null, PageRequest.unpaged(), deadline)
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem(Duration.ofSeconds(1))
+                .getItem();
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).patientName()).isEqualTo("Anna Andersson");
+        assertThat(result.get(0).practitionerName()).isEmpty();
+        assertThat(deadline.pending()).isEqualTo(1);
+    }
+
+    // ==========================================
+    // searchConditions() TESTS
+    // ==========================================
+
+    @Test
+    void searchConditions_shouldNameFromIncludedPatientsAndBatchTheRest() {
+        FhirBundle bundle = createBundleWithConditions(List.of(
+                createTestCondition("c1", "Patient/123", "Diabetes"),
+                createTestCondition("c2", "Patient/456", "Diabetes"),
+                createTestCondition("c3", "Patient/456", "Asthma")));
+        FhirBundle.BundleEntry included = new FhirBundle.BundleEntry();
+        included.resource = testPatient;
+        bundle.entry.add(included);
+        when(fhirClient.searchConditionsWithSubjects(eq("Diabetes"), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(bundle));
+        when(fhirClient.getPatients("456", 1)).thenReturn(Uni.createFrom().item(createBundleWithPatients(List.of(
+                createTestPatient("456", "Bo", "Berg", "198001011234", "1980-01-01")))));
+
+        List<ConditionSearchResult> result = searchService.searchConditions(
+                ConditionQuery.of("Diabetes", null, null), PageRequest.unpaged()).await().indefinitely();
+
+        assertThat(result).extracting(ConditionSearchResult::id).containsExactly("c1", "c2", "c3");
+        assertThat(result).extracting(ConditionSearchResult::patientName)
+                .containsExactly("Anna Andersson", "Bo Berg", "Bo Berg");
+        verify(fhirClient, times(1)).getPatients("456", 1);
+        verify(fhirClient, never()).getPatient(anyString());
+    }
+
+    @Test
+    void streamConditions_shouldSearchOnePatientsConditions() {
+        FhirBundle bundle = createBundleWithConditions(List.of(createTestCondition("c1", "Patient/123", "Asthma")));
+        FhirBundle.BundleEntry included = new FhirBundle.BundleEntry();
+        included.resource = testPatient;
+        bundle.entry.add(included);
+        when(fhirClient.searchConditionsWithSubjects(any(), any(), any(), eq("Patient/123"), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(bundle));
+
+        List<ConditionSearchResult> result = searchService.streamConditions(
+                        ConditionQuery.of(null, null, "Patient/123"), PageRequest.unpaged())
+                .collect().asList().await().indefinitely();
+
+        assertThat(result).containsExactly(
+                new ConditionSearchResult("c1", "123", "Anna Andersson", "Asthma", "2024-01-01"));
+        verify(fhirClient, never()).getPatients(anyString(), any());
+    }
+
+    @Test
+    void exportConditions_shouldPageFromCursorInSearchOrder() {
+        String code = "http://snomed.info/sct|44054006";
+        FhirBundle first = createBundleWithConditions(List.of(
+                createTestCondition("c1", "Patient/456", "Diabetes"),
+                createTestCondition("c2", "Patient/123", "Diabetes")));
+        FhirBundle last = createBundleWithConditions(List.of(createTestCondition("c3", "Patient/123", "Diabetes")));
+        for (FhirBundle page : List.of(first, last)) {
+            FhirBundle.BundleEntry included = new FhirBundle.BundleEntry();
+            included.resource = testPatient;
+            page.entry.add(included);
+        }
+        // %test page size is 2: a full page asks for the next one, a short one ends the export
+        when(fhirClient.searchConditionsPage(null, code, null, null, 2, 3)).thenReturn(Uni.createFrom().item(first));
+        when(fhirClient.searchConditionsPage(null, code, null, null, 2, 5)).thenReturn(Uni.createFrom().item(last));
+        when(fhirClient.getPatients("456", 1)).thenReturn(Uni.createFrom().item(createBundleWithPatients(List.of(
+                createTestPatient("456", "Bo", "Berg", "198001011234", "1980-01-01")))));
+
+        List<ConditionSearchResult> result = searchService.exportConditions(ConditionQuery.of(null, code, null), 3)
+                .collect().asList().await().indefinitely();
+
+        assertThat(result).extracting(ConditionSearchResult::id).containsExactly("c1", "c2", "c3");
+        assertThat(result).extracting(ConditionSearchResult::patientName)
+                .containsExactly("Bo Berg", "Anna Andersson", "Anna Andersson");
+        verify(fhirClient, times(2)).searchConditionsPage(any(), any(), any(), any(), any(), any());
+        verify(fhirClient, times(1)).getPatients("456", 1);
+    }
+
+    // ==========================================
+    // searchDoctorPatients() TESTS
+    // ==========================================
+
+    @Test
+    void searchDoctorPatients_shouldBuildPanelFromOneEncounterSearch() {
+        String practitionerId = "30681750-1667-311a-a3e3-878ae10a35bb";
+        FhirBundle bundle = createBundleWithEncounters(List.of(
+                createTestEncounter("enc1", "Patient/123", "Practitioner/" + practitionerId, "2024-01-02T10:00:00", null),
+                createTestEncounter("enc2", "Patient/456", "Practitioner/" + practitionerId, "2024-01-03T10:00:00", null),
+                createTestEncounter("enc3", "Patient/123", "Practitioner/" + practitionerId, "2024-01-04T10:00:00", null)));
+        for (FhirBundle.FhirResource included : List.of(
+                testPatient, createTestPractitioner(practitionerId, "Dr. Erik", "Karlsson"))) {
+            FhirBundle.BundleEntry entry = new FhirBundle.BundleEntry();
+            entry.resource = included;
+            bundle.entry.add(entry);
+        }
+        when(fhirClient.searchEncountersWithParticipants(eq("Practitioner/" + practitionerId), any()))
+                .thenReturn(Uni.createFrom().item(bundle));
+        when(fhirClient.getPatients("456", 1)).thenReturn(Uni.createFrom().item(createBundleWithPatients(List.of(
+                createTestPatient("456", "Bo", "Berg", "198001011234", "1980-01-01")))));
+
+        DoctorPatientsResult result = searchService.searchDoctorPatients(practitionerId).await().indefinitely();
+        DoctorPatientsResult cached = searchService.searchDoctorPatients(practitionerId).await().indefinitely();
+
+        assertThat(result.doctorId()).isEqualTo(practitionerId);
+        assertThat(result.doctorName()).isEqualTo("Dr. Erik Karlsson");
+        assertThat(result.patients()).extracting(PatientSearchResult::id).containsExactly("123", "456");
+        assertThat(cached).isEqualTo(result);
+        verify(fhirClient, times(1)).searchEncountersWithParticipants(any(), any());
+        verify(fhirClient, never()).getPatient(anyString());
+        verify(fhirClient, never()).getPractitioner(anyString());
+    }
+
+    @Test
+    void searchDoctorPatients_shouldReadPractitionerWithoutEncounters() {
+        String practitionerId = "30681750-1667-311a-a3e3-878ae10a35bb";
+        when(fhirClient.searchEncountersWithParticipants(any(), any()))
+                .thenReturn(Uni.createFrom().item(createEmptyBundle()));
+        when(fhirClient.getPractitioner(practitionerId)).thenReturn(Uni.createFrom().item(testPractitioner));
+
+        DoctorPatientsResult result = searchService.searchDoctorPatients(practitionerId).await().indefinitely();
+
+        assertThat(result.patients()).isEmpty();
+        assertThat(result.doctorName()).isNotEmpty();
+    }
+
+    // ==========================================
+    // DATE RANGE TESTS
+    // ==========================================
+
+    @Test
+    void streamEncountersByPractitioner_shouldEmitBucketsInStartTimeOrderWithoutDuplicates() {
+        String practitionerId = "30681750-1667-311a-a3e3-878ae10a35bb";
+        FhirBundle.FhirResource spanning = createTestEncounter("enc1", "Patient/123", "Practitioner/" + practitionerId,
+                "2024-01-07T22:00:00", "2024-01-08T02:00:00");
+        FhirBundle firstWeek = createBundleWithEncounters(List.of(
+                createTestEncounter("enc2", "Patient/123", "Practitioner/" + practitionerId, "2024-01-03T10:00:00", null),
+                createTestEncounter("enc0", "Patient/123", "Practitioner/" + practitionerId, "2024-01-02T10:00:00", null),
+                spanning));
+        FhirBundle secondWeek = createBundleWithEncounters(List.of(
+                createTestEncounter("enc3", "Patient/123", "Practitioner/" + practitionerId, "2024-01-10T10:00:00", null),
+                spanning));
+        // The first week answers last, yet is still emitted first
+        when(fhirClient.searchEncountersByPractitionerInRange(
+                eq(practitionerId), eq(List.of("ge2024-01-01", "lt2024-01-08")), any(), any()))
+                .thenReturn(Uni.createFrom().item(firstWeek).onItem().delayIt().by(Duration.ofMillis(200)));
+        when(fhirClient.searchEncountersByPractitionerInRange(
+                eq(practitionerId), eq(List.of("ge2024-01-08", "lt2024-01-15")), any(), any()))
+                .thenReturn(Uni.createFrom().item(secondWeek));
+        when(fhirClient.getPatient("123")).thenReturn(Uni.createFrom().item(testPatient));
+        when(fhirClient.getPractitioner(practitionerId)).thenReturn(Uni.createFrom().item(testPractitioner));
+
+        List<EncounterSearchResult> result = searchService.streamEncountersByPractitioner(
+                        practitionerId, DateRange.of("2024-01-01", "2024-01-14"), Deadline.NONE)
+                .collect().asList()
+                .await().atMost(Duration.ofSeconds(5));
+
+        assertThat(result).extracting(EncounterSearchResult::id).containsExactly("enc0", "enc2", "enc1", "enc3");
+    }
+
+    @Test
+    void searchEncountersByPractitioner_shouldCachePastBucketsAcrossRanges() {
+        String practitionerId = "30681750-1667-311a-a3e3-878ae10a35bb";
+        when(fhirClient.searchEncountersByPractitionerInRange(eq(practitionerId), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(testEncounterBundle));
+        when(fhirClient.getPatient("123")).thenReturn(Uni.createFrom().item(testPatient));
+        when(fhirClient.getPractitioner(practitionerId)).thenReturn(Uni.createFrom().item(testPractitioner));
+
+        searchService.searchEncountersByPractitionerInRange(practitionerId, DateRange.of("2024-01-01", "2024-01-14"),
+                PageRequest.unpaged(), Deadline.NONE).await().indefinitely();
+        List<EncounterSearchResult> result = searchService.searchEncountersByPractitionerInRange(practitionerId,
+                DateRange.of("2024-01-08", "2024-01-21"), PageRequest.unpaged(), Deadline.NONE).await().indefinitely();
+
+        assertThat(result).hasSize(1);
+        // Weeks of Jan 1 and Jan 8 once each, then only the week of Jan 15
+        verify(fhirClient, times(3)).searchEncountersByPractitionerInRange(eq(practitionerId), any(), any(), any());
+    }
+
+    @Test
+    void dateRangeBuckets_shouldSplitIntoSingleDaysAndRejectLess() {
+        DateRange range = DateRange.of("2024-01-01", "2024-01-03");
+
+        assertThat(range.buckets(1)).containsExactly(
+                DateRange.of("2024-01-01", "2024-01-01"),
+                DateRange.of("2024-01-02", "2024-01-02"),
+                DateRange.of("2024-01-03", "2024-01-03"));
+        assertThatThrownBy(() -> range.buckets(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> range.buckets(-7)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void onStart_shouldRejectBucketDaysBelowOne() {
+        SearchService service = new SearchService();
+        service.rangeConfig = rangeConfig(0);
+
+        assertThatThrownBy(() -> service.onStart(null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("bucket-days");
+
+        service.rangeConfig = rangeConfig(1);
+        service.onStart(null);
+    }
+
+    private static EncounterRangeConfig rangeConfig(int bucketDays) {
+        return new EncounterRangeConfig() {
+            @Override
+            public int bucketDays() {
+                return bucketDays;
+            }
+
+            @Override
+            public int bucketCount() {
+                return 500;
+            }
+        };
+    }
+
+    // ==========================================
+    // TERMINOLOGY TESTS
+    // ==========================================
+
+    @Test
+    void searchPatientsByCondition_shouldUseTokenSearch_forTypedCode() {
+        when(fhirClient.searchConditionsByCode("http://snomed.info/sct|44054006", null))
+                .thenReturn(Uni.createFrom().item(testConditionBundle));
+        when(fhirClient.getPatient("123")).thenReturn(Uni.createFrom().item(testPatient));
+
+        List<PatientSearchResult> result = searchService.searchPatientsByCondition("http://snomed.info/sct|44054006")
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        assertThat(result).hasSize(1);
+        verify(fhirClient, never()).searchConditions(anyString());
+    }
+
+    @Test
+    void searchPatientsByCondition_shouldSwitchToTokenSearch_afterCompleteTextResult() {
+        FhirBundle.FhirResource coded = createTestCondition("cond1", "Patient/123", "Rare syndrome");
+        FhirBundle.Coding coding = new FhirBundle.Coding();
+        coding.system = "http://snomed.info/sct";
+        coding.code = "1234567";
+        coded.code.coding = List.of(coding);
+        when(fhirClient.searchConditions("Rare syndrome"))
+                .thenReturn(Uni.createFrom().item(createBundleWithConditions(List.of(coded))));
+        when(fhirClient.searchConditionsByCode("http://snomed.info/sct|1234567", null))
+                .thenReturn(Uni.createFrom().item(createBundleWithConditions(List.of(coded))));
+        when(fhirClient.getPatient("123")).thenReturn(Uni.createFrom().item(testPatient));
+
+        searchService.searchPatientsByCondition("Rare syndrome").await().indefinitely();
+        cacheStore.invalidateAll(CacheRegions.PATIENT_QUERIES).await().indefinitely();
+        List<PatientSearchResult> result = searchService.searchPatientsByCondition("rare  SYNDROME")
+                .await().indefinitely();
+
+        assertThat(result).hasSize(1);
+        verify(fhirClient, times(1)).searchConditions(anyString());
+        verify(fhirClient, times(1)).searchConditionsByCode("http://snomed.info/sct|1234567", null);
+    }
+
+    // ==========================================
+    // COUNT TESTS
+    // ==========================================
+
+    @Test
+    void countPatientsByName_shouldUseBundleTotal() {
+        FhirBundle countBundle = createEmptyBundle();
+        countBundle.total = 42;
+        when(fhirClient.countPatients("Anna")).thenReturn(Uni.createFrom().item(countBundle));
+
+        Integer count = searchService.countPatientsByName("Anna")
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        assertThat(count).isEqualTo(42);
+        verify(fhirClient, never()).searchPatients(anyString());
+    }
+
+    @Test
+    void countPatientsByCondition_shouldCountDistinctSubjectsWithoutFetchingPatients() {
+        FhirBundle subjects = createBundleWithConditions(List.of(
+                createTestCondition("cond1", "Patient/123", null),
+                createTestCondition("cond2", "Patient/123", null),
+                createTestCondition("cond3", "Patient/456", null)
+        ));
+        when(fhirClient.searchConditionSubjects("Diabetes", 200, 0)).thenReturn(Uni.createFrom().item(subjects));
+
+        Integer count = searchService.countPatientsByCondition("Diabetes")
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        assertThat(count).isEqualTo(2);
+        verify(fhirClient, never()).getPatient(anyString());
+    }
+
+    @Test
+    void countPatientsByCondition_shouldCountSubjectsOnEveryPage() {
+        FhirBundle fullPage = createBundleWithConditions(IntStream.range(0, 200)
+                .mapToObj(i -> createTestCondition("cond" + i, "Patient/" + i % 150, null))
+                .toList());
+        FhirBundle lastPage = createBundleWithConditions(List.of(
+                createTestCondition("cond200", "Patient/0", null),
+                createTestCondition("cond201", "Patient/999", null)
+        ));
+        when(fhirClient.searchConditionSubjects("Diabetes", 200, 0)).thenReturn(Uni.createFrom().item(fullPage));
+        when(fhirClient.searchConditionSubjects("Diabetes", 200, 200)).thenReturn(Uni.createFrom().item(lastPage));
+
+        Integer count = searchService.countPatientsByCondition("Diabetes")
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        assertThat(count).isEqualTo(151);
+        verify(fhirClient, never()).searchConditionSubjects("Diabetes", 200, 400);
+    }
+
+    @Test
+    void countEncountersByPractitioner_shouldPassDateAndUseBundleTotal() {
+        String practitionerId = "30681750-1667-311a-a3e3-878ae10a35bb";
+        FhirBundle countBundle = createEmptyBundle();
+        countBundle.total = 3;
+        when(fhirClient.countEncountersByPractitioner(practitionerId, "2024-01-01"))
+                .thenReturn(Uni.createFrom().item(countBundle));
+
+        Integer count = searchService.countEncountersByPractitioner(practitionerId, "2024-01-01")
+                .subscribe().withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        assertThat(count).isEqualTo(3);
+    }
+
     // ==========================================
     // HELPER METHODS
     // ==========================================
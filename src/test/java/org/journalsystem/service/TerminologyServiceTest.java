@@ -0,0 +1,110 @@
+package org.journalsystem.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.journalsystem.cache.LocalCacheStore;
+import org.journalsystem.cache.QueryPostings;
+import org.journalsystem.dto.fhir.FhirBundle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TerminologyServiceTest {
+
+    private TerminologyService terminology;
+
+    @BeforeEach
+    void setUp() {
+        terminology = new TerminologyService();
+        terminology.config = config(true);
+        terminology.cache = new LocalCacheStore(100, region -> Duration.ofMinutes(2));
+        terminology.postings = mock(QueryPostings.class);
+        terminology.registry = new SimpleMeterRegistry();
+        terminology.init();
+    }
+
+    @Test
+    void codesFor_shouldUseBundledTableRegardlessOfCaseAndSpacing() {
+        ConditionCodes codes = terminology.codesFor("  Högt   Blodtryck ").await().indefinitely();
+
+        assertThat(codes.codeBelow())
+                .contains("http://snomed.info/sct|59621000")
+                .contains("http://hl7.org/fhir/sid/icd-10|I10");
+        assertThat(codes.code()).isNull();
+    }
+
+    @Test
+    void codesFor_shouldPassTypedCodesThrough() {
+        assertThat(terminology.codesFor("http://snomed.info/sct|195967001").await().indefinitely())
+                .isEqualTo(ConditionCodes.exact("http://snomed.info/sct|195967001"));
+        assertThat(terminology.codesFor("E11.9").await().indefinitely()).isEqualTo(ConditionCodes.exact("E11.9"));
+        assertThat(terminology.codesFor("44054006").await().indefinitely()).isEqualTo(ConditionCodes.exact("44054006"));
+    }
+
+    @Test
+    void codesFor_shouldReturnNullForUnknownText() {
+        assertThat(terminology.codesFor("rare syndrome").await().indefinitely()).isNull();
+    }
+
+    @Test
+    void learn_shouldRememberCodesOfCompleteResult() {
+        FhirBundle bundle = bundle(2,
+                condition("http://snomed.info/sct", "1234567"),
+                condition("http://snomed.info/sct", "7654321"));
+
+        terminology.learn("Rare Syndrome", bundle).await().indefinitely();
+
+        assertThat(terminology.codesFor("rare syndrome").await().indefinitely())
+                .isEqualTo(ConditionCodes.exact("http://snomed.info/sct|1234567,http://snomed.info/sct|7654321"));
+    }
+
+    @Test
+    void learn_shouldSkipIncompleteOrUncodedResults() {
+        terminology.learn("partial", bundle(50, condition("http://snomed.info/sct", "1234567")))
+                .await().indefinitely();
+        terminology.learn("uncoded", bundle(2, condition("http://snomed.info/sct", "1234567"), condition(null, null)))
+                .await().indefinitely();
+
+        assertThat(terminology.codesFor("partial").await().indefinitely()).isNull();
+        assertThat(terminology.codesFor("uncoded").await().indefinitely()).isNull();
+    }
+
+    private static FhirBundle.FhirResource condition(String system, String code) {
+        FhirBundle.FhirResource condition = new FhirBundle.FhirResource();
+        condition.resourceType = "Condition";
+        condition.code = new FhirBundle.CodeableConcept();
+        if (code != null) {
+            FhirBundle.Coding coding = new FhirBundle.Coding();
+            coding.system = system;
+            coding.code = code;
+            condition.code.coding = List.of(coding);
+        }
+        return condition;
+    }
+
+    private static FhirBundle bundle(int total, FhirBundle.FhirResource... conditions) {
+        FhirBundle bundle = new FhirBundle();
+        bundle.total = total;
+        bundle.entry = new ArrayList<>();
+        for (FhirBundle.FhirResource condition : conditions) {
+            FhirBundle.BundleEntry entry = new FhirBundle.BundleEntry();
+            entry.resource = condition;
+            bundle.entry.add(entry);
+        }
+        return bundle;
+    }
+
+    private static TerminologyConfig config(boolean bundled) {
+        return new TerminologyConfig() {
+            public boolean enabled() { return true; }
+            public boolean bundled() { return bundled; }
+            public boolean learn() { return true; }
+            public int maxLearnedCodes() { return 20; }
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package org.journalsystem.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.mutiny.Uni;
+import org.journalsystem.client.FhirRouter;
+import org.journalsystem.mapper.FhirMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WarmupServiceTest {
+
+    private WarmupService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new WarmupService();
+        service.config = config();
+        service.mapper = new ObjectMapper();
+        service.router = mock(FhirRouter.class);
+        service.searchService = mock(SearchService.class);
+    }
+
+    @Test
+    void exercise_shouldRunSyntheticBundlesThroughMapper() {
+        assertThat(FhirMapper.bundleToPatientList(WarmupService.syntheticBundle("Patient"))).hasSize(50);
+        assertThat(FhirMapper.bundleToEncounterList(WarmupService.syntheticBundle("Encounter"))).hasSize(50);
+        assertThat(FhirMapper.bundleToConditionList(WarmupService.syntheticBundle("Condition"))).hasSize(50);
+
+        assertThat(service.exercise(2)).isPositive();
+    }
+
+    @Test
+    void warmUp_shouldOpenConnectionsAndPreloadPractitioners() {
+        when(service.router.openConnections(anyInt())).thenReturn(Uni.createFrom().item(2));
+        when(service.searchService.preloadPractitioners(List.of("p-1")))
+                .thenReturn(Uni.createFrom().item(1));
+
+        assertThat(service.isDone()).isFalse();
+        service.warmUp();
+
+        assertThat(service.isDone()).isTrue();
+        assertThat(service.warmupMillis()).isNotNegative();
+        verify(service.router).openConnections(2);
+        verify(service.searchService).preloadPractitioners(List.of("p-1"));
+    }
+
+    @Test
+    void warmUp_shouldBeDoneWhenFhirDoesNotAnswer() {
+        when(service.router.openConnections(anyInt())).thenReturn(Uni.createFrom().nothing());
+
+        service.warmUp();
+
+        assertThat(service.state()).isEqualTo(WarmupService.State.DONE);
+    }
+
+    private static WarmupConfig config() {
+        return new WarmupConfig() {
+            @Override
+            public boolean enabled() {
+                return true;
+            }
+
+            @Override
+            public int iterations() {
+                return 2;
+            }
+
+            @Override
+            public int connections() {
+                return 2;
+            }
+
+            @Override
+            public Optional<List<String>> practitioners() {
+                return Optional.of(List.of("p-1"));
+            }
+
+            @Override
+            public Duration timeout() {
+                return Duration.ofMillis(200);
+            }
+
+            @Override
+            public Duration slowUpstream() {
+                return Duration.ofSeconds(2);
+            }
+        };
+    }
+}